@@ -0,0 +1,68 @@
+package com.stockgenie.service;
+
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.provider.AlphaVantageProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming parse and conversion of a TIME_SERIES_DAILY outputsize=full body,
+ * fed in network-sized chunks as AlphaVantageProvider receives it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class AlphaVantageParsingBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final LocalDate ALL_FROM = LocalDate.of(1900, 1, 1);
+    private static final LocalDate ALL_TO = LocalDate.of(2100, 1, 1);
+
+    @Param({"250", "5000", "50000"})
+    public int bars;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        payload = BenchmarkData.alphaVantageDailyJson("BENCH", bars).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public AlphaVantageStreamParser.Result parse() throws IOException {
+        return parse(ALL_FROM, ALL_TO);
+    }
+
+    @Benchmark
+    public AlphaVantageStreamParser.Result parseLastYear() throws IOException {
+        return parse(LocalDate.of(2024, 1, 3), LocalDate.of(2025, 1, 3));
+    }
+
+    @Benchmark
+    public List<StockDataDto> parseAndConvert() throws IOException {
+        return FinancialDataService.convertToDtos(parse(ALL_FROM, ALL_TO).getSeries(), AlphaVantageProvider.NAME);
+    }
+
+    private AlphaVantageStreamParser.Result parse(LocalDate from, LocalDate to) throws IOException {
+        AlphaVantageStreamParser parser = new AlphaVantageStreamParser("BENCH", from, to);
+        for (int offset = 0; offset < payload.length; offset += CHUNK_SIZE) {
+            parser.feed(ByteBuffer.wrap(payload, offset, Math.min(CHUNK_SIZE, payload.length - offset)));
+        }
+        return parser.finish();
+    }
+}
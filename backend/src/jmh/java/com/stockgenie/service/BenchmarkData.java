@@ -0,0 +1,164 @@
+package com.stockgenie.service;
+
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.entity.StockData;
+import com.stockgenie.entity.TechnicalAnalysis;
+import com.stockgenie.repository.IndicatorStateRepository;
+import com.stockgenie.repository.StockDataRepository;
+import com.stockgenie.repository.TechnicalAnalysisRepository;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks; nothing here touches the
+ * network, Redis or Postgres.
+ */
+final class BenchmarkData {
+
+    private static final LocalDate LAST_DATE = LocalDate.of(2025, 1, 3);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Random-walk daily bars ending at a fixed date, ascending by date
+     */
+    static List<StockDataDto> stockData(String symbol, int bars) {
+        Random random = new Random(bars);
+        List<StockDataDto> data = new ArrayList<>(bars);
+        LocalDate date = LAST_DATE.minusDays(bars - 1L);
+        long closeTicks = 1_500_000L;
+
+        for (int i = 0; i < bars; i++) {
+            long openTicks = closeTicks;
+            closeTicks = Math.max(10_000L, closeTicks + random.nextInt(40_001) - 20_000);
+            long highTicks = Math.max(openTicks, closeTicks) + random.nextInt(10_000);
+            long lowTicks = Math.max(1L, Math.min(openTicks, closeTicks) - random.nextInt(10_000));
+
+            data.add(StockDataDto.builder()
+                    .symbol(symbol)
+                    .date(date)
+                    .open(ticks(openTicks))
+                    .high(ticks(highTicks))
+                    .low(ticks(lowTicks))
+                    .close(ticks(closeTicks))
+                    .volume(1_000_000L + random.nextInt(500_000))
+                    .adjustedClose(ticks(closeTicks))
+                    .dataSource("benchmark")
+                    .build());
+            date = date.plusDays(1);
+        }
+        return data;
+    }
+
+    /**
+     * TIME_SERIES_DAILY payload shaped like an outputsize=full response (newest first)
+     */
+    static String alphaVantageDailyJson(String symbol, int bars) {
+        List<StockDataDto> data = stockData(symbol, bars);
+        StringBuilder json = new StringBuilder(bars * 180);
+        json.append("{\n    \"Meta Data\": {\n")
+                .append("        \"1. Information\": \"Daily Prices (open, high, low, close) and Volumes\",\n")
+                .append("        \"2. Symbol\": \"").append(symbol).append("\",\n")
+                .append("        \"3. Last Refreshed\": \"").append(LAST_DATE).append("\",\n")
+                .append("        \"4. Output Size\": \"Full size\",\n")
+                .append("        \"5. Time Zone\": \"US/Eastern\"\n    },\n")
+                .append("    \"Time Series (Daily)\": {\n");
+
+        for (int i = data.size() - 1; i >= 0; i--) {
+            StockDataDto bar = data.get(i);
+            json.append("        \"").append(bar.getDate()).append("\": {\n")
+                    .append("            \"1. open\": \"").append(bar.getOpen()).append("\",\n")
+                    .append("            \"2. high\": \"").append(bar.getHigh()).append("\",\n")
+                    .append("            \"3. low\": \"").append(bar.getLow()).append("\",\n")
+                    .append("            \"4. close\": \"").append(bar.getClose()).append("\",\n")
+                    .append("            \"5. volume\": \"").append(bar.getVolume()).append("\"\n")
+                    .append("        }").append(i > 0 ? ",\n" : "\n");
+        }
+        return json.append("    }\n}").toString();
+    }
+
+    /**
+     * Repository stand-in whose writes are no-ops, so calculateIndicators measures computation only
+     */
+    static TechnicalAnalysisRepository noOpTechnicalAnalysisRepository() {
+        return (TechnicalAnalysisRepository) Proxy.newProxyInstance(
+                TechnicalAnalysisRepository.class.getClassLoader(),
+                new Class<?>[]{TechnicalAnalysisRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "upsertAll":
+                            return ((List<?>) args[0]).size();
+                        case "findTechnicalAnalysisInRange":
+                            return List.<TechnicalAnalysis>of();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "NoOpTechnicalAnalysisRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Repository that never holds state, so every call takes the full-computation path
+     */
+    static IndicatorStateRepository emptyIndicatorStateRepository() {
+        return (IndicatorStateRepository) Proxy.newProxyInstance(
+                IndicatorStateRepository.class.getClassLoader(),
+                new Class<?>[]{IndicatorStateRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "save":
+                            return args[0];
+                        case "findBySymbolAndIndicatorTypeAndPeriod":
+                            return Optional.empty();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "EmptyIndicatorStateRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Repository with no stored bars; it is only read on a recompute, which the benchmarks never reach
+     */
+    static StockDataRepository emptyStockDataRepository() {
+        return (StockDataRepository) Proxy.newProxyInstance(
+                StockDataRepository.class.getClassLoader(),
+                new Class<?>[]{StockDataRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findStockDataInRange":
+                            return List.<StockData>of();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "EmptyStockDataRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static BigDecimal ticks(long ticks) {
+        return BigDecimal.valueOf(ticks, 4).setScale(4, RoundingMode.UNNECESSARY);
+    }
+}
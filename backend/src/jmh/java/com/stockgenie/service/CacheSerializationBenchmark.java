@@ -0,0 +1,82 @@
+package com.stockgenie.service;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stockgenie.cache.SeriesRedisSerializer;
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.dto.TechnicalAnalysisDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached value (de)serialization: the previous JSON serializer against the
+ * binary series codec, for a price series and its indicator results. Encoded
+ * sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class CacheSerializationBenchmark {
+
+    @Param({"250", "5000"})
+    public int bars;
+
+    @Param({"json", "series"})
+    public String codec;
+
+    private RedisSerializer<Object> serializer;
+    private List<StockDataDto> stockData;
+    private Map<String, List<TechnicalAnalysisDto>> indicators;
+    private byte[] stockDataBytes;
+    private byte[] indicatorBytes;
+
+    @Setup
+    public void setUp() {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        serializer = "json".equals(codec) ? json : new SeriesRedisSerializer(json);
+
+        stockData = BenchmarkData.stockData("BENCH", bars);
+        TechnicalAnalysisService service = new TechnicalAnalysisService(BenchmarkData.noOpTechnicalAnalysisRepository(),
+                BenchmarkData.emptyIndicatorStateRepository(), BenchmarkData.emptyStockDataRepository());
+        indicators = service.calculateIndicators("BENCH", stockData, List.of("SMA_20", "EMA_12", "RSI_14", "MACD"));
+
+        stockDataBytes = serializer.serialize(stockData);
+        indicatorBytes = serializer.serialize(indicators);
+        System.out.printf("%n[%s, %d bars] stockData %d bytes, technicalAnalysis %d bytes%n",
+                codec, bars, stockDataBytes.length, indicatorBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeStockData() {
+        return serializer.serialize(stockData);
+    }
+
+    @Benchmark
+    public Object deserializeStockData() {
+        return serializer.deserialize(stockDataBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeIndicators() {
+        return serializer.serialize(indicators);
+    }
+
+    @Benchmark
+    public Object deserializeIndicators() {
+        return serializer.deserialize(indicatorBytes);
+    }
+}
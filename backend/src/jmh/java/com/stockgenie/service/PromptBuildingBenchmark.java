@@ -0,0 +1,61 @@
+package com.stockgenie.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockgenie.config.LocalLLMConfig;
+import com.stockgenie.dto.LLMRequestDto;
+import com.stockgenie.dto.StockDataDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt rendering for the LLM endpoints; no Ollama call is made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class PromptBuildingBenchmark {
+
+    @Param({"250", "5000", "50000"})
+    public int bars;
+
+    private LocalLLMService service;
+    private LLMRequestDto request;
+    private List<StockDataDto> stockData;
+
+    @Setup
+    public void setUp() {
+        LocalLLMConfig config = new LocalLLMConfig();
+        config.setModel("mistral:7b");
+        service = new LocalLLMService(config, null, new ObjectMapper(), null);
+
+        stockData = BenchmarkData.stockData("BENCH", bars);
+        request = LLMRequestDto.builder()
+                .symbol("BENCH")
+                .stockData(stockData)
+                .technicalIndicators(Map.of("SMA_20", 151.2345, "RSI_14", 48.12, "MACD", -0.4321))
+                .analysisType("stock-analysis")
+                .build();
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return service.buildPrompt(request);
+    }
+
+    @Benchmark
+    public String buildSimplePrompt() {
+        return service.buildSimplePrompt("BENCH", stockData, "quick");
+    }
+}
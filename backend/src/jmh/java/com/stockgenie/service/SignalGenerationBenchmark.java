@@ -0,0 +1,44 @@
+package com.stockgenie.service;
+
+import com.stockgenie.dto.StockDataDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signal generation, which computes its own fixed indicator set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class SignalGenerationBenchmark {
+
+    @Param({"250", "5000", "50000"})
+    public int bars;
+
+    private TechnicalAnalysisService service;
+    private List<StockDataDto> stockData;
+
+    @Setup
+    public void setUp() {
+        service = new TechnicalAnalysisService(BenchmarkData.noOpTechnicalAnalysisRepository(),
+                BenchmarkData.emptyIndicatorStateRepository(), BenchmarkData.emptyStockDataRepository());
+        stockData = BenchmarkData.stockData("BENCH", bars);
+    }
+
+    @Benchmark
+    public Map<String, String> generateSignals() {
+        return service.generateSignals("BENCH", stockData);
+    }
+}
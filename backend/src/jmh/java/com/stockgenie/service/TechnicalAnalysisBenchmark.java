@@ -0,0 +1,50 @@
+package com.stockgenie.service;
+
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.dto.TechnicalAnalysisDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indicator computation over synthetic histories, one indicator at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class TechnicalAnalysisBenchmark {
+
+    @Param({"250", "5000", "50000"})
+    public int bars;
+
+    @Param({"SMA_20", "SMA_50", "EMA_12", "EMA_26", "RSI_14", "MACD", "OBV"})
+    public String indicator;
+
+    private TechnicalAnalysisService service;
+    private List<StockDataDto> stockData;
+    private List<String> indicators;
+
+    @Setup
+    public void setUp() {
+        service = new TechnicalAnalysisService(BenchmarkData.noOpTechnicalAnalysisRepository(),
+                BenchmarkData.emptyIndicatorStateRepository(), BenchmarkData.emptyStockDataRepository());
+        stockData = BenchmarkData.stockData("BENCH", bars);
+        indicators = List.of(indicator);
+    }
+
+    @Benchmark
+    public Map<String, List<TechnicalAnalysisDto>> calculateIndicators() {
+        return service.calculateIndicators("BENCH", stockData, indicators);
+    }
+}
@@ -0,0 +1,210 @@
+package com.stockgenie.analysis;
+
+/**
+ * Allocation-free, single-pass indicator kernels over primitive arrays.
+ *
+ * Every kernel reads the first {@code n} elements of its input, writes into a
+ * caller-supplied output array of at least {@code n} elements and returns the
+ * index of the first defined output value (or {@code n} when the input is too
+ * short). Slots before that index are left untouched.
+ *
+ * The rounding steps mirror the scale-4 BigDecimal arithmetic the service used
+ * before, so results agree with the historical values to 4 decimal places.
+ */
+public final class IndicatorKernels {
+
+    /** Scale used by all persisted indicator values */
+    public static final int VALUE_SCALE = 4;
+
+    /** Standard MACD fast and slow EMA periods */
+    public static final int MACD_FAST_PERIOD = 12;
+    public static final int MACD_SLOW_PERIOD = 26;
+
+    /** Scale the EMA multiplier was historically rounded to */
+    private static final int MULTIPLIER_SCALE = 6;
+
+    /**
+     * Values within this distance (in units of the last kept digit) below a
+     * half are treated as exact halves, absorbing binary representation error
+     * so HALF_UP decisions match decimal arithmetic.
+     */
+    private static final double HALF_TOLERANCE = 1e-6;
+
+    private static final double[] POWERS_OF_TEN = {1d, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+
+    private IndicatorKernels() {
+    }
+
+    /**
+     * Simple moving average on a compensated running sum: O(n) regardless of period
+     */
+    public static int sma(double[] values, int n, int period, double[] out) {
+        checkPeriod(period);
+        if (n < period) {
+            return n;
+        }
+
+        // Neumaier-compensated window sum keeps drift at ~1 ulp over long series
+        double sum = 0d;
+        double compensation = 0d;
+        for (int i = 0; i < n; i++) {
+            double incoming = values[i];
+            double t = sum + incoming;
+            compensation += Math.abs(sum) >= Math.abs(incoming) ? (sum - t) + incoming : (incoming - t) + sum;
+            sum = t;
+
+            if (i >= period) {
+                double outgoing = -values[i - period];
+                t = sum + outgoing;
+                compensation += Math.abs(sum) >= Math.abs(outgoing) ? (sum - t) + outgoing : (outgoing - t) + sum;
+                sum = t;
+            }
+
+            if (i >= period - 1) {
+                out[i] = (sum + compensation) / period;
+            }
+        }
+        return period - 1;
+    }
+
+    /**
+     * Exponential moving average seeded with the (rounded) SMA of the first period
+     */
+    public static int ema(double[] values, int n, int period, double[] out) {
+        checkPeriod(period);
+        if (n < period) {
+            return n;
+        }
+
+        double multiplier = emaMultiplier(period);
+        double ema = emaSeed(values, period);
+        out[period - 1] = ema;
+
+        for (int i = period; i < n; i++) {
+            ema = values[i] * multiplier + ema * (1d - multiplier);
+            out[i] = ema;
+        }
+        return period - 1;
+    }
+
+    /**
+     * Relative Strength Index with Wilder smoothing carried in two scalars.
+     * The first value is emitted one bar after the seed window, matching the
+     * historical output.
+     */
+    public static int rsi(double[] values, int n, int period, double[] out) {
+        checkPeriod(period);
+        if (n < period + 2) {
+            return n;
+        }
+
+        double gainSum = 0d;
+        double lossSum = 0d;
+        for (int i = 1; i <= period; i++) {
+            double change = values[i] - values[i - 1];
+            if (change > 0) {
+                gainSum += change;
+            } else if (change < 0) {
+                lossSum -= change;
+            }
+        }
+        double avgGain = round(gainSum / period, VALUE_SCALE);
+        double avgLoss = round(lossSum / period, VALUE_SCALE);
+
+        for (int i = period + 1; i < n; i++) {
+            double change = values[i] - values[i - 1];
+            double gain = change > 0 ? change : 0d;
+            double loss = change < 0 ? -change : 0d;
+
+            avgGain = round((avgGain * (period - 1) + gain) / period, VALUE_SCALE);
+            avgLoss = round((avgLoss * (period - 1) + loss) / period, VALUE_SCALE);
+
+            double rs = avgLoss == 0d ? 100d : round(avgGain / avgLoss, VALUE_SCALE);
+            out[i] = 100d - round(100d / (1d + rs), VALUE_SCALE);
+        }
+        return period + 1;
+    }
+
+    /**
+     * MACD line (fast EMA minus slow EMA) computed in one pass, aligned by bar
+     */
+    public static int macd(double[] values, int n, int fastPeriod, int slowPeriod, double[] out) {
+        checkPeriod(fastPeriod);
+        checkPeriod(slowPeriod);
+        if (fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("Fast period must be shorter than slow period");
+        }
+        if (n < slowPeriod) {
+            return n;
+        }
+
+        double fastMultiplier = emaMultiplier(fastPeriod);
+        double slowMultiplier = emaMultiplier(slowPeriod);
+        double fast = emaSeed(values, fastPeriod);
+        for (int i = fastPeriod; i < slowPeriod; i++) {
+            fast = values[i] * fastMultiplier + fast * (1d - fastMultiplier);
+        }
+        double slow = emaSeed(values, slowPeriod);
+        out[slowPeriod - 1] = fast - slow;
+
+        for (int i = slowPeriod; i < n; i++) {
+            fast = values[i] * fastMultiplier + fast * (1d - fastMultiplier);
+            slow = values[i] * slowMultiplier + slow * (1d - slowMultiplier);
+            out[i] = fast - slow;
+        }
+        return slowPeriod - 1;
+    }
+
+    /**
+     * On-Balance Volume, accumulated exactly in a long
+     */
+    public static int obv(double[] close, long[] volume, int n, long[] out) {
+        if (n < 2) {
+            return n;
+        }
+
+        long obv = 0L;
+        for (int i = 1; i < n; i++) {
+            if (close[i] > close[i - 1]) {
+                obv += volume[i];
+            } else if (close[i] < close[i - 1]) {
+                obv -= volume[i];
+            }
+            out[i] = obv;
+        }
+        return 1;
+    }
+
+    /**
+     * EMA smoothing factor 2 / (period + 1), rounded as the BigDecimal version did
+     */
+    public static double emaMultiplier(int period) {
+        return round(2d / (period + 1), MULTIPLIER_SCALE);
+    }
+
+    /**
+     * Round half-up to the given number of decimal places (0-8)
+     */
+    public static double round(double value, int scale) {
+        double factor = POWERS_OF_TEN[scale];
+        double scaled = value * factor;
+        double rounded = scaled >= 0
+                ? Math.floor(scaled + 0.5 + HALF_TOLERANCE)
+                : -Math.floor(-scaled + 0.5 + HALF_TOLERANCE);
+        return rounded / factor;
+    }
+
+    private static double emaSeed(double[] values, int period) {
+        double sum = 0d;
+        for (int i = 0; i < period; i++) {
+            sum += values[i];
+        }
+        return round(sum / period, VALUE_SCALE);
+    }
+
+    private static void checkPeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+    }
+}
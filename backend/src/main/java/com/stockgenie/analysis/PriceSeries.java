@@ -0,0 +1,198 @@
+package com.stockgenie.analysis;
+
+import com.stockgenie.dto.StockDataDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Columnar, primitive-backed daily price series.
+ *
+ * Bars are stored in ascending date order as parallel arrays so indicator
+ * kernels can walk them without boxing or BigDecimal arithmetic. Dates are
+ * kept as epoch days. Instances are built once per request and treated as
+ * read-only afterwards; the accessor methods expose the backing arrays
+ * directly, so callers must not modify them.
+ */
+public final class PriceSeries {
+
+    private final String symbol;
+    private final int size;
+    private final int[] epochDays;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+
+    private PriceSeries(String symbol, int size, int[] epochDays, double[] open, double[] high,
+                        double[] low, double[] close, long[] volume) {
+        this.symbol = symbol;
+        this.size = size;
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * Build a series from DTOs, sorting by date first if they are not already ascending.
+     * Repeated dates keep the first bar.
+     */
+    public static PriceSeries fromStockData(String symbol, List<StockDataDto> stockData) {
+        List<StockDataDto> ordered = stockData;
+        if (!isSortedByDate(stockData)) {
+            ordered = new ArrayList<>(stockData);
+            ordered.sort(Comparator.comparing(StockDataDto::getDate));
+        }
+
+        Builder builder = builder(symbol, ordered.size());
+        LocalDate previous = null;
+        for (StockDataDto data : ordered) {
+            if (data.getDate().equals(previous)) {
+                continue;
+            }
+            previous = data.getDate();
+            builder.add(data.getDate(),
+                    toDouble(data.getOpen()),
+                    toDouble(data.getHigh()),
+                    toDouble(data.getLow()),
+                    toDouble(data.getClose()),
+                    data.getVolume() != null ? data.getVolume() : 0L);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder(String symbol, int expectedSize) {
+        return new Builder(symbol, expectedSize);
+    }
+
+    private static boolean isSortedByDate(List<StockDataDto> stockData) {
+        for (int i = 1; i < stockData.size(); i++) {
+            if (stockData.get(i).getDate().isBefore(stockData.get(i - 1).getDate())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int epochDay(int index) {
+        return epochDays[index];
+    }
+
+    public LocalDate date(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    public int[] epochDays() {
+        return epochDays;
+    }
+
+    public double[] open() {
+        return open;
+    }
+
+    public double[] high() {
+        return high;
+    }
+
+    public double[] low() {
+        return low;
+    }
+
+    public double[] close() {
+        return close;
+    }
+
+    public long[] volume() {
+        return volume;
+    }
+
+    /**
+     * Growable builder; bars must be appended in ascending date order
+     */
+    public static final class Builder {
+
+        private final String symbol;
+        private int size;
+        private int[] epochDays;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private long[] volume;
+
+        private Builder(String symbol, int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            this.symbol = symbol;
+            this.epochDays = new int[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.volume = new long[capacity];
+        }
+
+        public Builder add(LocalDate date, double open, double high, double low, double close, long volume) {
+            return add((int) date.toEpochDay(), open, high, low, close, volume);
+        }
+
+        public Builder add(int epochDay, double open, double high, double low, double close, long volume) {
+            if (size > 0 && epochDay <= epochDays[size - 1]) {
+                throw new IllegalArgumentException("Bars must be added in ascending date order: "
+                        + LocalDate.ofEpochDay(epochDay) + " after " + LocalDate.ofEpochDay(epochDays[size - 1]));
+            }
+            if (size == epochDays.length) {
+                grow();
+            }
+            this.epochDays[size] = epochDay;
+            this.open[size] = open;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.close[size] = close;
+            this.volume[size] = volume;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void grow() {
+            int capacity = epochDays.length + (epochDays.length >> 1);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+
+        public PriceSeries build() {
+            return new PriceSeries(symbol, size, epochDays, open, high, low, close, volume);
+        }
+    }
+}
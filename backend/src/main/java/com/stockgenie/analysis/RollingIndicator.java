@@ -0,0 +1,287 @@
+package com.stockgenie.analysis;
+
+/**
+ * One indicator advanced a bar at a time from a handful of scalars.
+ *
+ * Stepping a fresh instance through a series yields exactly the values the
+ * matching {@link IndicatorKernels} kernel produces for that series, so the
+ * state can be persisted after a full computation and later advanced by only
+ * the bars that arrived since. Per kind the scalars hold:
+ * <ul>
+ *   <li>SMA: ring buffer of the last {@code period} closes and its running sum</li>
+ *   <li>EMA: current EMA (seed sum while warming up)</li>
+ *   <li>RSI: Wilder average gain and loss (change sums while warming up)</li>
+ *   <li>MACD: fast and slow EMA (seed sums while warming up)</li>
+ *   <li>OBV: running on-balance volume</li>
+ * </ul>
+ */
+public final class RollingIndicator {
+
+    public enum Kind {
+        SMA,
+        EMA,
+        RSI,
+        MACD,
+        OBV
+    }
+
+    private final Kind kind;
+    private final int period;
+
+    private long barCount;
+    private int firstEpochDay;
+    private int lastEpochDay;
+    private double lastClose;
+
+    private double primary;
+    private double secondary;
+    private double seedSum;
+
+    private final double[] window;
+    private int windowPosition;
+    private double windowCompensation;
+
+    private RollingIndicator(Kind kind, int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        this.kind = kind;
+        this.period = kind == Kind.MACD ? IndicatorKernels.MACD_FAST_PERIOD : period;
+        this.window = kind == Kind.SMA ? new double[period] : null;
+    }
+
+    /**
+     * Empty state; the first {@link #advance} call anchors it
+     */
+    public static RollingIndicator create(Kind kind, int period) {
+        return new RollingIndicator(kind, period);
+    }
+
+    /**
+     * State after stepping through every bar of the series
+     */
+    public static RollingIndicator replay(Kind kind, int period, PriceSeries series) {
+        RollingIndicator indicator = new RollingIndicator(kind, period);
+        double[] close = series.close();
+        long[] volume = series.volume();
+        for (int i = 0; i < series.size(); i++) {
+            indicator.advance(series.epochDay(i), close[i], volume[i]);
+        }
+        return indicator;
+    }
+
+    /**
+     * Rebuild a previously persisted state
+     */
+    public static RollingIndicator restore(Kind kind, int period, long barCount, int firstEpochDay, int lastEpochDay,
+                                           double lastClose, double primary, double secondary, double seedSum,
+                                           double[] window, int windowPosition) {
+        RollingIndicator indicator = new RollingIndicator(kind, period);
+        indicator.barCount = barCount;
+        indicator.firstEpochDay = firstEpochDay;
+        indicator.lastEpochDay = lastEpochDay;
+        indicator.lastClose = lastClose;
+        indicator.primary = primary;
+        indicator.secondary = secondary;
+        indicator.seedSum = seedSum;
+
+        if (indicator.window != null) {
+            if (window == null || window.length != indicator.window.length) {
+                throw new IllegalArgumentException("SMA state needs a window of " + indicator.window.length + " values");
+            }
+            System.arraycopy(window, 0, indicator.window, 0, window.length);
+            indicator.windowPosition = windowPosition;
+            // Re-summing on load keeps the running sum from drifting across persisted steps
+            double sum = 0d;
+            int filled = (int) Math.min(barCount, window.length);
+            for (int i = 0; i < filled; i++) {
+                sum += window[i];
+            }
+            indicator.seedSum = sum;
+            indicator.windowCompensation = 0d;
+        }
+        return indicator;
+    }
+
+    /**
+     * Consume the next bar and return the indicator value for it, or NaN while
+     * the indicator is still warming up
+     */
+    public double advance(int epochDay, double close, long volume) {
+        if (barCount > 0 && epochDay <= lastEpochDay) {
+            throw new IllegalArgumentException("Bars must be appended in ascending date order");
+        }
+        if (barCount == 0) {
+            firstEpochDay = epochDay;
+        }
+
+        double value = switch (kind) {
+            case SMA -> advanceSma(close);
+            case EMA -> advanceEma(close);
+            case RSI -> advanceRsi(close);
+            case MACD -> advanceMacd(close);
+            case OBV -> advanceObv(close, volume);
+        };
+
+        barCount++;
+        lastEpochDay = epochDay;
+        lastClose = close;
+        return value;
+    }
+
+    private double advanceSma(double close) {
+        if (barCount >= period) {
+            addToWindowSum(-window[windowPosition]);
+        }
+        addToWindowSum(close);
+        window[windowPosition] = close;
+        windowPosition = (windowPosition + 1) % period;
+
+        return barCount + 1 >= period ? (seedSum + windowCompensation) / period : Double.NaN;
+    }
+
+    private void addToWindowSum(double value) {
+        double t = seedSum + value;
+        windowCompensation += Math.abs(seedSum) >= Math.abs(value) ? (seedSum - t) + value : (value - t) + seedSum;
+        seedSum = t;
+    }
+
+    private double advanceEma(double close) {
+        if (barCount < period) {
+            seedSum += close;
+            if (barCount + 1 < period) {
+                return Double.NaN;
+            }
+            primary = IndicatorKernels.round(seedSum / period, IndicatorKernels.VALUE_SCALE);
+            return primary;
+        }
+        double multiplier = IndicatorKernels.emaMultiplier(period);
+        primary = close * multiplier + primary * (1d - multiplier);
+        return primary;
+    }
+
+    private double advanceRsi(double close) {
+        if (barCount == 0) {
+            return Double.NaN;
+        }
+        double change = close - lastClose;
+        if (barCount <= period) {
+            if (change > 0) {
+                primary += change;
+            } else if (change < 0) {
+                secondary -= change;
+            }
+            if (barCount == period) {
+                primary = IndicatorKernels.round(primary / period, IndicatorKernels.VALUE_SCALE);
+                secondary = IndicatorKernels.round(secondary / period, IndicatorKernels.VALUE_SCALE);
+            }
+            return Double.NaN;
+        }
+
+        double gain = change > 0 ? change : 0d;
+        double loss = change < 0 ? -change : 0d;
+        primary = IndicatorKernels.round((primary * (period - 1) + gain) / period, IndicatorKernels.VALUE_SCALE);
+        secondary = IndicatorKernels.round((secondary * (period - 1) + loss) / period, IndicatorKernels.VALUE_SCALE);
+
+        double rs = secondary == 0d ? 100d : IndicatorKernels.round(primary / secondary, IndicatorKernels.VALUE_SCALE);
+        return 100d - IndicatorKernels.round(100d / (1d + rs), IndicatorKernels.VALUE_SCALE);
+    }
+
+    private double advanceMacd(double close) {
+        int fastPeriod = IndicatorKernels.MACD_FAST_PERIOD;
+        int slowPeriod = IndicatorKernels.MACD_SLOW_PERIOD;
+
+        if (barCount < fastPeriod) {
+            primary += close;
+            if (barCount + 1 == fastPeriod) {
+                primary = IndicatorKernels.round(primary / fastPeriod, IndicatorKernels.VALUE_SCALE);
+            }
+        } else {
+            double multiplier = IndicatorKernels.emaMultiplier(fastPeriod);
+            primary = close * multiplier + primary * (1d - multiplier);
+        }
+
+        if (barCount < slowPeriod) {
+            seedSum += close;
+            if (barCount + 1 < slowPeriod) {
+                return Double.NaN;
+            }
+            secondary = IndicatorKernels.round(seedSum / slowPeriod, IndicatorKernels.VALUE_SCALE);
+        } else {
+            double multiplier = IndicatorKernels.emaMultiplier(slowPeriod);
+            secondary = close * multiplier + secondary * (1d - multiplier);
+        }
+        return primary - secondary;
+    }
+
+    private double advanceObv(double close, long volume) {
+        if (barCount == 0) {
+            return Double.NaN;
+        }
+        if (close > lastClose) {
+            primary += volume;
+        } else if (close < lastClose) {
+            primary -= volume;
+        }
+        return primary;
+    }
+
+    /**
+     * Whether the last {@link #advance} call produced a value
+     */
+    public boolean isReady() {
+        return switch (kind) {
+            case SMA, EMA -> barCount >= period;
+            case RSI -> barCount >= period + 2;
+            case MACD -> barCount >= IndicatorKernels.MACD_SLOW_PERIOD;
+            case OBV -> barCount >= 2;
+        };
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public long getBarCount() {
+        return barCount;
+    }
+
+    public int getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    public int getLastEpochDay() {
+        return lastEpochDay;
+    }
+
+    public double getLastClose() {
+        return lastClose;
+    }
+
+    public double getPrimary() {
+        return primary;
+    }
+
+    public double getSecondary() {
+        return secondary;
+    }
+
+    public double getSeedSum() {
+        return seedSum;
+    }
+
+    /**
+     * Copy of the SMA ring buffer, or null for other kinds
+     */
+    public double[] getWindow() {
+        return window == null ? null : window.clone();
+    }
+
+    public int getWindowPosition() {
+        return windowPosition;
+    }
+}
@@ -0,0 +1,162 @@
+package com.stockgenie.analysis;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * US equity trading days: weekdays minus the regular NYSE holidays, with the
+ * exchange's weekend observance rules. Unscheduled closures are not known here;
+ * asking upstream for such a day just returns no bar.
+ */
+public final class TradingCalendar {
+
+    public static final ZoneId MARKET_ZONE = ZoneId.of("America/New_York");
+
+    /**
+     * Daily bars are final some time after the 16:00 close
+     */
+    private static final LocalTime DAILY_BAR_READY = LocalTime.of(17, 0);
+
+    private static final Map<Integer, Set<LocalDate>> HOLIDAYS = new ConcurrentHashMap<>();
+
+    private TradingCalendar() {
+    }
+
+    public static boolean isTradingDay(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        return !HOLIDAYS.computeIfAbsent(date.getYear(), TradingCalendar::holidays).contains(date);
+    }
+
+    /**
+     * First trading day on or after the date
+     */
+    public static LocalDate onOrAfter(LocalDate date) {
+        LocalDate day = date;
+        while (!isTradingDay(day)) {
+            day = day.plusDays(1);
+        }
+        return day;
+    }
+
+    /**
+     * Last trading day on or before the date
+     */
+    public static LocalDate onOrBefore(LocalDate date) {
+        LocalDate day = date;
+        while (!isTradingDay(day)) {
+            day = day.minusDays(1);
+        }
+        return day;
+    }
+
+    /**
+     * Whether a trading day falls strictly between the two dates
+     */
+    public static boolean hasTradingDayBetween(LocalDate before, LocalDate after) {
+        return before.plusDays(1).isBefore(after) && onOrAfter(before.plusDays(1)).isBefore(after);
+    }
+
+    /**
+     * Trading days in [from, to], counting no further than the limit
+     */
+    public static int countTradingDays(LocalDate from, LocalDate to, int limit) {
+        int count = 0;
+        for (LocalDate day = from; !day.isAfter(to) && count < limit; day = day.plusDays(1)) {
+            if (isTradingDay(day)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Latest trading day whose daily bar is final at the given instant
+     */
+    public static LocalDate lastCompletedTradingDay(ZonedDateTime now) {
+        ZonedDateTime marketNow = now.withZoneSameInstant(MARKET_ZONE);
+        LocalDate today = marketNow.toLocalDate();
+        if (isTradingDay(today) && !marketNow.toLocalTime().isBefore(DAILY_BAR_READY)) {
+            return today;
+        }
+        return onOrBefore(today.minusDays(1));
+    }
+
+    public static LocalDate lastCompletedTradingDay() {
+        return lastCompletedTradingDay(ZonedDateTime.now(MARKET_ZONE));
+    }
+
+    private static Set<LocalDate> holidays(int year) {
+        Set<LocalDate> holidays = new HashSet<>();
+
+        // New Year's Day on a Saturday is not moved back into the previous year
+        LocalDate newYear = LocalDate.of(year, Month.JANUARY, 1);
+        if (newYear.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            holidays.add(newYear.plusDays(1));
+        } else if (newYear.getDayOfWeek() != DayOfWeek.SATURDAY) {
+            holidays.add(newYear);
+        }
+
+        holidays.add(nthWeekday(year, Month.JANUARY, DayOfWeek.MONDAY, 3));   // Martin Luther King Jr. Day
+        holidays.add(nthWeekday(year, Month.FEBRUARY, DayOfWeek.MONDAY, 3));  // Washington's Birthday
+        holidays.add(easterSunday(year).minusDays(2));                        // Good Friday
+        holidays.add(LocalDate.of(year, Month.MAY, 31)
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));   // Memorial Day
+        if (year >= 2022) {
+            holidays.add(observed(LocalDate.of(year, Month.JUNE, 19)));       // Juneteenth
+        }
+        holidays.add(observed(LocalDate.of(year, Month.JULY, 4)));            // Independence Day
+        holidays.add(nthWeekday(year, Month.SEPTEMBER, DayOfWeek.MONDAY, 1)); // Labor Day
+        holidays.add(nthWeekday(year, Month.NOVEMBER, DayOfWeek.THURSDAY, 4)); // Thanksgiving
+        holidays.add(observed(LocalDate.of(year, Month.DECEMBER, 25)));       // Christmas
+
+        return holidays;
+    }
+
+    /**
+     * Saturday holidays are observed on Friday, Sunday holidays on Monday
+     */
+    private static LocalDate observed(LocalDate holiday) {
+        return switch (holiday.getDayOfWeek()) {
+            case SATURDAY -> holiday.minusDays(1);
+            case SUNDAY -> holiday.plusDays(1);
+            default -> holiday;
+        };
+    }
+
+    private static LocalDate nthWeekday(int year, Month month, DayOfWeek dayOfWeek, int n) {
+        return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(n, dayOfWeek));
+    }
+
+    /**
+     * Gregorian Easter (anonymous algorithm)
+     */
+    private static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+}
@@ -0,0 +1,136 @@
+package com.stockgenie.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-cache index of live keys, kept in one Redis sorted set per cache name
+ * with the key's expiry time as score. Writes and deletes maintain it; expired
+ * members are dropped by score on every write and when counting, so the set
+ * stays bounded by the live keys and sizes never need a key scan.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheKeyIndex {
+
+    public static final String INDEX_PREFIX = "stockgenie:cache-index:";
+    public static final List<String> TRACKED_CACHES = List.of("stockData", "technicalAnalysis", "llmAnalysis");
+
+    private static final double NO_EXPIRY = Long.MAX_VALUE;
+    private static final int BATCH_SIZE = 500;
+
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * Record a write; overwriting a key only moves its expiry. Members that have
+     * expired are trimmed in the same round trip.
+     */
+    public void added(String cacheName, byte[] key, Duration ttl) {
+        if (cacheName == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        double expiresAt = ttl == null || ttl.isZero() || ttl.isNegative()
+                ? NO_EXPIRY
+                : now + ttl.toMillis();
+        byte[] indexKey = indexKey(cacheName);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            try {
+                connection.zSetCommands().zRemRangeByScore(indexKey, Double.NEGATIVE_INFINITY, now);
+                connection.zSetCommands().zAdd(indexKey, expiresAt, key);
+            } finally {
+                connection.closePipeline();
+            }
+        } catch (Exception e) {
+            log.debug("Failed to index cache key for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    public void removed(String cacheName, byte[]... keys) {
+        if (cacheName == null || keys.length == 0) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.zSetCommands().zRem(indexKey(cacheName), keys);
+        } catch (Exception e) {
+            log.debug("Failed to unindex cache keys for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop indexed keys matching a glob pattern, walking the index with a cursor
+     */
+    public void removedMatching(String cacheName, byte[] pattern) {
+        if (cacheName == null) {
+            return;
+        }
+        byte[] indexKey = indexKey(cacheName);
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(BATCH_SIZE).build();
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<Tuple> cursor = connection.zSetCommands().zScan(indexKey, options)) {
+            List<byte[]> batch = new ArrayList<>(BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next().getValue());
+                if (batch.size() == BATCH_SIZE) {
+                    connection.zSetCommands().zRem(indexKey, batch.toArray(new byte[0][]));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                connection.zSetCommands().zRem(indexKey, batch.toArray(new byte[0][]));
+            }
+        } catch (Exception e) {
+            log.debug("Failed to unindex cache keys for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    public void clear(String cacheName) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().unlink(indexKey(cacheName));
+        } catch (Exception e) {
+            log.debug("Failed to clear cache index for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Number of live keys in the cache. Only expired members are touched, so the
+     * cost does not grow with the size of the cache or of the keyspace.
+     */
+    public long size(String cacheName) {
+        byte[] indexKey = indexKey(cacheName);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.zSetCommands().zRemRangeByScore(indexKey, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+            Long size = connection.zSetCommands().zCard(indexKey);
+            return size != null ? size : 0;
+        }
+    }
+
+    /**
+     * Cache a raw key belongs to, or null when it is not a tracked cache key
+     */
+    public static String cacheNameOf(String key) {
+        for (String cacheName : TRACKED_CACHES) {
+            if (key.startsWith(cacheName)) {
+                return cacheName;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] indexKey(String cacheName) {
+        return (INDEX_PREFIX + cacheName).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.stockgenie.cache;
+
+import com.stockgenie.resilience.DependencyGuard;
+import com.stockgenie.resilience.DependencyUnavailableException;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cache writer that sends every Redis operation of the Spring caches through the Redis
+ * circuit breaker. While the breaker is open, reads are misses and writes are skipped, so
+ * cached methods fall through to their own work at once instead of waiting out the Redis
+ * timeout; evictions still fail, as a stale entry must not be left behind unnoticed.
+ */
+public class GuardedRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+    private final DependencyGuard guard;
+
+    public GuardedRedisCacheWriter(RedisCacheWriter delegate, DependencyGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return unlessOpen(() -> delegate.get(name, key));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key, Duration ttl) {
+        return unlessOpen(() -> delegate.get(name, key, ttl));
+    }
+
+    @Override
+    public boolean supportsAsyncRetrieve() {
+        return delegate.supportsAsyncRetrieve();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+        return guard.mono(Mono.fromFuture(() -> delegate.retrieve(name, key, ttl)))
+                .onErrorResume(DependencyUnavailableException.class, e -> Mono.empty())
+                .toFuture();
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        unlessOpen(() -> {
+            delegate.put(name, key, value, ttl);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+        return guard.mono(Mono.fromFuture(() -> delegate.store(name, key, value, ttl)))
+                .onErrorResume(DependencyUnavailableException.class, e -> Mono.empty())
+                .toFuture();
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        return unlessOpen(() -> delegate.putIfAbsent(name, key, value, ttl));
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        guard.call(() -> {
+            delegate.remove(name, key);
+            return null;
+        });
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        guard.call(() -> {
+            delegate.clean(name, pattern);
+            return null;
+        });
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new GuardedRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), guard);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    /**
+     * Run the operation, or answer null without running it while the breaker is open
+     */
+    private byte[] unlessOpen(Supplier<byte[]> operation) {
+        try {
+            return guard.call(operation);
+        } catch (DependencyUnavailableException e) {
+            return null;
+        }
+    }
+}
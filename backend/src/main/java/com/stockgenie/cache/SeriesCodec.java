@@ -0,0 +1,539 @@
+package com.stockgenie.cache;
+
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.dto.TechnicalAnalysisDto;
+import com.stockgenie.entity.TechnicalAnalysis;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding for cached price series ({@code List<StockDataDto>})
+ * and indicator results ({@code Map<String, List<TechnicalAnalysisDto>>}).
+ *
+ * <p>Layout: a 5-byte header (magic {@code SG}, version, kind, flags) followed by
+ * the body, deflated when that makes it smaller. Symbol, data source and
+ * indicator type are written once per series; per row a presence mask is
+ * followed by zigzag varint deltas against the previous row: epoch days for
+ * dates and fixed-point unscaled values for prices, volumes and indicator
+ * values. Each numeric column uses the largest scale it contains, so decoded
+ * values are numerically exact. Values this layout cannot hold make
+ * {@link #encode} return null and the caller falls back to another format.
+ */
+public final class SeriesCodec {
+
+    static final byte MAGIC_0 = 'S';
+    static final byte MAGIC_1 = 'G';
+    static final byte VERSION = 1;
+
+    static final byte KIND_PRICE_SERIES = 1;
+    static final byte KIND_INDICATOR_SERIES = 2;
+
+    static final byte FLAG_DEFLATED = 1;
+
+    private static final int HEADER_LENGTH = 5;
+    private static final int COMPRESS_THRESHOLD = 256;
+    private static final int MAX_SCALE = 18;
+
+    private SeriesCodec() {
+    }
+
+    /**
+     * Encode a supported value, or return null when the value is of another shape
+     * or holds numbers that do not fit the fixed-point columns
+     */
+    public static byte[] encode(Object value) {
+        try {
+            if (value instanceof List<?> list && allInstancesOf(list, StockDataDto.class)) {
+                @SuppressWarnings("unchecked")
+                List<StockDataDto> series = (List<StockDataDto>) list;
+                ByteArrayOutputStream body = new ByteArrayOutputStream(16 + series.size() * 16);
+                return writePriceSeries(series, body) ? frame(KIND_PRICE_SERIES, body) : null;
+            }
+            if (value instanceof Map<?, ?> map && isIndicatorMap(map)) {
+                @SuppressWarnings("unchecked")
+                Map<String, List<TechnicalAnalysisDto>> indicators = (Map<String, List<TechnicalAnalysisDto>>) map;
+                ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+                return writeIndicatorSeries(indicators, body) ? frame(KIND_INDICATOR_SERIES, body) : null;
+            }
+        } catch (ArithmeticException e) {
+            // Value does not fit a long at the column scale
+            return null;
+        }
+        return null;
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    public static Object decode(byte[] bytes) {
+        if (!isEncoded(bytes)) {
+            throw new IllegalArgumentException("Not a series codec payload");
+        }
+        if (bytes[2] != VERSION) {
+            throw new IllegalArgumentException("Unsupported series codec version " + bytes[2]);
+        }
+
+        Reader in = new Reader(bytes, HEADER_LENGTH);
+        if ((bytes[4] & FLAG_DEFLATED) != 0) {
+            in = new Reader(inflate(bytes, in), 0);
+        }
+
+        return switch (bytes[3]) {
+            case KIND_PRICE_SERIES -> readPriceSeries(in);
+            case KIND_INDICATOR_SERIES -> readIndicatorSeries(in);
+            default -> throw new IllegalArgumentException("Unknown series codec kind " + bytes[3]);
+        };
+    }
+
+    private static boolean writePriceSeries(List<StockDataDto> series, ByteArrayOutputStream out) {
+        String symbol = series.isEmpty() ? null : series.get(0).getSymbol();
+        String dataSource = series.isEmpty() ? null : series.get(0).getDataSource();
+        int priceScale = 0;
+        int adjustedScale = 0;
+        for (StockDataDto bar : series) {
+            if (!Objects.equals(symbol, bar.getSymbol()) || !Objects.equals(dataSource, bar.getDataSource())) {
+                return false;
+            }
+            priceScale = Math.max(priceScale, scaleOf(bar.getOpen()));
+            priceScale = Math.max(priceScale, scaleOf(bar.getHigh()));
+            priceScale = Math.max(priceScale, scaleOf(bar.getLow()));
+            priceScale = Math.max(priceScale, scaleOf(bar.getClose()));
+            adjustedScale = Math.max(adjustedScale, scaleOf(bar.getAdjustedClose()));
+        }
+        if (priceScale > MAX_SCALE || adjustedScale > MAX_SCALE) {
+            return false;
+        }
+
+        writeVarLong(out, series.size());
+        writeString(out, symbol);
+        writeString(out, dataSource);
+        out.write(priceScale);
+        out.write(adjustedScale);
+
+        long lastDay = 0;
+        long lastOpen = 0;
+        long lastHigh = 0;
+        long lastLow = 0;
+        long lastClose = 0;
+        long lastVolume = 0;
+        long lastAdjusted = 0;
+        for (StockDataDto bar : series) {
+            out.write(mask(bar.getDate(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(),
+                    bar.getVolume(), bar.getAdjustedClose()));
+            if (bar.getDate() != null) {
+                long day = bar.getDate().toEpochDay();
+                writeDelta(out, day, lastDay);
+                lastDay = day;
+            }
+            if (bar.getOpen() != null) {
+                long open = unscaled(bar.getOpen(), priceScale);
+                writeDelta(out, open, lastOpen);
+                lastOpen = open;
+            }
+            if (bar.getHigh() != null) {
+                long high = unscaled(bar.getHigh(), priceScale);
+                writeDelta(out, high, lastHigh);
+                lastHigh = high;
+            }
+            if (bar.getLow() != null) {
+                long low = unscaled(bar.getLow(), priceScale);
+                writeDelta(out, low, lastLow);
+                lastLow = low;
+            }
+            if (bar.getClose() != null) {
+                long close = unscaled(bar.getClose(), priceScale);
+                writeDelta(out, close, lastClose);
+                lastClose = close;
+            }
+            if (bar.getVolume() != null) {
+                writeDelta(out, bar.getVolume(), lastVolume);
+                lastVolume = bar.getVolume();
+            }
+            if (bar.getAdjustedClose() != null) {
+                long adjusted = unscaled(bar.getAdjustedClose(), adjustedScale);
+                writeDelta(out, adjusted, lastAdjusted);
+                lastAdjusted = adjusted;
+            }
+        }
+        return true;
+    }
+
+    private static List<StockDataDto> readPriceSeries(Reader in) {
+        int count = in.readCount();
+        String symbol = in.readString();
+        String dataSource = in.readString();
+        int priceScale = in.readByte();
+        int adjustedScale = in.readByte();
+
+        List<StockDataDto> series = new ArrayList<>(count);
+        long lastDay = 0;
+        long lastOpen = 0;
+        long lastHigh = 0;
+        long lastLow = 0;
+        long lastClose = 0;
+        long lastVolume = 0;
+        long lastAdjusted = 0;
+        for (int i = 0; i < count; i++) {
+            int mask = in.readByte();
+            StockDataDto bar = new StockDataDto();
+            bar.setSymbol(symbol);
+            bar.setDataSource(dataSource);
+            if ((mask & 1) != 0) {
+                lastDay = in.readDelta(lastDay);
+                bar.setDate(LocalDate.ofEpochDay(lastDay));
+            }
+            if ((mask & 1 << 1) != 0) {
+                lastOpen = in.readDelta(lastOpen);
+                bar.setOpen(BigDecimal.valueOf(lastOpen, priceScale));
+            }
+            if ((mask & 1 << 2) != 0) {
+                lastHigh = in.readDelta(lastHigh);
+                bar.setHigh(BigDecimal.valueOf(lastHigh, priceScale));
+            }
+            if ((mask & 1 << 3) != 0) {
+                lastLow = in.readDelta(lastLow);
+                bar.setLow(BigDecimal.valueOf(lastLow, priceScale));
+            }
+            if ((mask & 1 << 4) != 0) {
+                lastClose = in.readDelta(lastClose);
+                bar.setClose(BigDecimal.valueOf(lastClose, priceScale));
+            }
+            if ((mask & 1 << 5) != 0) {
+                lastVolume = in.readDelta(lastVolume);
+                bar.setVolume(lastVolume);
+            }
+            if ((mask & 1 << 6) != 0) {
+                lastAdjusted = in.readDelta(lastAdjusted);
+                bar.setAdjustedClose(BigDecimal.valueOf(lastAdjusted, adjustedScale));
+            }
+            series.add(bar);
+        }
+        return series;
+    }
+
+    private static boolean writeIndicatorSeries(Map<String, List<TechnicalAnalysisDto>> indicators,
+                                                ByteArrayOutputStream out) {
+        writeVarLong(out, indicators.size());
+        for (Map.Entry<String, List<TechnicalAnalysisDto>> entry : indicators.entrySet()) {
+            List<TechnicalAnalysisDto> rows = entry.getValue();
+            TechnicalAnalysisDto first = rows.isEmpty() ? null : rows.get(0);
+            String symbol = first != null ? first.getSymbol() : null;
+            TechnicalAnalysis.IndicatorType type = first != null ? first.getIndicatorType() : null;
+            Integer period = first != null ? first.getPeriod() : null;
+
+            int valueScale = 0;
+            int signalScale = 0;
+            int histogramScale = 0;
+            for (TechnicalAnalysisDto row : rows) {
+                if (!Objects.equals(symbol, row.getSymbol()) || type != row.getIndicatorType()
+                        || !Objects.equals(period, row.getPeriod())) {
+                    return false;
+                }
+                valueScale = Math.max(valueScale, scaleOf(row.getValue()));
+                signalScale = Math.max(signalScale, scaleOf(row.getSignal()));
+                histogramScale = Math.max(histogramScale, scaleOf(row.getHistogram()));
+            }
+            if (valueScale > MAX_SCALE || signalScale > MAX_SCALE || histogramScale > MAX_SCALE) {
+                return false;
+            }
+
+            writeString(out, entry.getKey());
+            writeVarLong(out, rows.size());
+            writeString(out, symbol);
+            writeString(out, type != null ? type.name() : null);
+            out.write(period != null ? 1 : 0);
+            if (period != null) {
+                writeVarLong(out, zigzag(period));
+            }
+            out.write(valueScale);
+            out.write(signalScale);
+            out.write(histogramScale);
+
+            long lastDay = 0;
+            long lastValue = 0;
+            long lastSignal = 0;
+            long lastHistogram = 0;
+            for (TechnicalAnalysisDto row : rows) {
+                out.write(mask(row.getDate(), row.getValue(), row.getSignal(), row.getHistogram(), row.getMetadata()));
+                if (row.getDate() != null) {
+                    long day = row.getDate().toEpochDay();
+                    writeDelta(out, day, lastDay);
+                    lastDay = day;
+                }
+                if (row.getValue() != null) {
+                    long value = unscaled(row.getValue(), valueScale);
+                    writeDelta(out, value, lastValue);
+                    lastValue = value;
+                }
+                if (row.getSignal() != null) {
+                    long signal = unscaled(row.getSignal(), signalScale);
+                    writeDelta(out, signal, lastSignal);
+                    lastSignal = signal;
+                }
+                if (row.getHistogram() != null) {
+                    long histogram = unscaled(row.getHistogram(), histogramScale);
+                    writeDelta(out, histogram, lastHistogram);
+                    lastHistogram = histogram;
+                }
+                if (row.getMetadata() != null) {
+                    writeString(out, row.getMetadata());
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, List<TechnicalAnalysisDto>> readIndicatorSeries(Reader in) {
+        int entries = in.readCount();
+        Map<String, List<TechnicalAnalysisDto>> indicators = new LinkedHashMap<>();
+        for (int e = 0; e < entries; e++) {
+            String key = in.readString();
+            int count = in.readCount();
+            String symbol = in.readString();
+            String typeName = in.readString();
+            TechnicalAnalysis.IndicatorType type = typeName != null ? TechnicalAnalysis.IndicatorType.valueOf(typeName) : null;
+            Integer period = in.readByte() != 0 ? (int) unzigzag(in.readVarLong()) : null;
+            int valueScale = in.readByte();
+            int signalScale = in.readByte();
+            int histogramScale = in.readByte();
+
+            List<TechnicalAnalysisDto> rows = new ArrayList<>(count);
+            long lastDay = 0;
+            long lastValue = 0;
+            long lastSignal = 0;
+            long lastHistogram = 0;
+            for (int i = 0; i < count; i++) {
+                int mask = in.readByte();
+                TechnicalAnalysisDto row = new TechnicalAnalysisDto();
+                row.setSymbol(symbol);
+                row.setIndicatorType(type);
+                row.setPeriod(period);
+                if ((mask & 1) != 0) {
+                    lastDay = in.readDelta(lastDay);
+                    row.setDate(LocalDate.ofEpochDay(lastDay));
+                }
+                if ((mask & 1 << 1) != 0) {
+                    lastValue = in.readDelta(lastValue);
+                    row.setValue(BigDecimal.valueOf(lastValue, valueScale));
+                }
+                if ((mask & 1 << 2) != 0) {
+                    lastSignal = in.readDelta(lastSignal);
+                    row.setSignal(BigDecimal.valueOf(lastSignal, signalScale));
+                }
+                if ((mask & 1 << 3) != 0) {
+                    lastHistogram = in.readDelta(lastHistogram);
+                    row.setHistogram(BigDecimal.valueOf(lastHistogram, histogramScale));
+                }
+                if ((mask & 1 << 4) != 0) {
+                    row.setMetadata(in.readString());
+                }
+                rows.add(row);
+            }
+            indicators.put(key, rows);
+        }
+        return indicators;
+    }
+
+    private static byte[] frame(byte kind, ByteArrayOutputStream body) {
+        byte[] raw = body.toByteArray();
+        byte flags = 0;
+        byte[] payload = raw;
+        if (raw.length >= COMPRESS_THRESHOLD) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < raw.length) {
+                flags = FLAG_DEFLATED;
+                payload = deflated;
+            }
+        }
+
+        byte[] framed = new byte[HEADER_LENGTH + payload.length];
+        framed[0] = MAGIC_0;
+        framed[1] = MAGIC_1;
+        framed[2] = VERSION;
+        framed[3] = kind;
+        framed[4] = flags;
+        System.arraycopy(payload, 0, framed, HEADER_LENGTH, payload.length);
+        return framed;
+    }
+
+    /**
+     * Raw length as a varint, then the zlib stream
+     */
+    private static byte[] deflate(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        writeVarLong(out, raw.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes, Reader in) {
+        int rawLength = in.readCount();
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, in.position, bytes.length - in.position);
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException("Truncated series codec payload");
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt series codec payload", e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private static boolean allInstancesOf(List<?> list, Class<?> type) {
+        for (Object element : list) {
+            if (!type.isInstance(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIndicatorMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof List<?> list)
+                    || !allInstancesOf(list, TechnicalAnalysisDto.class)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mask(Object... fields) {
+        int mask = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private static int scaleOf(BigDecimal value) {
+        return value != null ? Math.max(0, value.scale()) : 0;
+    }
+
+    private static long unscaled(BigDecimal value, int scale) {
+        // Scale is the column maximum, so no rounding happens; overflow throws ArithmeticException
+        return value.setScale(scale).unscaledValue().longValueExact();
+    }
+
+    private static void writeDelta(ByteArrayOutputStream out, long value, long previous) {
+        writeVarLong(out, zigzag(value - previous));
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Cursor over an encoded body
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated series codec payload");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in series codec payload");
+        }
+
+        int readCount() {
+            long count = readVarLong();
+            if (count < 0 || count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid count in series codec payload: " + count);
+            }
+            return (int) count;
+        }
+
+        long readDelta(long previous) {
+            return previous + unzigzag(readVarLong());
+        }
+
+        String readString() {
+            int length = readCount();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length > bytes.length - position) {
+                throw new IllegalArgumentException("Truncated series codec payload");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
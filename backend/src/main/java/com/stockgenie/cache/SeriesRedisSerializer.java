@@ -0,0 +1,41 @@
+package com.stockgenie.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Writes price and indicator series with {@link SeriesCodec} and everything
+ * else with the fallback serializer. Payloads without the codec header,
+ * including entries written before the codec existed, are read by the fallback.
+ */
+public class SeriesRedisSerializer implements RedisSerializer<Object> {
+
+    private final RedisSerializer<Object> fallback;
+
+    public SeriesRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value != null) {
+            byte[] encoded = SeriesCodec.encode(value);
+            if (encoded != null) {
+                return encoded;
+            }
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (!SeriesCodec.isEncoded(bytes)) {
+            return fallback.deserialize(bytes);
+        }
+        try {
+            return SeriesCodec.decode(bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not decode cached series: " + e.getMessage(), e);
+        }
+    }
+}
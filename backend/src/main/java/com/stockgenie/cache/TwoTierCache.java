@@ -0,0 +1,149 @@
+package com.stockgenie.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache that serves reads from an in-process Caffeine map (L1) and falls back
+ * to the shared Redis cache (L2). Writes go to both tiers; evictions clear both
+ * and are broadcast so other nodes drop their L1 copies.
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationPublisher publisher;
+
+    public TwoTierCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        Cache remote, CacheInvalidationPublisher publisher) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            local.put(key, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            return (T) value;
+        }
+
+        T loaded = remote.get(key, valueLoader);
+        if (loaded != null) {
+            local.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        if (value != null) {
+            local.put(key, value);
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        Object effective = existing != null ? existing.get() : value;
+        if (effective != null) {
+            local.put(key, effective);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(key);
+        publisher.publishEvict(name, key.toString());
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        publisher.publishClear(name);
+    }
+
+    /**
+     * Evict every entry whose key starts with the prefix, in both tiers and on all nodes
+     */
+    public void evictByPrefix(String prefix) {
+        if (remote instanceof RedisCache redisCache) {
+            redisCache.clear(prefix + "*");
+        } else {
+            remote.clear();
+        }
+        invalidateLocalByPrefix(prefix);
+        publisher.publishEvictPrefix(name, prefix);
+    }
+
+    void invalidateLocal(String key) {
+        local.invalidate(key);
+    }
+
+    void invalidateLocalByPrefix(String prefix) {
+        local.asMap().keySet().removeIf(key -> key.toString().startsWith(prefix));
+    }
+
+    void invalidateLocalAll() {
+        local.invalidateAll();
+    }
+
+    /**
+     * Broadcasts L1 invalidations to the other nodes
+     */
+    public interface CacheInvalidationPublisher {
+
+        void publishEvict(String cacheName, String key);
+
+        void publishEvictPrefix(String cacheName, String prefix);
+
+        void publishClear(String cacheName);
+    }
+}
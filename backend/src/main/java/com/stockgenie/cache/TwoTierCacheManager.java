@@ -0,0 +1,165 @@
+package com.stockgenie.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the Redis cache manager and puts a Caffeine near cache in front of the
+ * configured caches. L1 invalidations are fanned out over Redis pub/sub; every
+ * node subscribes to the channel and drops the affected local entries.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, TwoTierCache.CacheInvalidationPublisher {
+
+    public static final String INVALIDATION_CHANNEL = "stockgenie:cache-invalidation";
+
+    private static final char SEPARATOR = '|';
+    private static final String OP_EVICT = "E";
+    private static final String OP_EVICT_PREFIX = "P";
+    private static final String OP_CLEAR = "C";
+
+    private final CacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> nearCacheNames;
+    private final long maxWeight;
+    private final Duration nearTtl;
+    private final Map<String, Duration> remoteTtls;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager redisCacheManager, StringRedisTemplate redisTemplate,
+                               MeterRegistry meterRegistry, Set<String> nearCacheNames, long maxWeight,
+                               Duration nearTtl, Map<String, Duration> remoteTtls) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.nearCacheNames = nearCacheNames;
+        this.maxWeight = maxWeight;
+        this.nearTtl = nearTtl;
+        this.remoteTtls = remoteTtls;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+
+    private Cache createCache(String name) {
+        Cache remote = redisCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        if (remote instanceof RedisCache redisCache) {
+            new RedisCacheMetrics(redisCache, Tags.of("tier", "l2")).bindTo(meterRegistry);
+        }
+        if (!nearCacheNames.contains(name)) {
+            return remote;
+        }
+
+        // Never keep an entry locally for longer than Redis would
+        Duration ttl = nearTtl;
+        Duration remoteTtl = remoteTtls.get(name);
+        if (remoteTtl != null && !remoteTtl.isZero() && remoteTtl.compareTo(ttl) < 0) {
+            ttl = remoteTtl;
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Object key, Object value) -> weigh(value))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, Tags.of("tier", "l1"));
+
+        log.info("Near cache enabled for {} (max weight {}, ttl {})", name, maxWeight, ttl);
+        return new TwoTierCache(name, local, remote, this);
+    }
+
+    /**
+     * Weigh entries by the number of rows they hold so one long series does not count as one small entry
+     */
+    private static int weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof Map<?, ?> map) {
+            int weight = 0;
+            for (Object element : map.values()) {
+                weight += weigh(element);
+            }
+            return Math.max(1, weight);
+        }
+        return 1;
+    }
+
+    @Override
+    public void publishEvict(String cacheName, String key) {
+        publish(OP_EVICT, cacheName, key);
+    }
+
+    @Override
+    public void publishEvictPrefix(String cacheName, String prefix) {
+        publish(OP_EVICT_PREFIX, cacheName, prefix);
+    }
+
+    @Override
+    public void publishClear(String cacheName) {
+        publish(OP_CLEAR, cacheName, "");
+    }
+
+    private void publish(String op, String cacheName, String key) {
+        String message = nodeId + SEPARATOR + op + SEPARATOR + cacheName + SEPARATOR + key;
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            // Other nodes fall back to their near cache TTL
+            log.warn("Failed to publish cache invalidation for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Apply an invalidation published by another node to the local tier
+     */
+    public void onInvalidationMessage(String message) {
+        String[] parts = message.split("\\|", 4);
+        if (parts.length < 4) {
+            log.warn("Ignoring malformed cache invalidation message: {}", message);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+        if (!(caches.get(parts[2]) instanceof TwoTierCache cache)) {
+            return;
+        }
+
+        switch (parts[1]) {
+            case OP_EVICT -> cache.invalidateLocal(parts[3]);
+            case OP_EVICT_PREFIX -> cache.invalidateLocalByPrefix(parts[3]);
+            case OP_CLEAR -> cache.invalidateLocalAll();
+            default -> log.warn("Ignoring unknown cache invalidation op: {}", parts[1]);
+        }
+        log.debug("Applied remote cache invalidation {} on {}", parts[1], parts[2]);
+    }
+}
@@ -4,6 +4,11 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "app")
@@ -11,12 +16,27 @@ public class AppConfig {
     
     private Cache cache = new Cache();
     private Analysis analysis = new Analysis();
+    private Prefetch prefetch = new Prefetch();
+    private Resilience resilience = new Resilience();
+    private Http http = new Http();
     
     @Data
     public static class Cache {
         private int stockDataTtl;
         private int technicalAnalysisTtl;
         private int llmAnalysisTtl;
+        private Near near = new Near();
+        
+        /**
+         * In-process L1 cache kept in front of Redis for the hottest caches
+         */
+        @Data
+        public static class Near {
+            private boolean enabled = true;
+            private List<String> caches = List.of("stockData", "technicalAnalysis");
+            private long maxWeight = 200_000; // cached rows across all entries of one cache
+            private int ttl = 300; // seconds
+        }
     }
     
     @Data
@@ -24,5 +44,70 @@ public class AppConfig {
         private int defaultPeriod;
         private int maxPeriod;
         private int batchSize;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    
+    /**
+     * Refreshing the most requested symbols off-peak with the API budget interactive requests leave over
+     */
+    @Data
+    public static class Prefetch {
+        private boolean enabled = true;
+        private long interval = 600_000; // ms between runs
+        private LocalTime offPeakStart = LocalTime.of(18, 0);
+        private LocalTime offPeakEnd = LocalTime.of(8, 0);
+        private String zone = "America/New_York";
+        private int reservedCalls = 10; // daily calls per provider never spent by the prefetcher
+        private int demandDays = 7; // how far back demand is counted
+        private int historyDays = 100; // range kept complete for each prefetched symbol
+        private int maxSymbols = 50; // most requested symbols considered per run
+    }
+    
+    /**
+     * Circuit breaker and bulkhead per upstream dependency, keyed by dependency name
+     */
+    @Data
+    public static class Resilience {
+        private boolean enabled = true;
+        private Map<String, Guard> dependencies = new LinkedHashMap<>();
+        
+        public Guard getGuard(String dependency) {
+            return dependencies.getOrDefault(dependency, new Guard());
+        }
+        
+        @Data
+        public static class Guard {
+            private int failureRateThreshold = 50; // percent of the window that opens the breaker
+            private int slidingWindowSize = 20; // most recent calls the failure rate is taken over
+            private int minimumCalls = 5; // calls in the window before the rate counts
+            private long openDuration = 30_000; // ms calls are turned away before trial calls
+            private int halfOpenCalls = 3; // trial calls that must all succeed to close again
+            private int maxConcurrent = 0; // calls running at once, 0 for no limit
+        }
+    }
+    
+    /**
+     * Pooled HTTP client per upstream, keyed by upstream name
+     */
+    @Data
+    public static class Http {
+        private Map<String, Client> clients = new LinkedHashMap<>();
+        
+        public Client getClient(String upstream) {
+            return clients.getOrDefault(upstream, new Client());
+        }
+        
+        @Data
+        public static class Client {
+            private int maxConnections = 16;
+            private int pendingAcquireMaxCount = 32; // calls waiting for a connection, -1 for no limit
+            private long pendingAcquireTimeout = 10_000; // ms a call waits for a connection
+            private long maxIdleTime = 30_000; // ms an unused connection is kept open
+            private long maxLifeTime = 300_000; // ms before a connection is retired
+            private long evictInterval = 30_000; // ms between sweeps for idle and retired connections
+            private int connectTimeout = 5_000; // ms
+            private long responseTimeout = 30_000; // ms allowed between reads of a response
+            private boolean keepAlive = true; // reuse connections across requests
+        }
     }
 }
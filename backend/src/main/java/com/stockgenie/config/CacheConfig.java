@@ -0,0 +1,117 @@
+package com.stockgenie.config;
+
+import com.stockgenie.cache.CacheKeyIndex;
+import com.stockgenie.cache.GuardedRedisCacheWriter;
+import com.stockgenie.cache.IndexingRedisCacheWriter;
+import com.stockgenie.cache.SeriesRedisSerializer;
+import com.stockgenie.cache.TwoTierCacheManager;
+import com.stockgenie.resilience.DependencyGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Redis-backed caching with an in-process near cache (L1) in front of Redis (L2)
+ * for the hot read paths. Only active when {@code spring.cache.type=redis}.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+@ConditionalOnProperty(prefix = "spring.cache", name = "type", havingValue = "redis")
+public class CacheConfig {
+
+    @Bean
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                            StringRedisTemplate stringRedisTemplate,
+                                            CacheProperties cacheProperties,
+                                            AppConfig appConfig,
+                                            CacheKeyIndex cacheKeyIndex,
+                                            SeriesRedisSerializer cacheValueSerializer,
+                                            DependencyGuards dependencyGuards,
+                                            MeterRegistry meterRegistry) {
+        RedisCacheConfiguration defaults = defaultCacheConfiguration(cacheProperties.getRedis(), cacheValueSerializer);
+
+        Map<String, Duration> ttls = new HashMap<>();
+        putTtl(ttls, "stockData", appConfig.getCache().getStockDataTtl());
+        putTtl(ttls, "technicalAnalysis", appConfig.getCache().getTechnicalAnalysisTtl());
+        putTtl(ttls, "llmAnalysis", appConfig.getCache().getLlmAnalysisTtl());
+
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        for (String cacheName : cacheProperties.getCacheNames()) {
+            Duration ttl = ttls.get(cacheName);
+            perCache.put(cacheName, ttl != null ? defaults.entryTtl(ttl) : defaults);
+        }
+
+        // Writes go through the key index so cache sizes can be read without scanning Redis,
+        // and everything through the Redis circuit breaker so an outage turns into cache misses
+        RedisCacheWriter cacheWriter = new GuardedRedisCacheWriter(new IndexingRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000)), cacheKeyIndex),
+                dependencyGuards.guard(DependencyGuards.REDIS));
+        // Not a bean of its own: the two-tier manager registers the per-tier cache metrics itself
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
+                .cacheDefaults(defaults)
+                .withInitialCacheConfigurations(perCache)
+                .enableStatistics()
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        AppConfig.Cache.Near near = appConfig.getCache().getNear();
+        return new TwoTierCacheManager(redisCacheManager, stringRedisTemplate, meterRegistry,
+                near.isEnabled() ? new HashSet<>(near.getCaches()) : new HashSet<>(),
+                near.getMaxWeight(), Duration.ofSeconds(near.getTtl()), ttls);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(TwoTierCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+
+    private static RedisCacheConfiguration defaultCacheConfiguration(CacheProperties.Redis redisProperties,
+                                                                     SeriesRedisSerializer valueSerializer) {
+        // Series codec for stockData/technicalAnalysis, JSON otherwise, so cached DTOs need not be Serializable
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer));
+        if (redisProperties.getTimeToLive() != null) {
+            config = config.entryTtl(redisProperties.getTimeToLive());
+        }
+        if (redisProperties.getKeyPrefix() != null) {
+            config = config.prefixCacheNameWith(redisProperties.getKeyPrefix());
+        }
+        if (!redisProperties.isCacheNullValues()) {
+            config = config.disableCachingNullValues();
+        }
+        if (!redisProperties.isUseKeyPrefix()) {
+            config = config.disableKeyPrefix();
+        }
+        return config;
+    }
+
+    private static void putTtl(Map<String, Duration> ttls, String cacheName, int seconds) {
+        if (seconds > 0) {
+            ttls.put(cacheName, Duration.ofSeconds(seconds));
+        }
+    }
+}
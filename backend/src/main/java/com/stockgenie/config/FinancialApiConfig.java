@@ -12,6 +12,8 @@ public class FinancialApiConfig {
     private String provider;
     private AlphaVantage alphaVantage = new AlphaVantage();
     private Eodhd eodhd = new Eodhd();
+    private Limiter limiter = new Limiter();
+    private Hedging hedging = new Hedging();
     
     @Data
     public static class AlphaVantage {
@@ -24,6 +26,7 @@ public class FinancialApiConfig {
     public static class Eodhd {
         private String baseUrl;
         private String apiKey;
+        private String exchange = "US"; // appended to symbols without an exchange suffix
         private RateLimit rateLimit = new RateLimit();
     }
     
@@ -32,4 +35,23 @@ public class FinancialApiConfig {
         private int callsPerMinute;
         private int callsPerDay;
     }
+    
+    /**
+     * Where the per-provider call budgets are kept
+     */
+    @Data
+    public static class Limiter {
+        private boolean shared = true; // Redis-backed budget shared by all replicas, else per JVM
+        private long fallbackCooldown = 30000; // ms to stay on the local limiter after a Redis failure
+    }
+    
+    /**
+     * Asking the next provider as well when the first one is slow to answer
+     */
+    @Data
+    public static class Hedging {
+        private boolean enabled = true;
+        private long delay = 3000; // ms without an answer before the next provider is asked too
+        private int minRemainingCalls = 5; // daily calls the next provider must have left to be hedged to
+    }
 }
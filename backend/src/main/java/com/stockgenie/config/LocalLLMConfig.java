@@ -16,4 +16,34 @@ public class LocalLLMConfig {
     private int maxTokens;
     private double temperature;
     private double topP;
+    
+    /**
+     * Generations sent to Ollama at once; one local instance runs them one after another anyway
+     */
+    private int maxInFlight = 1;
+    private Queue queue = new Queue();
+    private Batch batch = new Batch();
+    
+    @Data
+    public static class Queue {
+        private int maxInteractive = 8;
+        private int maxBatch = 32;
+        private long maxWait = 60000; // milliseconds
+    }
+    
+    @Data
+    public static class Batch {
+        /**
+         * How long Ollama keeps the model loaded after a batch request, e.g. "30m"
+         */
+        private String keepAlive = "30m";
+        /**
+         * Requests prepared beyond max-in-flight, so the next one is queued when a slot frees up
+         */
+        private int lookahead = 1;
+        /**
+         * Attempts per symbol when the LLM queue turns the request away
+         */
+        private int maxAttempts = 5;
+    }
 }
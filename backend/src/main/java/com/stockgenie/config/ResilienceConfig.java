@@ -0,0 +1,32 @@
+package com.stockgenie.config;
+
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.resilience.GuardedDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the Postgres circuit breaker in front of every data source. The other dependencies
+ * are guarded where they are called.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public static BeanPostProcessor guardedDataSourcePostProcessor(ObjectProvider<DependencyGuards> dependencyGuards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof GuardedDataSource)) {
+                    return new GuardedDataSource(dataSource,
+                            () -> dependencyGuards.getObject().guard(DependencyGuards.POSTGRES));
+                }
+                return bean;
+            }
+        };
+    }
+}
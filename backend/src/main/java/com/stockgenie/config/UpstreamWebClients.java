@@ -0,0 +1,123 @@
+package com.stockgenie.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ChannelOption;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * One WebClient per upstream, built once and kept, each on its own connection pool sized by
+ * {@code app.http.clients.<name>}. Connections are reused across calls, and a slow upstream
+ * can only tie up the connections of its own pool. Pool use is exported per upstream and
+ * remote address as {@code stockgenie.http.client.pool.*} gauges.
+ */
+public class UpstreamWebClients {
+
+    private final WebClient.Builder webClientBuilder;
+    private final AppConfig appConfig;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, WebClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionProvider> pools = new ConcurrentHashMap<>();
+
+    public UpstreamWebClients(WebClient.Builder webClientBuilder, AppConfig appConfig, MeterRegistry meterRegistry) {
+        this.webClientBuilder = webClientBuilder;
+        this.appConfig = appConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public WebClient client(String upstream) {
+        return clients.computeIfAbsent(upstream, this::create);
+    }
+
+    /**
+     * Close every pool's connections on shutdown
+     */
+    public void close() {
+        pools.values().forEach(ConnectionProvider::dispose);
+    }
+
+    private WebClient create(String upstream) {
+        AppConfig.Http.Client settings = appConfig.getHttp().getClient(upstream);
+        ConnectionProvider pool = ConnectionProvider.builder("stockgenie-" + upstream)
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(settings.getPendingAcquireTimeout()))
+                .maxIdleTime(Duration.ofMillis(settings.getMaxIdleTime()))
+                .maxLifeTime(Duration.ofMillis(settings.getMaxLifeTime()))
+                .evictInBackground(Duration.ofMillis(settings.getEvictInterval()))
+                .metrics(true, () -> new PoolMeters(upstream))
+                .build();
+        pools.put(upstream, pool);
+
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.getConnectTimeout())
+                .option(ChannelOption.SO_KEEPALIVE, settings.isKeepAlive())
+                .keepAlive(settings.isKeepAlive())
+                .responseTimeout(Duration.ofMillis(settings.getResponseTimeout()));
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Gauges for one pool per remote address, removed again when the pool is disposed
+     */
+    private final class PoolMeters implements ConnectionProvider.MeterRegistrar {
+
+        private final String upstream;
+        private final Map<String, List<Meter>> registered = new ConcurrentHashMap<>();
+
+        private PoolMeters(String upstream) {
+            this.upstream = upstream;
+        }
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            Tags tags = Tags.of("upstream", upstream, "remote", describe(remoteAddress));
+            registered.put(id, List.of(
+                    gauge("active", "Connections lent out to requests", metrics, ConnectionPoolMetrics::acquiredSize, tags),
+                    gauge("idle", "Open connections waiting to be reused", metrics, ConnectionPoolMetrics::idleSize, tags),
+                    gauge("total", "Open connections, active and idle", metrics, ConnectionPoolMetrics::allocatedSize, tags),
+                    gauge("pending", "Requests waiting for a connection", metrics, ConnectionPoolMetrics::pendingAcquireSize, tags),
+                    gauge("max", "Most connections the pool opens", metrics, ConnectionPoolMetrics::maxAllocatedSize, tags)));
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            List<Meter> meters = registered.remove(id);
+            if (meters != null) {
+                meters.forEach(meterRegistry::remove);
+            }
+        }
+
+        private Meter gauge(String name, String description, ConnectionPoolMetrics metrics,
+                            ToDoubleFunction<ConnectionPoolMetrics> value, Tags tags) {
+            return Gauge.builder("stockgenie.http.client.pool." + name, metrics, value)
+                    .description(description)
+                    .tags(tags)
+                    .strongReference(true)
+                    .register(meterRegistry);
+        }
+
+        private static String describe(SocketAddress address) {
+            if (address instanceof InetSocketAddress inet) {
+                return inet.getHostString() + ":" + inet.getPort();
+            }
+            return String.valueOf(address);
+        }
+    }
+}
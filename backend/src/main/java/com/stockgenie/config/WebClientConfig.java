@@ -1,11 +1,10 @@
 package com.stockgenie.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
-import java.time.Duration;
-
 @Configuration
 public class WebClientConfig {
     
@@ -17,6 +16,15 @@ public class WebClientConfig {
                 .mutate();
     }
     
+    /**
+     * Pooled clients for Alpha Vantage, EODHD and Ollama
+     */
+    @Bean
+    public UpstreamWebClients upstreamWebClients(WebClient.Builder webClientBuilder, AppConfig appConfig,
+                                                 MeterRegistry meterRegistry) {
+        return new UpstreamWebClients(webClientBuilder, appConfig, meterRegistry);
+    }
+    
     @Bean
     public WebClient webClient(WebClient.Builder webClientBuilder) {
         return webClientBuilder
@@ -1,11 +1,18 @@
 package com.stockgenie.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.dto.ColumnarSeries;
 import com.stockgenie.dto.TechnicalAnalysisDto;
+import com.stockgenie.service.BatchAnalysisService;
 import com.stockgenie.service.TechnicalAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,13 +23,39 @@ public class AnalysisController {
     @Autowired
     private TechnicalAnalysisService technicalAnalysisService;
 
+    @Autowired
+    private BatchAnalysisService batchAnalysisService;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/{symbol}/technical")
-    public ResponseEntity<Map<String, Object>> getTechnicalAnalysis(
+    public ResponseEntity<?> getTechnicalAnalysis(
             @PathVariable String symbol,
             @RequestParam(defaultValue = "30") int days,
-            @RequestParam(required = false) List<String> indicators) {
+            @RequestParam(required = false) List<String> indicators,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
             Map<String, List<TechnicalAnalysisDto>> analysis = technicalAnalysisService.calculateTechnicalIndicators(symbol, days, indicators);
+            MediaType columnar = ColumnarResponses.requested(format, accept);
+            if (columnar != null) {
+                Map<String, ColumnarSeries> series = new LinkedHashMap<>();
+                analysis.forEach((name, rows) -> series.put(name, ColumnarSeries.fromIndicator(rows)));
+                if (columnar.equals(ColumnarResponses.COLUMNAR_JSON)) {
+                    return ResponseEntity.ok().contentType(columnar).body(Map.of(
+                        "symbol", symbol,
+                        "days", days,
+                        "analysis", series
+                    ));
+                }
+                byte[] body = ColumnarResponses.binary(Map.of("symbol", symbol, "days", days), series, objectMapper);
+                return ResponseEntity.ok().contentType(columnar).body(body);
+            }
+
             Map<String, Object> response = Map.of(
                 "symbol", symbol,
                 "days", days,
@@ -70,4 +103,46 @@ public class AnalysisController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> analyzeBatch(@RequestBody Map<String, Object> request) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<String> symbols = (List<String>) request.getOrDefault("symbols", List.of());
+            @SuppressWarnings("unchecked")
+            List<String> indicators = (List<String>) request.getOrDefault("indicators", List.of());
+            int days = (Integer) request.getOrDefault("days", appConfig.getAnalysis().getDefaultPeriod());
+
+            if (symbols.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "At least one symbol is required"));
+            }
+            if (days <= 0 || days > appConfig.getAnalysis().getMaxPeriod()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "days must be between 1 and " + appConfig.getAnalysis().getMaxPeriod()
+                ));
+            }
+            if (indicators.isEmpty()) {
+                @SuppressWarnings("unchecked")
+                List<String> available = (List<String>) technicalAnalysisService.getAvailableIndicators().get("availableIndicators");
+                indicators = available;
+            }
+
+            BatchAnalysisService.BatchAnalysisResult result = batchAnalysisService.analyzeSymbols(symbols, indicators, days);
+
+            Map<String, Object> response = Map.of(
+                "days", days,
+                "indicators", indicators,
+                "requested", result.getRequested(),
+                "succeeded", result.getSucceeded(),
+                "failed", result.getFailed(),
+                "results", result.getResults(),
+                "errors", result.getErrors(),
+                "elapsedMs", result.getElapsedMs(),
+                "message", "Batch analysis completed"
+            );
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -0,0 +1,178 @@
+package com.stockgenie.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockgenie.dto.ColumnarSeries;
+import org.springframework.http.MediaType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in columnar shapes for the chart endpoints, chosen by {@code format=columnar} or
+ * {@code format=columnar-binary}, or by the matching Accept type.
+ * <p>
+ * The binary shape is laid out for typed-array views:
+ * <pre>
+ *   'S' 'G' 'C' '1'
+ *   uint32 LE   header length
+ *   header      UTF-8 JSON; per series its metadata, rows and byte offsets into the data section
+ *   padding     to a multiple of 8
+ *   data        per series: int32 LE date deltas, then one array per column, each padded to 8
+ * </pre>
+ * A column whose values are all decimals of at most 9 places that fit an int32 once scaled is
+ * sent as int32 ticks with its scale (value = ticks / 10^scale, missing = -2^31); any other
+ * column is sent as float64 with NaN for missing values.
+ */
+final class ColumnarResponses {
+
+    static final MediaType COLUMNAR_JSON = MediaType.parseMediaType("application/vnd.stockgenie.columnar+json");
+    static final MediaType COLUMNAR_BINARY = MediaType.parseMediaType("application/vnd.stockgenie.columnar");
+
+    private static final byte[] MAGIC = {'S', 'G', 'C', '1'};
+    private static final int MAX_INT32_SCALE = 9;
+    private static final int MISSING_INT32 = Integer.MIN_VALUE;
+    private static final BigDecimal INT32_MIN_VALUE = BigDecimal.valueOf(Integer.MIN_VALUE);
+    private static final BigDecimal INT32_MAX_VALUE = BigDecimal.valueOf(Integer.MAX_VALUE);
+
+    private ColumnarResponses() {
+    }
+
+    /**
+     * Columnar type asked for by the format parameter, else by the Accept header; null for the row objects
+     */
+    static MediaType requested(String format, String accept) {
+        if (format != null) {
+            return switch (format) {
+                case "columnar" -> COLUMNAR_JSON;
+                case "columnar-binary" -> COLUMNAR_BINARY;
+                default -> null;
+            };
+        }
+        if (accept != null) {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.equalsTypeAndSubtype(COLUMNAR_BINARY)) {
+                    return COLUMNAR_BINARY;
+                }
+                if (type.equalsTypeAndSubtype(COLUMNAR_JSON)) {
+                    return COLUMNAR_JSON;
+                }
+            }
+        }
+        return null;
+    }
+
+    static byte[] binary(Map<String, Object> header, Map<String, ColumnarSeries> series, ObjectMapper objectMapper)
+            throws JsonProcessingException {
+        Map<String, Object> layout = new LinkedHashMap<>();
+        List<Object> arrays = new ArrayList<>();
+        int dataLength = 0;
+        for (Map.Entry<String, ColumnarSeries> entry : series.entrySet()) {
+            ColumnarSeries s = entry.getValue();
+            Map<String, Object> meta = new LinkedHashMap<>();
+            putIfPresent(meta, "symbol", s.getSymbol());
+            putIfPresent(meta, "dataSource", s.getDataSource());
+            putIfPresent(meta, "indicatorType", s.getIndicatorType());
+            putIfPresent(meta, "period", s.getPeriod());
+            meta.put("rows", s.getRows());
+            meta.put("dateDeltasOffset", dataLength);
+            arrays.add(s.getDateDeltas());
+            dataLength += align8(s.getRows() * Integer.BYTES);
+
+            Map<String, Object> columns = new LinkedHashMap<>();
+            for (Map.Entry<String, Double[]> column : s.getColumns().entrySet()) {
+                Map<String, Object> columnMeta = new LinkedHashMap<>();
+                columnMeta.put("offset", dataLength);
+                int scale = int32Scale(column.getValue());
+                if (scale >= 0) {
+                    columnMeta.put("type", "int32");
+                    columnMeta.put("scale", scale);
+                    arrays.add(toTicks(column.getValue(), scale));
+                    dataLength += align8(s.getRows() * Integer.BYTES);
+                } else {
+                    columnMeta.put("type", "float64");
+                    arrays.add(column.getValue());
+                    dataLength += s.getRows() * Double.BYTES;
+                }
+                columns.put(column.getKey(), columnMeta);
+            }
+            meta.put("columns", columns);
+            layout.put(entry.getKey(), meta);
+        }
+
+        Map<String, Object> fullHeader = new LinkedHashMap<>(header);
+        fullHeader.put("series", layout);
+        byte[] headerBytes = objectMapper.writeValueAsString(fullHeader).getBytes(StandardCharsets.UTF_8);
+        int dataStart = align8(MAGIC.length + Integer.BYTES + headerBytes.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(dataStart + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).putInt(headerBytes.length).put(headerBytes);
+        buffer.position(dataStart);
+        for (Object array : arrays) {
+            if (array instanceof int[] ints) {
+                for (int value : ints) {
+                    buffer.putInt(value);
+                }
+                buffer.position(dataStart + align8(buffer.position() - dataStart));
+            } else {
+                for (Double value : (Double[]) array) {
+                    buffer.putDouble(value != null ? value : Double.NaN);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Smallest decimal scale at which every value is an int32, or -1 if there is none
+     */
+    private static int int32Scale(Double[] column) {
+        int scale = 0;
+        for (Double value : column) {
+            if (value != null) {
+                if (!Double.isFinite(value)) {
+                    return -1;
+                }
+                scale = Math.max(scale, Math.max(0, BigDecimal.valueOf(value).stripTrailingZeros().scale()));
+            }
+        }
+        if (scale > MAX_INT32_SCALE) {
+            return -1;
+        }
+        for (Double value : column) {
+            if (value != null) {
+                BigDecimal ticks = BigDecimal.valueOf(value).movePointRight(scale);
+                if (ticks.compareTo(INT32_MIN_VALUE) <= 0 || ticks.compareTo(INT32_MAX_VALUE) > 0) {
+                    return -1;
+                }
+            }
+        }
+        return scale;
+    }
+
+    private static int[] toTicks(Double[] column, int scale) {
+        int[] ticks = new int[column.length];
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = column[i] != null
+                    ? BigDecimal.valueOf(column[i]).movePointRight(scale).intValueExact()
+                    : MISSING_INT32;
+        }
+        return ticks;
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static int align8(int length) {
+        return (length + 7) & ~7;
+    }
+}
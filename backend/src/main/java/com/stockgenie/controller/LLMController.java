@@ -2,12 +2,23 @@ package com.stockgenie.controller;
 
 import com.stockgenie.dto.LLMRequestDto;
 import com.stockgenie.dto.LLMResponseDto;
+import com.stockgenie.resilience.DependencyUnavailableException;
+import com.stockgenie.service.LLMBatchAnalysisService;
+import com.stockgenie.service.LLMRequestScheduler;
 import com.stockgenie.service.LocalLLMService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/v1/llm")
@@ -16,16 +27,48 @@ public class LLMController {
     @Autowired
     private LocalLLMService localLLMService;
 
+    @Autowired
+    private LLMRequestScheduler llmRequestScheduler;
+
+    @Autowired
+    private LLMBatchAnalysisService llmBatchAnalysisService;
+
     @PostMapping("/analyze")
     public ResponseEntity<LLMResponseDto> analyzeStock(@RequestBody LLMRequestDto request) {
         try {
             LLMResponseDto response = localLLMService.analyzeStockData(request);
             return ResponseEntity.ok(response);
+        } catch (LLMRequestScheduler.RejectedException e) {
+            return tooManyRequests(e).build();
+        } catch (DependencyUnavailableException e) {
+            return serviceUnavailable(e).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Same analysis as /analyze, sent as Server-Sent Events while it is generated: "token"
+     * events carry {"text": ...} chunks, then one "done" or "error" event ends the stream.
+     * A request the LLM queue turns away gets only an error event with status 429, and one
+     * made while Ollama's circuit breaker is open an error event with status 503.
+     */
+    @PostMapping(value = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> streamAnalysis(@RequestBody LLMRequestDto request) {
+        long startTime = System.currentTimeMillis();
+        // Chunks go out as JSON so leading spaces and newlines in tokens survive SSE framing
+        return localLLMService.streamStockAnalysis(request)
+                .map(token -> event("token", Map.<String, Object>of("text", token)))
+                .concatWith(Mono.fromSupplier(() ->
+                        event("done", Map.<String, Object>of("processingTimeMs", System.currentTimeMillis() - startTime))))
+                .onErrorResume(LLMRequestScheduler.RejectedException.class, e -> Mono.just(
+                        event("error", Map.<String, Object>of("error", e.getMessage(), "status", 429, "retryAfterSeconds", e.getRetryAfterSeconds()))))
+                .onErrorResume(DependencyUnavailableException.class, e -> Mono.just(
+                        event("error", Map.<String, Object>of("error", e.getMessage(), "status", 503, "retryAfterSeconds", e.getRetryAfterSeconds()))))
+                .onErrorResume(e -> Mono.just(
+                        event("error", Map.<String, Object>of("error", Objects.toString(e.getMessage(), "LLM streaming failed")))));
+    }
+
     @PostMapping("/analyze-simple")
     public ResponseEntity<Map<String, Object>> analyzeStockSimple(@RequestBody Map<String, Object> request) {
         try {
@@ -36,6 +79,46 @@ public class LLMController {
             
             Map<String, Object> response = localLLMService.analyzeStockSimple(symbol, analysisType, days, includeTechnical);
             return ResponseEntity.ok(response);
+        } catch (LLMRequestScheduler.RejectedException e) {
+            return tooManyRequests(e).body(Map.of("error", e.getMessage(), "retryAfterSeconds", e.getRetryAfterSeconds()));
+        } catch (DependencyUnavailableException e) {
+            return serviceUnavailable(e).body(Map.of("error", e.getMessage(), "retryAfterSeconds", e.getRetryAfterSeconds()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Start a background simple analysis over many symbols; poll /batch/{batchId} for results
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> startBatchAnalysis(@RequestBody Map<String, Object> request) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<String> symbols = (List<String>) request.get("symbols");
+            Integer days = (Integer) request.getOrDefault("days", 30);
+            if (symbols == null || symbols.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "symbols must not be empty"));
+            }
+            
+            String batchId = llmBatchAnalysisService.startBatch(symbols, days);
+            return ResponseEntity.accepted().body(Map.of(
+                "batchId", batchId,
+                "status", "/api/v1/llm/batch/" + batchId
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<Map<String, Object>> getBatchAnalysis(@PathVariable String batchId) {
+        try {
+            Map<String, Object> status = llmBatchAnalysisService.getBatchStatus(batchId);
+            if ((int) status.get("requested") == 0) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(status);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -49,7 +132,8 @@ public class LLMController {
                 "available", isAvailable,
                 "model", "mistral:7b",
                 "endpoint", "http://localhost:11434",
-                "message", isAvailable ? "LLM service is available and ready" : "LLM service is not available - please ensure Ollama is running"
+                "message", isAvailable ? "LLM service is available and ready" : "LLM service is not available - please ensure Ollama is running",
+                "queue", llmRequestScheduler.getStatus()
             );
             return ResponseEntity.ok(status);
         } catch (Exception e) {
@@ -67,4 +151,18 @@ public class LLMController {
             return ResponseEntity.badRequest().body("LLM test failed: " + e.getMessage());
         }
     }
+
+    private static ResponseEntity.BodyBuilder tooManyRequests(LLMRequestScheduler.RejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    }
+
+    private static ResponseEntity.BodyBuilder serviceUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    }
+
+    private static ServerSentEvent<Map<String, Object>> event(String name, Map<String, Object> data) {
+        return ServerSentEvent.<Map<String, Object>>builder(data).event(name).build();
+    }
 }
@@ -1,11 +1,21 @@
 package com.stockgenie.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.stockgenie.dto.ColumnarSeries;
 import com.stockgenie.dto.StockDataDto;
 import com.stockgenie.service.FinancialDataService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -17,18 +27,72 @@ public class StockController {
     @Autowired
     private FinancialDataService financialDataService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/{symbol}")
-    public ResponseEntity<List<StockDataDto>> getStockData(
+    public ResponseEntity<?> getStockData(
             @PathVariable String symbol,
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
             List<StockDataDto> stockData = financialDataService.getStockDataForRange(symbol, days);
-            return ResponseEntity.ok(stockData);
+            MediaType columnar = ColumnarResponses.requested(format, accept);
+            if (columnar == null) {
+                return ResponseEntity.ok(stockData);
+            }
+
+            ColumnarSeries series = ColumnarSeries.fromStockData(stockData);
+            if (columnar.equals(ColumnarResponses.COLUMNAR_JSON)) {
+                return ResponseEntity.ok().contentType(columnar).body(series);
+            }
+            byte[] body = ColumnarResponses.binary(Map.of("symbol", symbol, "days", days),
+                    Map.of("price", series), objectMapper);
+            return ResponseEntity.ok().contentType(columnar).body(body);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Same rows as {@link #getStockData} as newline-delimited JSON, written page by page
+     * as they are read, so long ranges never sit in memory as a whole
+     */
+    @GetMapping(value = "/{symbol}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStockData(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "30") int days) {
+        StreamingResponseBody body = outputStream -> {
+            // Flushed once per page rather than after every row
+            ObjectWriter writer = objectMapper.writerFor(StockDataDto.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            try {
+                financialDataService.streamStockDataForRange(symbol, days, page -> {
+                    try {
+                        for (StockDataDto row : page) {
+                            writer.writeValue(generator, row);
+                            generator.writeRaw('\n');
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Client went away mid-stream
+                throw e.getCause();
+            }
+            generator.close();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/{symbol}/latest")
     public ResponseEntity<StockDataDto> getLatestStockData(@PathVariable String symbol) {
         try {
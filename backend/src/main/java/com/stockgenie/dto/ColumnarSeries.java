@@ -0,0 +1,97 @@
+package com.stockgenie.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One series in column-major form: the fields shared by every point appear once,
+ * dates are epoch-day deltas and each value field is a parallel array.
+ * A missing value is null.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnarSeries {
+    private String symbol;
+    private String dataSource;
+    private String indicatorType;
+    private Integer period;
+    private int rows;
+
+    /**
+     * Epoch day of the first point, then the day difference to the previous point
+     */
+    private int[] dateDeltas;
+
+    private Map<String, Double[]> columns;
+
+    public static ColumnarSeries fromStockData(List<StockDataDto> data) {
+        Map<String, Double[]> columns = new LinkedHashMap<>();
+        columns.put("open", column(data, StockDataDto::getOpen));
+        columns.put("high", column(data, StockDataDto::getHigh));
+        columns.put("low", column(data, StockDataDto::getLow));
+        columns.put("close", column(data, StockDataDto::getClose));
+        columns.put("volume", column(data, dto -> dto.getVolume() != null ? BigDecimal.valueOf(dto.getVolume()) : null));
+        columns.put("adjustedClose", column(data, StockDataDto::getAdjustedClose));
+
+        StockDataDto first = data.isEmpty() ? null : data.get(0);
+        return ColumnarSeries.builder()
+                .symbol(first != null ? first.getSymbol() : null)
+                .dataSource(first != null ? first.getDataSource() : null)
+                .rows(data.size())
+                .dateDeltas(dateDeltas(data, StockDataDto::getDate))
+                .columns(columns)
+                .build();
+    }
+
+    public static ColumnarSeries fromIndicator(List<TechnicalAnalysisDto> data) {
+        Map<String, Double[]> columns = new LinkedHashMap<>();
+        columns.put("value", column(data, TechnicalAnalysisDto::getValue));
+        if (data.stream().anyMatch(dto -> dto.getSignal() != null || dto.getHistogram() != null)) {
+            columns.put("signal", column(data, TechnicalAnalysisDto::getSignal));
+            columns.put("histogram", column(data, TechnicalAnalysisDto::getHistogram));
+        }
+
+        TechnicalAnalysisDto first = data.isEmpty() ? null : data.get(0);
+        return ColumnarSeries.builder()
+                .symbol(first != null ? first.getSymbol() : null)
+                .indicatorType(first != null && first.getIndicatorType() != null ? first.getIndicatorType().name() : null)
+                .period(first != null ? first.getPeriod() : null)
+                .rows(data.size())
+                .dateDeltas(dateDeltas(data, TechnicalAnalysisDto::getDate))
+                .columns(columns)
+                .build();
+    }
+
+    private static <T> int[] dateDeltas(List<T> data, Function<T, LocalDate> date) {
+        int[] deltas = new int[data.size()];
+        int previous = 0;
+        for (int i = 0; i < deltas.length; i++) {
+            int epochDay = (int) date.apply(data.get(i)).toEpochDay();
+            deltas[i] = epochDay - previous;
+            previous = epochDay;
+        }
+        return deltas;
+    }
+
+    private static <T> Double[] column(List<T> data, Function<T, BigDecimal> field) {
+        Double[] column = new Double[data.size()];
+        for (int i = 0; i < column.length; i++) {
+            BigDecimal value = field.apply(data.get(i));
+            column[i] = value != null ? value.doubleValue() : null;
+        }
+        return column;
+    }
+}
@@ -0,0 +1,26 @@
+package com.stockgenie.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One cached Ollama completion, stored under the digest of the model, options and prompt
+ * that produced it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LLMCompletionDto {
+    private String promptDigest;
+    private String response;
+    private String model;
+    private String modelDigest; // null if Ollama did not report one
+    private Long generationMs;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt; // null for no expiry
+}
@@ -6,12 +6,13 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "analysis_requests")
+@Table(name = "analysis_request")
 @Data
 @Builder
 @NoArgsConstructor
@@ -25,6 +26,15 @@ public class AnalysisRequest {
     @Column(nullable = false, length = 10)
     private String symbol;
     
+    @Column(name = "analysis_type", nullable = false, length = 50)
+    private String analysisType;
+    
+    /**
+     * Batch LLM run this request belongs to, null for single requests
+     */
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+    
     @Column(nullable = false)
     private LocalDate startDate;
     
@@ -34,7 +44,7 @@ public class AnalysisRequest {
     @Column(length = 2000)
     private String indicators;
     
-    @Column(length = 5000)
+    @Column(columnDefinition = "TEXT")
     private String llmResponse;
     
     @Enumerated(EnumType.STRING)
@@ -48,6 +58,10 @@ public class AnalysisRequest {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
     public enum Status {
         PENDING,
         PROCESSING,
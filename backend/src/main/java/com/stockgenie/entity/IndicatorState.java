@@ -0,0 +1,72 @@
+package com.stockgenie.entity;
+
+import com.stockgenie.analysis.RollingIndicator;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "indicator_state",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"symbol", "indicator_type", "period"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorState {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 10)
+    private String symbol;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "indicator_type", nullable = false, length = 20)
+    private RollingIndicator.Kind indicatorType;
+    
+    @Column(nullable = false)
+    private Integer period;
+    
+    @Column(name = "bar_count", nullable = false)
+    private Long barCount;
+    
+    @Column(name = "first_date", nullable = false)
+    private LocalDate firstDate;
+    
+    @Column(name = "last_date", nullable = false)
+    private LocalDate lastDate;
+    
+    @Column(name = "last_close", nullable = false)
+    private Double lastClose;
+    
+    @Column(name = "primary_value")
+    private Double primaryValue;
+    
+    @Column(name = "secondary_value")
+    private Double secondaryValue;
+    
+    @Column(name = "seed_sum")
+    private Double seedSum;
+    
+    @Column(name = "window_values")
+    private byte[] windowValues;
+    
+    @Column(name = "window_position")
+    private Integer windowPosition;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,74 @@
+package com.stockgenie.provider;
+
+import com.stockgenie.analysis.PriceSeries;
+import com.stockgenie.analysis.TradingCalendar;
+import com.stockgenie.config.FinancialApiConfig;
+import com.stockgenie.service.AlphaVantageStreamParser;
+import com.stockgenie.service.ApiOptimizationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * TIME_SERIES_DAILY from Alpha Vantage, streamed straight into a price series
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AlphaVantageProvider implements MarketDataProvider {
+
+    public static final String NAME = "alpha-vantage";
+
+    /**
+     * outputsize=compact returns this many of the most recent bars
+     */
+    private static final int COMPACT_OUTPUT_BARS = 100;
+
+    private final FinancialApiConfig financialApiConfig;
+    private final ApiOptimizationService apiOptimizationService;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        String apiKey = financialApiConfig.getAlphaVantage().getApiKey();
+        return apiKey != null && !apiKey.isBlank() && !"demo".equals(apiKey);
+    }
+
+    @Override
+    public Mono<PriceSeries> fetchDailyBars(String symbol, LocalDate startDate, LocalDate endDate) {
+        String apiKey = financialApiConfig.getAlphaVantage().getApiKey();
+        String baseUrl = financialApiConfig.getAlphaVantage().getBaseUrl();
+
+        // compact only holds the latest bars, so it suffices when the range starts within them
+        String outputSize = TradingCalendar.countTradingDays(startDate, TradingCalendar.lastCompletedTradingDay(),
+                COMPACT_OUTPUT_BARS + 1) <= COMPACT_OUTPUT_BARS ? "compact" : "full";
+        log.info("Fetching real data from Alpha Vantage for symbol: {} ({} to {}, outputsize={})",
+                symbol, startDate, endDate, outputSize);
+
+        String apiUrl = baseUrl + "?function=TIME_SERIES_DAILY&symbol=" + symbol +
+                "&outputsize=" + outputSize + "&apikey=" + apiKey;
+
+        // Stream the body straight into a primitive series, keeping only the requested span
+        return apiOptimizationService.makeApiCallReactive(NAME, apiUrl,
+                        "stock_data_" + symbol + "_" + outputSize + "_" + startDate + "_" + endDate,
+                        response -> AlphaVantageStreamParser.parse(response.bodyToFlux(DataBuffer.class), symbol, startDate, endDate))
+                .switchIfEmpty(Mono.error(() -> new MarketDataProviderException("Empty response received from Alpha Vantage for " + symbol)))
+                .map(result -> {
+                    if (result.hasError()) {
+                        throw new MarketDataProviderException("Alpha Vantage API error for " + symbol + ": " + result.getErrorMessage());
+                    }
+                    if (result.getBarsInResponse() == 0) {
+                        throw new MarketDataProviderException("No valid time series data received from Alpha Vantage for " + symbol);
+                    }
+                    return result.getSeries();
+                });
+    }
+}
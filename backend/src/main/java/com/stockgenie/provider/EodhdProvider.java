@@ -0,0 +1,83 @@
+package com.stockgenie.provider;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.stockgenie.analysis.PriceSeries;
+import com.stockgenie.config.FinancialApiConfig;
+import com.stockgenie.service.ApiOptimizationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * End-of-day bars from EODHD. The API takes the date range itself, so a response only ever
+ * holds the bars asked for; its JSON array is decoded element by element.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EodhdProvider implements MarketDataProvider {
+
+    public static final String NAME = "eodhd";
+
+    private final FinancialApiConfig financialApiConfig;
+    private final ApiOptimizationService apiOptimizationService;
+
+    /**
+     * One element of the /eod response
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Bar(String date, double open, double high, double low, double close, long volume) {
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        String apiKey = financialApiConfig.getEodhd().getApiKey();
+        return apiKey != null && !apiKey.isBlank() && !"demo".equals(apiKey);
+    }
+
+    @Override
+    public Mono<PriceSeries> fetchDailyBars(String symbol, LocalDate startDate, LocalDate endDate) {
+        FinancialApiConfig.Eodhd eodhd = financialApiConfig.getEodhd();
+        String ticker = symbol.contains(".") ? symbol : symbol + "." + eodhd.getExchange();
+        log.info("Fetching real data from EODHD for symbol: {} ({} to {})", ticker, startDate, endDate);
+
+        String apiUrl = eodhd.getBaseUrl() + "/eod/" + ticker + "?fmt=json&period=d&order=a" +
+                "&from=" + startDate + "&to=" + endDate + "&api_token=" + eodhd.getApiKey();
+
+        return apiOptimizationService.makeApiCallReactive(NAME, apiUrl,
+                        "eodhd_" + ticker + "_" + startDate + "_" + endDate,
+                        response -> response.bodyToFlux(Bar.class).collectList())
+                .map(bars -> toSeries(symbol, bars, startDate, endDate));
+    }
+
+    private static PriceSeries toSeries(String symbol, List<Bar> bars, LocalDate startDate, LocalDate endDate) {
+        List<Bar> inRange = bars.stream()
+                .filter(bar -> bar.date() != null)
+                .filter(bar -> {
+                    LocalDate date = LocalDate.parse(bar.date());
+                    return !date.isBefore(startDate) && !date.isAfter(endDate);
+                })
+                .sorted(Comparator.comparing(Bar::date))
+                .toList();
+
+        PriceSeries.Builder series = PriceSeries.builder(symbol, inRange.size());
+        String previous = null;
+        for (Bar bar : inRange) {
+            if (!bar.date().equals(previous)) {
+                series.add(LocalDate.parse(bar.date()), bar.open(), bar.high(), bar.low(), bar.close(), bar.volume());
+                previous = bar.date();
+            }
+        }
+        return series.build();
+    }
+}
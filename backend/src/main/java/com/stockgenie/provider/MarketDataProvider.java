@@ -0,0 +1,29 @@
+package com.stockgenie.provider;
+
+import com.stockgenie.analysis.PriceSeries;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * An upstream source of daily bars
+ */
+public interface MarketDataProvider {
+
+    /**
+     * Name used for its rate limits and stored as the data source of its bars
+     */
+    String getName();
+
+    /**
+     * Whether real credentials are configured; the demo key does not count
+     */
+    boolean isConfigured();
+
+    /**
+     * Daily bars of the symbol between the dates, inclusive and ascending. An empty series
+     * means the provider has no bars in the range yet, such as a day not published so far.
+     * Signals {@link MarketDataProviderException} when the provider answered without usable data.
+     */
+    Mono<PriceSeries> fetchDailyBars(String symbol, LocalDate startDate, LocalDate endDate);
+}
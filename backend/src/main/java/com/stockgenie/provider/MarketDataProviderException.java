@@ -0,0 +1,15 @@
+package com.stockgenie.provider;
+
+/**
+ * The provider answered, but with an error message or no bars instead of data
+ */
+public class MarketDataProviderException extends RuntimeException {
+
+    public MarketDataProviderException(String message) {
+        super(message);
+    }
+
+    public MarketDataProviderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
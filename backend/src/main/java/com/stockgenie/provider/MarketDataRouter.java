@@ -0,0 +1,167 @@
+package com.stockgenie.provider;
+
+import com.stockgenie.analysis.PriceSeries;
+import com.stockgenie.config.FinancialApiConfig;
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.service.RateLimitService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Picks the provider for each fetch and falls back between them. Providers with real
+ * credentials, calls left today and a circuit breaker that lets calls through are tried in order: those that can call right now first,
+ * then {@code financial.api.provider}, then the one with the most calls left. When a provider
+ * fails, the next one is asked straight away. When it has not answered within
+ * {@code financial.api.hedging.delay}, the next one is asked as well, provided it has more than
+ * {@code financial.api.hedging.min-remaining-calls} calls left today. The first answer wins.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MarketDataRouter {
+
+    private final List<MarketDataProvider> providers;
+    private final FinancialApiConfig financialApiConfig;
+    private final RateLimitService rateLimitService;
+    private final DependencyGuards dependencyGuards;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Bars and the provider that supplied them
+     */
+    public record Fetched(String provider, PriceSeries series) {
+    }
+
+    public boolean hasConfiguredProvider() {
+        return providers.stream().anyMatch(MarketDataProvider::isConfigured);
+    }
+
+    public Mono<Fetched> fetchDailyBars(String symbol, LocalDate startDate, LocalDate endDate) {
+        return Mono.defer(() -> {
+            List<MarketDataProvider> candidates = candidates();
+            if (candidates.isEmpty()) {
+                return Mono.error(new MarketDataProviderException(
+                        "No configured market data provider is reachable and has calls left today"));
+            }
+            return route(candidates, symbol, startDate, endDate)
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> new MarketDataProviderException("Every market data provider failed for " + symbol, e));
+        });
+    }
+
+    /**
+     * Configured providers that are not known to be down and have calls left today, in the
+     * order they should be tried
+     */
+    List<MarketDataProvider> candidates() {
+        String preferred = financialApiConfig.getProvider();
+        Map<String, RateLimitService.Usage> usage = new HashMap<>();
+        List<MarketDataProvider> candidates = new ArrayList<>();
+        for (MarketDataProvider provider : providers) {
+            if (!provider.isConfigured() || !dependencyGuards.guard(provider.getName()).isCallPermitted()) {
+                continue;
+            }
+            RateLimitService.Usage providerUsage = rateLimitService.getUsage(provider.getName());
+            if (providerUsage.remainingToday() > 0) {
+                usage.put(provider.getName(), providerUsage);
+                candidates.add(provider);
+            }
+        }
+        candidates.sort(Comparator
+                .comparing((MarketDataProvider provider) -> usage.get(provider.getName()).remainingThisMinute() == 0)
+                .thenComparing(provider -> !provider.getName().equals(preferred))
+                .thenComparing(provider -> usage.get(provider.getName()).remainingToday(), Comparator.reverseOrder()));
+        return candidates;
+    }
+
+    /**
+     * Current budget of every provider a call could be routed to, in the order they would be tried
+     */
+    public Map<String, RateLimitService.Usage> candidateUsage() {
+        Map<String, RateLimitService.Usage> usage = new LinkedHashMap<>();
+        for (MarketDataProvider provider : candidates()) {
+            usage.put(provider.getName(), rateLimitService.getUsage(provider.getName()));
+        }
+        return usage;
+    }
+
+    /**
+     * Ask the first provider; the rest are asked once it fails, or hedged to once it is slow
+     */
+    private Mono<Fetched> route(List<MarketDataProvider> candidates, String symbol, LocalDate startDate, LocalDate endDate) {
+        MarketDataProvider provider = candidates.get(0);
+        Mono<Fetched> attempt = attempt(provider, symbol, startDate, endDate);
+        if (candidates.size() == 1) {
+            return attempt;
+        }
+
+        List<MarketDataProvider> rest = candidates.subList(1, candidates.size());
+        Mono<Fetched> first = attempt.cache();
+        // true once the hedge delay passes, false as soon as the first provider fails
+        Mono<Boolean> trigger = Mono.firstWithSignal(
+                hedgeAfterDelay(rest.get(0)),
+                first.then(Mono.<Boolean>never()).onErrorReturn(false));
+        Mono<Fetched> next = trigger.flatMap(hedged -> {
+            String reason = hedged ? "hedged" : "failover";
+            meterRegistry.counter("stockgenie.upstream.provider.fallbacks",
+                    "from", provider.getName(), "to", rest.get(0).getName(), "reason", reason).increment();
+            log.info("Asking {} for {} as well ({} after {})", rest.get(0).getName(), symbol, reason, provider.getName());
+            return route(rest, symbol, startDate, endDate);
+        });
+        return Mono.firstWithValue(first, next);
+    }
+
+    private Mono<Boolean> hedgeAfterDelay(MarketDataProvider next) {
+        FinancialApiConfig.Hedging hedging = financialApiConfig.getHedging();
+        if (!hedging.isEnabled()) {
+            return Mono.never();
+        }
+        // Reading the budget may be a blocking Redis call, so it runs off the timer thread
+        return Mono.delay(Duration.ofMillis(hedging.getDelay()))
+                .flatMap(tick -> Mono.fromCallable(() -> withinHedgeBudget(next))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(withinBudget -> withinBudget ? Mono.just(true) : Mono.never());
+    }
+
+    private boolean withinHedgeBudget(MarketDataProvider provider) {
+        RateLimitService.Usage usage = rateLimitService.getUsage(provider.getName());
+        return usage.remainingToday() > financialApiConfig.getHedging().getMinRemainingCalls()
+                && usage.remainingThisMinute() > 0;
+    }
+
+    private Mono<Fetched> attempt(MarketDataProvider provider, String symbol, LocalDate startDate, LocalDate endDate) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return provider.fetchDailyBars(symbol, startDate, endDate)
+                    .map(series -> new Fetched(provider.getName(), series))
+                    .doOnSuccess(fetched -> sample.stop(latency(provider, "success")))
+                    .doOnError(e -> {
+                        sample.stop(latency(provider, "error"));
+                        log.warn("{} failed for {}: {}", provider.getName(), symbol, e.getMessage());
+                    });
+        });
+    }
+
+    private Timer latency(MarketDataProvider provider, String outcome) {
+        return Timer.builder("stockgenie.upstream.provider.latency")
+                .description("Time market data providers took to answer a fetch")
+                .tag("provider", provider.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -19,10 +19,18 @@ public interface AnalysisRequestRepository extends JpaRepository<AnalysisRequest
     
     Optional<AnalysisRequest> findByIdAndStatus(Long id, AnalysisRequest.Status status);
     
+    List<AnalysisRequest> findByBatchIdOrderByIdAsc(String batchId);
+    
     @Query("SELECT a FROM AnalysisRequest a WHERE a.symbol = :symbol AND a.status = :status ORDER BY a.createdAt DESC")
     List<AnalysisRequest> findBySymbolAndStatusOrderByCreatedAtDesc(@Param("symbol") String symbol, 
                                                                    @Param("status") AnalysisRequest.Status status);
     
     @Query("SELECT COUNT(a) FROM AnalysisRequest a WHERE a.createdAt >= :since")
     long countByCreatedAtAfter(@Param("since") LocalDateTime since);
+    
+    /**
+     * Symbol and request count for every symbol requested since the given time
+     */
+    @Query("SELECT a.symbol, COUNT(a) FROM AnalysisRequest a WHERE a.createdAt >= :since GROUP BY a.symbol")
+    List<Object[]> countRequestsBySymbolSince(@Param("since") LocalDateTime since);
 }
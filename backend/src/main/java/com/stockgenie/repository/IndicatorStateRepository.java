@@ -0,0 +1,14 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.analysis.RollingIndicator;
+import com.stockgenie.entity.IndicatorState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IndicatorStateRepository extends JpaRepository<IndicatorState, Long> {
+    
+    Optional<IndicatorState> findBySymbolAndIndicatorTypeAndPeriod(String symbol, RollingIndicator.Kind indicatorType, Integer period);
+}
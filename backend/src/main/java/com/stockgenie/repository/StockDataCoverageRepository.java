@@ -0,0 +1,13 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.entity.StockDataCoverage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockDataCoverageRepository extends JpaRepository<StockDataCoverage, Long> {
+    
+    List<StockDataCoverage> findBySymbolOrderByStartDateAsc(String symbol);
+}
@@ -1,6 +1,7 @@
 package com.stockgenie.repository;
 
 import com.stockgenie.entity.StockData;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,7 +12,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StockDataRepository extends JpaRepository<StockData, Long> {
+public interface StockDataRepository extends JpaRepository<StockData, Long>, StockDataRepositoryCustom {
     
     List<StockData> findBySymbolOrderByDateAsc(String symbol);
     
@@ -24,6 +25,12 @@ public interface StockDataRepository extends JpaRepository<StockData, Long> {
                                         @Param("startDate") LocalDate startDate, 
                                         @Param("endDate") LocalDate endDate);
     
+    @Query("SELECT s FROM StockData s WHERE s.symbol = :symbol AND s.date > :afterDate AND s.date <= :endDate ORDER BY s.date ASC")
+    List<StockData> findStockDataPage(@Param("symbol") String symbol,
+                                      @Param("afterDate") LocalDate afterDate,
+                                      @Param("endDate") LocalDate endDate,
+                                      Limit limit);
+    
     @Query("SELECT COUNT(s) FROM StockData s WHERE s.symbol = :symbol AND s.date >= :startDate AND s.date <= :endDate")
     long countBySymbolAndDateRange(@Param("symbol") String symbol, 
                                   @Param("startDate") LocalDate startDate, 
@@ -0,0 +1,16 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.entity.StockData;
+
+import java.util.List;
+
+public interface StockDataRepositoryCustom {
+    
+    /**
+     * Insert the bars or overwrite the stored ones with the same symbol and date.
+     * Re-sending bars that are already stored leaves them untouched.
+     *
+     * @return number of rows inserted or changed
+     */
+    int upsertAll(List<StockData> bars);
+}
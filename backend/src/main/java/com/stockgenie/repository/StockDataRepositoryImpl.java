@@ -0,0 +1,103 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.entity.StockData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bulk upsert for stock_data. Each statement carries a whole chunk of bars as
+ * column arrays, and all chunks go out as one JDBC batch, so storing thousands
+ * of bars costs one round trip instead of one insert per row. The SQL is
+ * PostgreSQL-only (unnest over array parameters, ON CONFLICT).
+ */
+@RequiredArgsConstructor
+public class StockDataRepositoryImpl implements StockDataRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO stock_data (symbol, date, open, high, low, close, volume, adjusted_close, data_source,
+                                    created_at, updated_at)
+            SELECT t.symbol, t.date, t.open, t.high, t.low, t.close, t.volume, t.adjusted_close, t.data_source,
+                   CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+            FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?)
+                 AS t(symbol, date, open, high, low, close, volume, adjusted_close, data_source)
+            ON CONFLICT (symbol, date) DO UPDATE SET
+                open = EXCLUDED.open,
+                high = EXCLUDED.high,
+                low = EXCLUDED.low,
+                close = EXCLUDED.close,
+                volume = EXCLUDED.volume,
+                adjusted_close = EXCLUDED.adjusted_close,
+                data_source = EXCLUDED.data_source,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE (stock_data.open, stock_data.high, stock_data.low, stock_data.close, stock_data.volume,
+                   stock_data.adjusted_close, stock_data.data_source)
+                  IS DISTINCT FROM
+                  (EXCLUDED.open, EXCLUDED.high, EXCLUDED.low, EXCLUDED.close, EXCLUDED.volume,
+                   EXCLUDED.adjusted_close, EXCLUDED.data_source)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppConfig appConfig;
+
+    @Override
+    public int upsertAll(List<StockData> bars) {
+        if (bars.isEmpty()) {
+            return 0;
+        }
+
+        // One statement may not touch the same row twice, so the last bar per key wins;
+        // key order also keeps concurrent upserts locking rows in the same order
+        Map<String, StockData> byKey = new TreeMap<>();
+        for (StockData bar : bars) {
+            byKey.put(bar.getSymbol() + '|' + bar.getDate(), bar);
+        }
+
+        List<List<StockData>> chunks = UpsertBatches.chunk(new ArrayList<>(byKey.values()),
+                appConfig.getAnalysis().getBatchSize());
+        int[][] counts = jdbcTemplate.batchUpdate(UPSERT_SQL, chunks, chunks.size(), (ps, chunk) -> {
+            int n = chunk.size();
+            String[] symbol = new String[n];
+            Date[] date = new Date[n];
+            BigDecimal[] open = new BigDecimal[n];
+            BigDecimal[] high = new BigDecimal[n];
+            BigDecimal[] low = new BigDecimal[n];
+            BigDecimal[] close = new BigDecimal[n];
+            Long[] volume = new Long[n];
+            BigDecimal[] adjustedClose = new BigDecimal[n];
+            String[] dataSource = new String[n];
+            for (int i = 0; i < n; i++) {
+                StockData bar = chunk.get(i);
+                symbol[i] = bar.getSymbol();
+                date[i] = Date.valueOf(bar.getDate());
+                open[i] = bar.getOpen();
+                high[i] = bar.getHigh();
+                low[i] = bar.getLow();
+                close[i] = bar.getClose();
+                volume[i] = bar.getVolume();
+                adjustedClose[i] = bar.getAdjustedClose();
+                dataSource[i] = bar.getDataSource();
+            }
+
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("varchar", symbol));
+            ps.setArray(2, connection.createArrayOf("date", date));
+            ps.setArray(3, connection.createArrayOf("numeric", open));
+            ps.setArray(4, connection.createArrayOf("numeric", high));
+            ps.setArray(5, connection.createArrayOf("numeric", low));
+            ps.setArray(6, connection.createArrayOf("numeric", close));
+            ps.setArray(7, connection.createArrayOf("int8", volume));
+            ps.setArray(8, connection.createArrayOf("numeric", adjustedClose));
+            ps.setArray(9, connection.createArrayOf("varchar", dataSource));
+        });
+        return UpsertBatches.total(counts);
+    }
+}
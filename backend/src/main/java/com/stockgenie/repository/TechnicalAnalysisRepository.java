@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TechnicalAnalysisRepository extends JpaRepository<TechnicalAnalysis, Long> {
+public interface TechnicalAnalysisRepository extends JpaRepository<TechnicalAnalysis, Long>, TechnicalAnalysisRepositoryCustom {
     
     List<TechnicalAnalysis> findBySymbolAndIndicatorTypeOrderByDateAsc(String symbol, TechnicalAnalysis.IndicatorType indicatorType);
     
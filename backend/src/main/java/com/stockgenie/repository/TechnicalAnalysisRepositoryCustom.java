@@ -0,0 +1,16 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.entity.TechnicalAnalysis;
+
+import java.util.List;
+
+public interface TechnicalAnalysisRepositoryCustom {
+    
+    /**
+     * Insert the rows or overwrite the stored ones with the same symbol, date,
+     * indicator type and period. Re-sending rows that are already stored leaves them untouched.
+     *
+     * @return number of rows inserted or changed
+     */
+    int upsertAll(List<TechnicalAnalysis> rows);
+}
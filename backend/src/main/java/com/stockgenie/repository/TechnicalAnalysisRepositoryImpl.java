@@ -0,0 +1,94 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.entity.TechnicalAnalysis;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bulk upsert for technical_analysis, sent the same way as the stock_data one:
+ * column arrays per statement, every statement in a single JDBC batch.
+ * PostgreSQL-only, like that one.
+ */
+@RequiredArgsConstructor
+public class TechnicalAnalysisRepositoryImpl implements TechnicalAnalysisRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO technical_analysis (symbol, date, indicator_type, period, indicator_value, signal, histogram,
+                                            metadata, created_at, updated_at)
+            SELECT t.symbol, t.date, t.indicator_type, t.period, t.indicator_value, t.signal, t.histogram,
+                   t.metadata, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+            FROM unnest(?, ?, ?, ?, ?, ?, ?, ?)
+                 AS t(symbol, date, indicator_type, period, indicator_value, signal, histogram, metadata)
+            ON CONFLICT (symbol, date, indicator_type, period) DO UPDATE SET
+                indicator_value = EXCLUDED.indicator_value,
+                signal = EXCLUDED.signal,
+                histogram = EXCLUDED.histogram,
+                metadata = EXCLUDED.metadata,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE (technical_analysis.indicator_value, technical_analysis.signal, technical_analysis.histogram,
+                   technical_analysis.metadata)
+                  IS DISTINCT FROM
+                  (EXCLUDED.indicator_value, EXCLUDED.signal, EXCLUDED.histogram, EXCLUDED.metadata)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppConfig appConfig;
+
+    @Override
+    public int upsertAll(List<TechnicalAnalysis> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Same de-duplication and lock ordering as the stock_data upsert
+        Map<String, TechnicalAnalysis> byKey = new TreeMap<>();
+        for (TechnicalAnalysis row : rows) {
+            byKey.put(row.getSymbol() + '|' + row.getIndicatorType() + '|' + row.getPeriod() + '|' + row.getDate(), row);
+        }
+
+        List<List<TechnicalAnalysis>> chunks = UpsertBatches.chunk(new ArrayList<>(byKey.values()),
+                appConfig.getAnalysis().getBatchSize());
+        int[][] counts = jdbcTemplate.batchUpdate(UPSERT_SQL, chunks, chunks.size(), (ps, chunk) -> {
+            int n = chunk.size();
+            String[] symbol = new String[n];
+            Date[] date = new Date[n];
+            String[] indicatorType = new String[n];
+            Integer[] period = new Integer[n];
+            BigDecimal[] value = new BigDecimal[n];
+            BigDecimal[] signal = new BigDecimal[n];
+            BigDecimal[] histogram = new BigDecimal[n];
+            String[] metadata = new String[n];
+            for (int i = 0; i < n; i++) {
+                TechnicalAnalysis row = chunk.get(i);
+                symbol[i] = row.getSymbol();
+                date[i] = Date.valueOf(row.getDate());
+                indicatorType[i] = row.getIndicatorType().name();
+                period[i] = row.getPeriod();
+                value[i] = row.getValue();
+                signal[i] = row.getSignal();
+                histogram[i] = row.getHistogram();
+                metadata[i] = row.getMetadata();
+            }
+
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("varchar", symbol));
+            ps.setArray(2, connection.createArrayOf("date", date));
+            ps.setArray(3, connection.createArrayOf("varchar", indicatorType));
+            ps.setArray(4, connection.createArrayOf("int4", period));
+            ps.setArray(5, connection.createArrayOf("numeric", value));
+            ps.setArray(6, connection.createArrayOf("numeric", signal));
+            ps.setArray(7, connection.createArrayOf("numeric", histogram));
+            ps.setArray(8, connection.createArrayOf("varchar", metadata));
+        });
+        return UpsertBatches.total(counts);
+    }
+}
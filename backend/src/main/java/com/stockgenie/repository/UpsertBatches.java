@@ -0,0 +1,39 @@
+package com.stockgenie.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chunking shared by the bulk upsert fragments
+ */
+final class UpsertBatches {
+
+    private static final int DEFAULT_ROWS_PER_STATEMENT = 100;
+
+    private UpsertBatches() {
+    }
+
+    static <T> List<List<T>> chunk(List<T> rows, int rowsPerStatement) {
+        int size = rowsPerStatement > 0 ? rowsPerStatement : DEFAULT_ROWS_PER_STATEMENT;
+        List<List<T>> chunks = new ArrayList<>((rows.size() + size - 1) / size);
+        for (int from = 0; from < rows.size(); from += size) {
+            chunks.add(rows.subList(from, Math.min(from + size, rows.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Sum of the update counts, ignoring drivers that report SUCCESS_NO_INFO
+     */
+    static int total(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    total += count;
+                }
+            }
+        }
+        return total;
+    }
+}
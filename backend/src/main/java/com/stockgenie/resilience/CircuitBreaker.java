@@ -0,0 +1,146 @@
+package com.stockgenie.resilience;
+
+import com.stockgenie.config.AppConfig;
+
+/**
+ * Count-based circuit breaker. While closed it keeps the outcomes of the last
+ * {@code sliding-window-size} calls and opens once at least {@code minimum-calls} of them are
+ * in and the share that failed reaches {@code failure-rate-threshold}. It stays open for
+ * {@code open-duration}, then lets {@code half-open-calls} trial calls through: the breaker closes
+ * once all of them succeed and opens again as soon as one fails.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final AppConfig.Resilience.Guard settings;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private int buffered;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(AppConfig.Resilience.Guard settings) {
+        this.settings = settings;
+        this.window = new boolean[Math.max(1, settings.getSlidingWindowSize())];
+    }
+
+    /**
+     * Let a call through, or say how many ms until one would be; a call let through while
+     * half-open is one of the trials
+     */
+    synchronized long tryAcquire(long now) {
+        long wait = waitFor(now);
+        if (wait > 0) {
+            return wait;
+        }
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            trialsStarted++;
+        }
+        return 0;
+    }
+
+    /**
+     * How many ms until a call would be let through, without letting one through
+     */
+    synchronized long waitFor(long now) {
+        return switch (state) {
+            case CLOSED -> 0;
+            case OPEN -> Math.max(0, openedAt + settings.getOpenDuration() - now);
+            // The trials are running; their outcome is due well within another open period
+            case HALF_OPEN -> trialsStarted < halfOpenCalls() ? 0 : Math.max(1, settings.getOpenDuration());
+        };
+    }
+
+    synchronized State onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls()) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+        return state;
+    }
+
+    synchronized State onFailure(long now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (buffered >= Math.max(1, settings.getMinimumCalls())
+                    && failures * 100.0 / buffered >= settings.getFailureRateThreshold()) {
+                open(now);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * A call let through ended without an outcome, such as when it was cancelled; a trial
+     * slot it held goes to the next call
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+            trialsStarted--;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized int bufferedCalls() {
+        return buffered;
+    }
+
+    synchronized int failedCalls() {
+        return failures;
+    }
+
+    synchronized double failureRate() {
+        return buffered == 0 ? 0 : failures * 100.0 / buffered;
+    }
+
+    private void record(boolean failed) {
+        if (buffered == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            buffered++;
+        }
+        window[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openedAt = now;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        buffered = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    private int halfOpenCalls() {
+        return Math.max(1, settings.getHalfOpenCalls());
+    }
+}
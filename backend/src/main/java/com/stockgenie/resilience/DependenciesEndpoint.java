@@ -0,0 +1,24 @@
+package com.stockgenie.resilience;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Breaker state and bulkhead use per dependency at /actuator/dependencies
+ */
+@Component
+@Endpoint(id = "dependencies")
+@RequiredArgsConstructor
+public class DependenciesEndpoint {
+
+    private final DependencyGuards dependencyGuards;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> dependencies() {
+        return dependencyGuards.getStatus();
+    }
+}
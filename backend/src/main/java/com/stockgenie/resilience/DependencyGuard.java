@@ -0,0 +1,247 @@
+package com.stockgenie.resilience;
+
+import com.stockgenie.config.AppConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker and bulkhead in front of one dependency. A call is turned away straight
+ * away, without reaching the dependency, while the breaker is open or while
+ * {@code max-concurrent} calls to it are already running. Only failures that say something
+ * about the dependency count against the breaker: connection errors, timeouts and 5xx
+ * answers, but not 4xx answers.
+ */
+@Slf4j
+public class DependencyGuard {
+
+    /**
+     * Suggested wait when every bulkhead slot is taken
+     */
+    private static final long BULKHEAD_RETRY_AFTER_MS = 1000;
+
+    @Getter
+    private final String name;
+    private final AppConfig.Resilience.Guard settings;
+    private final boolean enabled;
+    private final CircuitBreaker breaker;
+    private final Semaphore bulkhead;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final MeterRegistry meterRegistry;
+
+    DependencyGuard(String name, AppConfig.Resilience.Guard settings, boolean enabled, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.enabled = enabled;
+        this.breaker = new CircuitBreaker(settings);
+        this.bulkhead = settings.getMaxConcurrent() > 0 ? new Semaphore(settings.getMaxConcurrent()) : null;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run a blocking call through the guard
+     */
+    public <T> T call(Supplier<T> call) {
+        Permit permit = acquire();
+        try {
+            T result = call.get();
+            permit.complete(null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            permit.complete(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Subscribe to the call through the guard; the permit is held until it signals or is cancelled
+     */
+    public <T> Mono<T> mono(Mono<T> call) {
+        return Mono.defer(() -> {
+            Permit permit = acquire();
+            return call
+                    .doOnEach(signal -> {
+                        if (signal.isOnNext() || signal.isOnComplete()) {
+                            permit.complete(null);
+                        } else if (signal.isOnError()) {
+                            permit.complete(signal.getThrowable());
+                        }
+                    })
+                    .doOnCancel(permit::abandon);
+        });
+    }
+
+    /**
+     * Subscribe to the stream through the guard; the permit is held until it terminates or is
+     * cancelled, and a stream cancelled part way counts neither way
+     */
+    public <T> Flux<T> flux(Flux<T> call) {
+        return Flux.defer(() -> {
+            Permit permit = acquire();
+            return call
+                    .doOnComplete(() -> permit.complete(null))
+                    .doOnError(permit::complete)
+                    .doOnCancel(permit::abandon);
+        });
+    }
+
+    /**
+     * Fail now if the breaker would turn a call away, without taking a permit. Lets callers
+     * give up before queueing or spending rate limit budget for a call that cannot be made.
+     */
+    public void ensureAvailable() {
+        if (!enabled) {
+            return;
+        }
+        long wait = breaker.waitFor(System.currentTimeMillis());
+        if (wait > 0) {
+            throw reject("circuit_open", wait);
+        }
+    }
+
+    public boolean isCallPermitted() {
+        return !enabled || breaker.waitFor(System.currentTimeMillis()) == 0;
+    }
+
+    /**
+     * 0 closed, 1 half-open, 2 open
+     */
+    public int getStateLevel() {
+        return breaker.state().ordinal();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("state", breaker.state().name());
+        status.put("failureRate", Math.round(breaker.failureRate() * 10) / 10.0);
+        status.put("bufferedCalls", breaker.bufferedCalls());
+        status.put("failedCalls", breaker.failedCalls());
+        status.put("inFlight", inFlight.get());
+        status.put("maxConcurrent", settings.getMaxConcurrent());
+        status.put("retryAfterMs", breaker.waitFor(System.currentTimeMillis()));
+        return status;
+    }
+
+    /**
+     * Whether the error means the dependency is unreachable, too slow or failing, looking
+     * through the causes for the first one that says either way
+     */
+    public static boolean isDependencyFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof DependencyUnavailableException) {
+                return false;
+            }
+            if (cause instanceof WebClientResponseException responseException) {
+                return responseException.getStatusCode().is5xxServerError();
+            }
+            if (cause instanceof IOException
+                    || cause instanceof TimeoutException
+                    || cause instanceof WebClientRequestException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Permit acquire() {
+        if (!enabled) {
+            return new Permit(false);
+        }
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            throw reject("bulkhead_full", BULKHEAD_RETRY_AFTER_MS);
+        }
+        CircuitBreaker.State before = breaker.state();
+        long wait = breaker.tryAcquire(System.currentTimeMillis());
+        if (wait > 0) {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            throw reject("circuit_open", wait);
+        }
+        transitioned(before, breaker.state());
+        inFlight.incrementAndGet();
+        return new Permit(true);
+    }
+
+    private DependencyUnavailableException reject(String reason, long retryAfterMs) {
+        meterRegistry.counter("stockgenie.dependency.rejected", "dependency", name, "reason", reason).increment();
+        return new DependencyUnavailableException(name, reason, retryAfterMs);
+    }
+
+    private void transitioned(CircuitBreaker.State before, CircuitBreaker.State after) {
+        if (before == after) {
+            return;
+        }
+        if (after == CircuitBreaker.State.OPEN) {
+            log.warn("Circuit breaker for {} opened, failure rate {}%, calls turned away for {} ms",
+                    name, Math.round(breaker.failureRate()), settings.getOpenDuration());
+        } else {
+            log.info("Circuit breaker for {} is now {}", name, after);
+        }
+    }
+
+    /**
+     * One call let through; only the first outcome reported counts
+     */
+    private final class Permit {
+        private final boolean guarded;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Permit(boolean guarded) {
+            this.guarded = guarded;
+        }
+
+        void complete(Throwable error) {
+            if (!guarded || !done.compareAndSet(false, true)) {
+                return;
+            }
+            release();
+            CircuitBreaker.State before = breaker.state();
+            CircuitBreaker.State after = error != null && isDependencyFailure(error)
+                    ? breaker.onFailure(System.currentTimeMillis())
+                    : breaker.onSuccess();
+            transitioned(before, after);
+        }
+
+        void abandon() {
+            if (!guarded || !done.compareAndSet(false, true)) {
+                return;
+            }
+            release();
+            breaker.onIgnored();
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.stockgenie.resilience;
+
+import com.stockgenie.config.AppConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link DependencyGuard} per dependency, each with its own breaker and bulkhead so a
+ * failing dependency never uses up the capacity of a healthy one. Settings come from
+ * {@code app.resilience.dependencies.<name>}; market data providers are guarded under their
+ * provider name.
+ */
+@Component
+public class DependencyGuards {
+
+    public static final String OLLAMA = "ollama";
+    public static final String REDIS = "redis";
+    public static final String POSTGRES = "postgres";
+
+    private final AppConfig appConfig;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DependencyGuard> guards = new ConcurrentHashMap<>();
+
+    public DependencyGuards(AppConfig appConfig, MeterRegistry meterRegistry) {
+        this.appConfig = appConfig;
+        this.meterRegistry = meterRegistry;
+        // Listed from the start, so the endpoint and gauges show them before their first call
+        appConfig.getResilience().getDependencies().keySet().forEach(this::guard);
+    }
+
+    public DependencyGuard guard(String dependency) {
+        return guards.computeIfAbsent(dependency, this::create);
+    }
+
+    public Map<String, Map<String, Object>> getStatus() {
+        Map<String, Map<String, Object>> status = new TreeMap<>();
+        guards.forEach((name, guard) -> status.put(name, guard.getStatus()));
+        return status;
+    }
+
+    private DependencyGuard create(String dependency) {
+        AppConfig.Resilience resilience = appConfig.getResilience();
+        DependencyGuard guard = new DependencyGuard(dependency, resilience.getGuard(dependency),
+                resilience.isEnabled(), meterRegistry);
+        Gauge.builder("stockgenie.dependency.state", guard, DependencyGuard::getStateLevel)
+                .description("Circuit breaker state per dependency: 0 closed, 1 half-open, 2 open")
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        Gauge.builder("stockgenie.dependency.in.flight", guard, DependencyGuard::getInFlight)
+                .description("Calls running against the dependency")
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        return guard;
+    }
+}
@@ -0,0 +1,25 @@
+package com.stockgenie.resilience;
+
+import lombok.Getter;
+
+/**
+ * A call was turned away without reaching the dependency, because its circuit breaker is
+ * open or its bulkhead is full; callers should answer 503 with the Retry-After hint
+ */
+@Getter
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+    private final long retryAfterMs;
+
+    DependencyUnavailableException(String dependency, String reason, long retryAfterMs) {
+        // Thrown on every call while a dependency is down, so skip the stack trace
+        super(dependency + " is unavailable: " + reason, null, false, false);
+        this.dependency = dependency;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+}
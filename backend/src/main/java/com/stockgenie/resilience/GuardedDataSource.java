@@ -0,0 +1,93 @@
+package com.stockgenie.resilience;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.function.Supplier;
+
+/**
+ * Puts the database's circuit breaker in front of connection checkout. While Postgres is down
+ * every checkout would otherwise wait out the pool's connection timeout; with the breaker
+ * open it fails straight away. The pool itself bounds concurrency, so no bulkhead is needed.
+ */
+public class GuardedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Supplier<DependencyGuard> guardSupplier;
+    private volatile DependencyGuard guard;
+
+    /**
+     * The guard is looked up on first use, so wrapping the pool does not pull the guards and
+     * the meter registry into being while data sources are still being set up
+     */
+    public GuardedDataSource(DataSource targetDataSource, Supplier<DependencyGuard> guardSupplier) {
+        super(targetDataSource);
+        this.guardSupplier = guardSupplier;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return checkout(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return checkout(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Close the pool on shutdown, as it would be closed were it not wrapped
+     */
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Connection checkout(ConnectionCall call) throws SQLException {
+        try {
+            return guard().call(() -> {
+                try {
+                    return call.get();
+                } catch (SQLException e) {
+                    throw new CheckoutFailure(e);
+                }
+            });
+        } catch (CheckoutFailure e) {
+            throw e.getCause();
+        } catch (DependencyUnavailableException e) {
+            throw new SQLTransientConnectionException(e.getMessage(), e);
+        }
+    }
+
+    private DependencyGuard guard() {
+        DependencyGuard current = guard;
+        if (current == null) {
+            current = guardSupplier.get();
+            guard = current;
+        }
+        return current;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionCall {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Carries a checkout's SQLException through the guard, which classifies it by its cause
+     */
+    private static class CheckoutFailure extends RuntimeException {
+        CheckoutFailure(SQLException cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
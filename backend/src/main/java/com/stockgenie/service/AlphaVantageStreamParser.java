@@ -0,0 +1,460 @@
+package com.stockgenie.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.stockgenie.analysis.PriceSeries;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Incremental parser for Alpha Vantage TIME_SERIES_DAILY bodies.
+ *
+ * Bytes are pushed through Jackson's non-blocking parser chunk by chunk as they
+ * arrive from WebClient, so no String, JsonNode tree or intermediate map is ever
+ * built. Only bars inside the requested date range are kept, and those go
+ * straight into primitive arrays; memory is bounded by the size of the range,
+ * not the size of the payload. Numbers are decoded from the parser's character
+ * buffer without allocating per value; field names (including the dates) go
+ * through Jackson's canonicalizing symbol table.
+ */
+public final class AlphaVantageStreamParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String TIME_SERIES_FIELD = "Time Series (Daily)";
+
+    private static final int OPEN = 0;
+    private static final int HIGH = 1;
+    private static final int LOW = 2;
+    private static final int CLOSE = 3;
+    private static final int VOLUME = 4;
+    private static final int ALL_FIELDS = 0b11111;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private final String symbol;
+    private final int startEpochDay;
+    private final int endEpochDay;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private int depth;
+    private RootField rootField = RootField.OTHER;
+    private boolean inSeries;
+    private String errorMessage;
+    private int barsSeen;
+
+    // Bar currently being decoded
+    private boolean barInRange;
+    private int barEpochDay;
+    private int barField = -1;
+    private int barFieldsSeen;
+    private final double[] barPrices = new double[4];
+    private long barVolume;
+
+    // Accepted bars, in arrival order (Alpha Vantage sends newest first)
+    private int size;
+    private int[] epochDays = new int[64];
+    private double[] open = new double[64];
+    private double[] high = new double[64];
+    private double[] low = new double[64];
+    private double[] close = new double[64];
+    private long[] volume = new long[64];
+
+    private enum RootField {
+        TIME_SERIES,
+        ERROR,
+        OTHER
+    }
+
+    public AlphaVantageStreamParser(String symbol, LocalDate startDate, LocalDate endDate) {
+        this.symbol = symbol;
+        this.startEpochDay = toEpochDayInt(startDate);
+        this.endEpochDay = toEpochDayInt(endDate);
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create non-blocking JSON parser", e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Parse a response body flux; each buffer is released as soon as it has been consumed
+     */
+    public static Mono<Result> parse(Flux<DataBuffer> body, String symbol, LocalDate startDate, LocalDate endDate) {
+        return Mono.defer(() -> {
+            AlphaVantageStreamParser streamParser = new AlphaVantageStreamParser(symbol, startDate, endDate);
+            return body
+                    .handle((DataBuffer buffer, SynchronousSink<Void> sink) -> {
+                        try {
+                            streamParser.feed(buffer);
+                        } catch (IOException e) {
+                            sink.error(e);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(streamParser::finish))
+                    .doFinally(signal -> streamParser.close());
+        });
+    }
+
+    /**
+     * Feed one chunk of the body
+     */
+    public void feed(DataBuffer buffer) throws IOException {
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                feed(iterator.next());
+            }
+        }
+    }
+
+    /**
+     * Feed one chunk of the body; the buffer is fully consumed before this returns
+     */
+    public void feed(ByteBuffer buffer) throws IOException {
+        feeder.feedInput(buffer);
+        drain();
+    }
+
+    /**
+     * Signal end of input and return the bars in range, sorted by date ascending
+     */
+    public Result finish() throws IOException {
+        feeder.endOfInput();
+        drain();
+        return new Result(buildSeries(), errorMessage, barsSeen);
+    }
+
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            // Nothing is held beyond the parser's own buffers
+        }
+    }
+
+    private static int toEpochDayInt(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE + 1L, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+            case START_ARRAY:
+                depth++;
+                if (depth == 2) {
+                    inSeries = rootField == RootField.TIME_SERIES && token == JsonToken.START_OBJECT;
+                } else if (depth == 3 && inSeries) {
+                    barField = -1;
+                    barFieldsSeen = 0;
+                }
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                if (depth == 3 && inSeries) {
+                    endBar();
+                } else if (depth == 2) {
+                    inSeries = false;
+                }
+                depth--;
+                break;
+            case FIELD_NAME:
+                if (depth == 1) {
+                    rootField = classifyRootField(parser.currentName());
+                } else if (depth == 2 && inSeries) {
+                    startBar();
+                } else if (depth == 3 && inSeries) {
+                    barField = barFieldIndex();
+                }
+                break;
+            case VALUE_STRING:
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                if (depth == 1 && rootField == RootField.ERROR && errorMessage == null) {
+                    errorMessage = parser.getText();
+                } else if (depth == 3 && inSeries && barInRange && barField >= 0) {
+                    readBarValue();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static RootField classifyRootField(String name) {
+        if (TIME_SERIES_FIELD.equals(name)) {
+            return RootField.TIME_SERIES;
+        }
+        if ("Error Message".equals(name) || "Note".equals(name) || "Information".equals(name)) {
+            return RootField.ERROR;
+        }
+        return RootField.OTHER;
+    }
+
+    private void startBar() throws IOException {
+        barsSeen++;
+        barEpochDay = parseEpochDay(parser.currentName());
+        barInRange = barEpochDay != Integer.MIN_VALUE && barEpochDay >= startEpochDay && barEpochDay <= endEpochDay;
+    }
+
+    /**
+     * Map "1. open" .. "5. volume" to a field slot by its leading digit
+     */
+    private int barFieldIndex() throws IOException {
+        String name = parser.currentName();
+        if (!barInRange || name == null || name.isEmpty()) {
+            return -1;
+        }
+        int index = name.charAt(0) - '1';
+        return index >= OPEN && index <= VOLUME ? index : -1;
+    }
+
+    private void readBarValue() throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+
+        if (barField == VOLUME) {
+            long parsed = parseLong(chars, offset, length);
+            if (parsed < 0) {
+                return;
+            }
+            barVolume = parsed;
+        } else {
+            double parsed = parseDecimal(chars, offset, length);
+            if (Double.isNaN(parsed)) {
+                return;
+            }
+            barPrices[barField] = parsed;
+        }
+        barFieldsSeen |= 1 << barField;
+    }
+
+    private void endBar() {
+        if (barInRange && barFieldsSeen == ALL_FIELDS) {
+            append(barEpochDay, barPrices[OPEN], barPrices[HIGH], barPrices[LOW], barPrices[CLOSE], barVolume);
+        }
+        barInRange = false;
+    }
+
+    private void append(int epochDay, double o, double h, double l, double c, long v) {
+        if (size == epochDays.length) {
+            int capacity = size + (size >> 1);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+        epochDays[size] = epochDay;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    private PriceSeries buildSeries() {
+        PriceSeries.Builder builder = PriceSeries.builder(symbol, size);
+        if (isStrictly(-1)) {
+            for (int i = size - 1; i >= 0; i--) {
+                appendTo(builder, i);
+            }
+        } else if (isStrictly(1)) {
+            for (int i = 0; i < size; i++) {
+                appendTo(builder, i);
+            }
+        } else {
+            // Unordered or duplicated dates: sort (epochDay, index) pairs packed into longs
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int previousDay = Integer.MIN_VALUE;
+            for (long key : keys) {
+                int index = (int) key;
+                if (epochDays[index] != previousDay) {
+                    appendTo(builder, index);
+                    previousDay = epochDays[index];
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private boolean isStrictly(int direction) {
+        for (int i = 1; i < size; i++) {
+            if (Integer.signum(epochDays[i] - epochDays[i - 1]) != direction) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendTo(PriceSeries.Builder builder, int i) {
+        builder.add(epochDays[i], open[i], high[i], low[i], close[i], volume[i]);
+    }
+
+    /**
+     * Parse yyyy-MM-dd; returns Integer.MIN_VALUE when malformed
+     */
+    static int parseEpochDay(String text) {
+        if (text == null || text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parse a plain decimal such as "187.4400". Up to 15 significant digits are
+     * parsed as an exact long mantissa and divided by a power of ten, which is
+     * correctly rounded; anything else falls back to Double.parseDouble.
+     * Returns NaN when the text is not a number.
+     */
+    static double parseDecimal(char[] chars, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative) {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digitCount = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (digitCount == 15 || scale == 18) {
+                    return parseDoubleFallback(chars, offset, length);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digitCount++;
+                }
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return parseDoubleFallback(chars, offset, length);
+            }
+        }
+        if (length == 0 || scale == 0 || (negative && length == 1)) {
+            return Double.NaN;
+        }
+
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleFallback(char[] chars, int offset, int length) {
+        try {
+            return Double.parseDouble(new String(chars, offset, length));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parse a non-negative integer; returns -1 when malformed
+     */
+    static long parseLong(char[] chars, int offset, int length) {
+        if (length == 0 || length > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Outcome of parsing one response
+     */
+    public static final class Result {
+
+        private final PriceSeries series;
+        private final String errorMessage;
+        private final int barsInResponse;
+
+        Result(PriceSeries series, String errorMessage, int barsInResponse) {
+            this.series = series;
+            this.errorMessage = errorMessage;
+            this.barsInResponse = barsInResponse;
+        }
+
+        /** Bars within the requested range, ascending by date */
+        public PriceSeries getSeries() {
+            return series;
+        }
+
+        /** "Error Message", "Note" or "Information" text if the API returned one */
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        /** Total number of daily bars in the payload, including those outside the range */
+        public int getBarsInResponse() {
+            return barsInResponse;
+        }
+
+        public boolean hasError() {
+            return errorMessage != null;
+        }
+    }
+}
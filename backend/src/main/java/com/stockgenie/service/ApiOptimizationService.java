@@ -1,30 +1,44 @@
 package com.stockgenie.service;
 
 import com.stockgenie.config.FinancialApiConfig;
-import lombok.RequiredArgsConstructor;
+import com.stockgenie.config.UpstreamWebClients;
+import com.stockgenie.resilience.DependencyGuard;
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.resilience.DependencyUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ApiOptimizationService {
     
-    private final WebClient.Builder webClientBuilder;
+    private static final String PROVIDER = "alpha-vantage";
+    
+    private final UpstreamWebClients upstreamWebClients;
     private final FinancialApiConfig financialApiConfig;
     private final RateLimitService rateLimitService;
+    private final DependencyGuards dependencyGuards;
+    private final Counter originatedCalls;
+    private final Counter coalescedCalls;
     
     @Value("${financial.api.alpha-vantage.timeout:30000}")
     private int apiTimeout;
@@ -35,123 +49,204 @@ public class ApiOptimizationService {
     @Value("${financial.api.alpha-vantage.retry-delay:1000}")
     private int retryDelay;
     
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
-    private final Map<String, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
+    @Value("${financial.api.alpha-vantage.rate-limit-max-wait:60000}")
+    private int rateLimitMaxWait;
+    
+    private final Map<String, CompletableFuture<?>> pendingRequests = new ConcurrentHashMap<>();
+    
+    public ApiOptimizationService(UpstreamWebClients upstreamWebClients,
+                                  FinancialApiConfig financialApiConfig,
+                                  RateLimitService rateLimitService,
+                                  DependencyGuards dependencyGuards,
+                                  MeterRegistry meterRegistry) {
+        this.upstreamWebClients = upstreamWebClients;
+        this.financialApiConfig = financialApiConfig;
+        this.rateLimitService = rateLimitService;
+        this.dependencyGuards = dependencyGuards;
+        this.originatedCalls = Counter.builder("stockgenie.upstream.calls")
+                .description("Upstream API calls by whether they started a request or joined one in flight")
+                .tag("outcome", "originated")
+                .register(meterRegistry);
+        this.coalescedCalls = Counter.builder("stockgenie.upstream.calls")
+                .description("Upstream API calls by whether they started a request or joined one in flight")
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Reactive variant of {@link #makeApiCallWithRetry(String, String)}: no thread
+     * is held while the call, its retries or rate limit waits are pending
+     */
+    public Mono<String> makeApiCallReactive(String url, String requestKey) {
+        return makeApiCallReactive(url, requestKey, response -> response.bodyToMono(String.class));
+    }
+    
+    /**
+     * Reactive variant of the body-reader call; shares in-flight calls like the blocking one.
+     * Cancelling one subscriber does not cancel the call for the others.
+     */
+    public <T> Mono<T> makeApiCallReactive(String url, String requestKey, Function<WebClient.ResponseSpec, Mono<T>> bodyReader) {
+        return makeApiCallReactive(PROVIDER, url, requestKey, bodyReader);
+    }
+    
+    /**
+     * Reactive body-reader call against the given provider's rate limits
+     */
+    public <T> Mono<T> makeApiCallReactive(String provider, String url, String requestKey,
+                                           Function<WebClient.ResponseSpec, Mono<T>> bodyReader) {
+        return Mono.fromFuture(() -> singleFlight(provider, url, requestKey, bodyReader), true);
+    }
     
     /**
      * Make API call with retry mechanism
      */
     public String makeApiCallWithRetry(String url, String requestKey) {
-        // Check if request is already pending
-        if (pendingRequests.containsKey(requestKey)) {
-            log.debug("Request already pending for key: {}", requestKey);
-            try {
-                return pendingRequests.get(requestKey).get();
-            } catch (Exception e) {
-                log.warn("Error waiting for pending request: {}", e.getMessage());
-            }
-        }
-        
-        // Create new request
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            return executeWithRetry(url);
-        }, executorService);
-        
-        pendingRequests.put(requestKey, future);
-        
+        return makeApiCallWithRetry(url, requestKey, response -> response.bodyToMono(String.class));
+    }
+    
+    /**
+     * Make API call with retry mechanism, decoding the body with the given reader.
+     * Lets callers consume the body as a stream instead of a buffered String.
+     *
+     * Concurrent callers with the same request key share a single upstream call
+     * (single-flight): the first one starts it, the rest wait on the same future.
+     * Callers sharing a key must therefore also share the result type.
+     */
+    public <T> T makeApiCallWithRetry(String url, String requestKey, Function<WebClient.ResponseSpec, Mono<T>> bodyReader) {
         try {
-            String result = future.get();
-            return result;
-        } catch (Exception e) {
+            return singleFlight(PROVIDER, url, requestKey, bodyReader).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for API call", e);
+        } catch (ExecutionException e) {
             log.error("Error executing API call: {}", e.getMessage());
-            throw new RuntimeException("API call failed", e);
-        } finally {
-            pendingRequests.remove(requestKey);
+            throw new RuntimeException("API call failed", e.getCause());
         }
     }
     
     /**
-     * Execute API call with retry logic
+     * Return the in-flight call for the key, starting one if there is none
      */
-    private String executeWithRetry(String url) {
-        int attempts = 0;
-        Exception lastException = null;
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> singleFlight(String provider, String url, String requestKey,
+                                                  Function<WebClient.ResponseSpec, Mono<T>> bodyReader) {
+        CompletableFuture<T> candidate = new CompletableFuture<>();
+        CompletableFuture<T> shared = (CompletableFuture<T>) pendingRequests.computeIfAbsent(requestKey, key -> candidate);
         
-        while (attempts < retryAttempts) {
-            try {
-                // Check rate limits before making call
-                if (!rateLimitService.canMakeApiCall("alpha-vantage")) {
-                    log.warn("Rate limit exceeded, waiting before retry");
-                    Thread.sleep(retryDelay * 2);
-                    continue;
-                }
-                
-                WebClient webClient = webClientBuilder.build();
-                String response = webClient.get()
+        if (shared == candidate) {
+            originatedCalls.increment();
+            executeWithRetry(provider, url, bodyReader)
+                    .toFuture()
+                    .whenComplete((result, error) -> {
+                        // Unregister before completing so a caller arriving afterwards starts a fresh call
+                        pendingRequests.remove(requestKey, candidate);
+                        if (error != null) {
+                            candidate.completeExceptionally(
+                                    error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                        } else {
+                            candidate.complete(result);
+                        }
+                    });
+        } else {
+            coalescedCalls.increment();
+            log.debug("Joining in-flight request for key: {}", requestKey);
+        }
+        return shared;
+    }
+    
+    /**
+     * Execute API call with retry logic, without blocking any thread.
+     * Failed attempts back off exponentially with jitter; client errors are not retried.
+     * Every attempt goes through the provider's circuit breaker and bulkhead, and while the
+     * breaker is open the call fails before any rate limit budget is spent on it. Attempts
+     * use the provider's pooled client, so they reuse its open connections.
+     */
+    private <T> Mono<T> executeWithRetry(String provider, String url, Function<WebClient.ResponseSpec, Mono<T>> bodyReader) {
+        DependencyGuard guard = dependencyGuards.guard(provider);
+        WebClient webClient = upstreamWebClients.client(provider);
+        Mono<T> call = guard.mono(Mono.defer(() -> bodyReader.apply(webClient.get()
                         .uri(url)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(Duration.ofMillis(apiTimeout))
-                        .block();
-                
-                // Record successful API call
-                rateLimitService.recordApiCall("alpha-vantage");
-                
-                log.debug("API call successful on attempt {}", attempts + 1);
-                return response;
-                
-            } catch (WebClientResponseException e) {
-                lastException = e;
-                attempts++;
-                log.warn("API call failed on attempt {}: {} - {}", attempts, e.getStatusCode(), e.getResponseBodyAsString());
-                
-                if (e.getStatusCode().is4xxClientError()) {
-                    // Don't retry on client errors
-                    break;
-                }
-                
-                if (attempts < retryAttempts) {
-                    try {
-                        Thread.sleep(retryDelay * attempts); // Exponential backoff
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
+                        .retrieve()))
+                .timeout(Duration.ofMillis(apiTimeout)));
+        
+        return Mono.fromRunnable(guard::ensureAvailable)
+                .then(awaitRateLimit(provider))
+                .then(call)
+                .retryWhen(Retry.backoff(Math.max(0, retryAttempts - 1), Duration.ofMillis(retryDelay))
+                        .jitter(0.5)
+                        .filter(ApiOptimizationService::isRetryable)
+                        .doBeforeRetry(signal -> log.warn("API call failed on attempt {}: {}",
+                                signal.totalRetries() + 1, describe(signal.failure())))
+                        .onRetryExhaustedThrow((spec, signal) -> new RuntimeException(
+                                "API call failed after " + retryAttempts + " attempts", signal.failure())))
+                .doOnError(e -> log.error("API call failed: {}", e.getMessage()));
+    }
+    
+    /**
+     * Complete once the rate limiter has granted a call, waiting on a timer for as long as it
+     * says a call needs, up to the configured maximum. Every attempt, retries included, uses
+     * up one call of the budget.
+     */
+    private Mono<Void> awaitRateLimit(String provider) {
+        return Mono.defer(() -> acquireBefore(provider, System.currentTimeMillis() + rateLimitMaxWait));
+    }
+    
+    private Mono<Void> acquireBefore(String provider, long deadline) {
+        // The shared limiter is a blocking Redis round trip, so it runs off the timer and event loop threads
+        return Mono.fromCallable(() -> rateLimitService.tryAcquire(provider))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(acquisition -> {
+                    if (acquisition.admitted()) {
+                        return Mono.<Void>empty();
                     }
-                }
-                
-            } catch (Exception e) {
-                lastException = e;
-                attempts++;
-                log.warn("API call failed on attempt {}: {}", attempts, e.getMessage());
-                
-                if (attempts < retryAttempts) {
-                    try {
-                        Thread.sleep(retryDelay * attempts);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
+                    long wait = Math.max(1, acquisition.retryAfterMs());
+                    if (System.currentTimeMillis() + wait > deadline) {
+                        return Mono.<Void>error(new RateLimitExceededException(wait));
                     }
-                }
-            }
+                    log.warn("Rate limit exceeded for {}, waiting {} ms for the next call", provider, wait);
+                    return Mono.delay(Duration.ofMillis(wait)).then(acquireBefore(provider, deadline));
+                });
+    }
+    
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            // Don't retry on client errors
+            return !responseException.getStatusCode().is4xxClientError();
+        }
+        // The rate limiter already said the next call is too far off, or the breaker turned it away
+        return !(error instanceof RateLimitExceededException) && !(error instanceof DependencyUnavailableException);
+    }
+    
+    private static String describe(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode() + " - " + responseException.getResponseBodyAsString();
+        }
+        return error.getMessage();
+    }
+    
+    /**
+     * The rate limiter's next call is further off than we are willing to wait
+     */
+    private static class RateLimitExceededException extends RuntimeException {
+        RateLimitExceededException(long retryAfterMs) {
+            super("Rate limit exceeded, next call in " + retryAfterMs + " ms", null, false, false);
         }
-        
-        log.error("API call failed after {} attempts", retryAttempts);
-        throw new RuntimeException("API call failed after " + retryAttempts + " attempts", lastException);
     }
     
     /**
      * Batch multiple API calls
      */
     public List<String> batchApiCalls(List<String> urls, List<String> requestKeys) {
+        // Identical keys inside one batch resolve to one call
+        Map<String, CompletableFuture<String>> callsByKey = new LinkedHashMap<>();
         List<CompletableFuture<String>> futures = new ArrayList<>();
         
         for (int i = 0; i < urls.size(); i++) {
             String url = urls.get(i);
             String requestKey = requestKeys.get(i);
             
-            CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-                return makeApiCallWithRetry(url, requestKey);
-            }, executorService);
+            CompletableFuture<String> future = callsByKey.computeIfAbsent(requestKey,
+                    key -> singleFlight(PROVIDER, url, key, response -> response.bodyToMono(String.class)));
             
             futures.add(future);
         }
@@ -175,11 +270,12 @@ public class ApiOptimizationService {
     public Map<String, Object> getOptimizationStats() {
         Map<String, Object> stats = Map.of(
             "pendingRequests", pendingRequests.size(),
+            "originatedCalls", (long) originatedCalls.count(),
+            "coalescedCalls", (long) coalescedCalls.count(),
             "retryAttempts", retryAttempts,
             "retryDelay", retryDelay,
             "apiTimeout", apiTimeout,
-            "rateLimitStatus", rateLimitService.getRateLimitStatus("alpha-vantage"),
-            "threadPoolSize", 10,
+            "rateLimitStatus", rateLimitService.getRateLimitStatus(PROVIDER),
             "activeThreads", Thread.activeCount()
         );
         
@@ -193,12 +289,4 @@ public class ApiOptimizationService {
         log.info("Clearing {} pending requests", pendingRequests.size());
         pendingRequests.clear();
     }
-    
-    /**
-     * Shutdown executor service
-     */
-    public void shutdown() {
-        log.info("Shutting down API optimization service");
-        executorService.shutdown();
-    }
 }
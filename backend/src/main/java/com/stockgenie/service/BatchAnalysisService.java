@@ -0,0 +1,161 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.dto.TechnicalAnalysisDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchAnalysisService {
+
+    private final FinancialDataService financialDataService;
+    private final TechnicalAnalysisService technicalAnalysisService;
+    private final AppConfig appConfig;
+    private final Environment environment;
+
+    private Executor analysisExecutor;
+    private ForkJoinPool analysisPool;
+    private SimpleAsyncTaskExecutor virtualThreadExecutor;
+
+    @PostConstruct
+    void startPool() {
+        int parallelism = Math.max(1, appConfig.getAnalysis().getParallelism());
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Blocking fetches park cheaply on virtual threads; the limit still bounds upstream and DB pressure
+            virtualThreadExecutor = new SimpleAsyncTaskExecutor("batch-analysis-");
+            virtualThreadExecutor.setVirtualThreads(true);
+            virtualThreadExecutor.setConcurrencyLimit(parallelism);
+            analysisExecutor = virtualThreadExecutor;
+            log.info("Batch analysis running on virtual threads with parallelism {}", parallelism);
+        } else {
+            analysisPool = new ForkJoinPool(parallelism);
+            analysisExecutor = analysisPool;
+            log.info("Batch analysis pool started with parallelism {}", parallelism);
+        }
+    }
+
+    @PreDestroy
+    void stopPool() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.close();
+            return;
+        }
+        analysisPool.shutdown();
+        try {
+            if (!analysisPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                analysisPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            analysisPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Analyse many symbols at once. Symbols are processed in chunks of
+     * {@code app.analysis.batch-size}; within a chunk they fan out over a pool
+     * (virtual threads when enabled) bounded by {@code app.analysis.parallelism}.
+     * A failing symbol is reported in {@code errors} and never fails the batch.
+     */
+    public BatchAnalysisResult analyzeSymbols(List<String> symbols, List<String> indicators, int days) {
+        long startTime = System.currentTimeMillis();
+        List<String> uniqueSymbols = normalizeSymbols(symbols);
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days);
+
+        Map<String, Map<String, List<TechnicalAnalysisDto>>> results = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+
+        int chunkSize = Math.max(1, appConfig.getAnalysis().getBatchSize());
+        for (int from = 0; from < uniqueSymbols.size(); from += chunkSize) {
+            List<String> chunk = uniqueSymbols.subList(from, Math.min(from + chunkSize, uniqueSymbols.size()));
+
+            List<CompletableFuture<Map<String, List<TechnicalAnalysisDto>>>> futures = new ArrayList<>(chunk.size());
+            for (String symbol : chunk) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> analyzeSymbol(symbol, indicators, startDate, endDate), analysisExecutor));
+            }
+
+            // Join the whole chunk before starting the next one so in-flight work stays bounded
+            for (int i = 0; i < chunk.size(); i++) {
+                String symbol = chunk.get(i);
+                try {
+                    results.put(symbol, futures.get(i).join());
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Batch analysis failed for {}: {}", symbol, cause.getMessage());
+                    errors.put(symbol, cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        log.info("Batch analysis of {} symbols finished in {} ms ({} failed)", uniqueSymbols.size(), elapsed, errors.size());
+
+        return BatchAnalysisResult.builder()
+                .requested(uniqueSymbols.size())
+                .succeeded(results.size())
+                .failed(errors.size())
+                .results(results)
+                .errors(errors)
+                .elapsedMs(elapsed)
+                .build();
+    }
+
+    private Map<String, List<TechnicalAnalysisDto>> analyzeSymbol(String symbol, List<String> indicators,
+                                                                  LocalDate startDate, LocalDate endDate) {
+        List<StockDataDto> stockData = financialDataService.fetchStockData(symbol, startDate, endDate);
+        if (stockData == null || stockData.isEmpty()) {
+            throw new IllegalStateException("No stock data available for " + symbol);
+        }
+        return technicalAnalysisService.calculateIndicators(symbol, stockData, indicators);
+    }
+
+    private static List<String> normalizeSymbols(List<String> symbols) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.isBlank()) {
+                unique.add(symbol.trim().toUpperCase());
+            }
+        }
+        return new ArrayList<>(unique);
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchAnalysisResult {
+        private int requested;
+        private int succeeded;
+        private int failed;
+        private Map<String, Map<String, List<TechnicalAnalysisDto>>> results;
+        private Map<String, String> errors;
+        private long elapsedMs;
+    }
+}
@@ -1,14 +1,30 @@
 package com.stockgenie.service;
 
+import com.stockgenie.cache.CacheKeyIndex;
+import com.stockgenie.cache.TwoTierCache;
 import com.stockgenie.config.AppConfig;
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.resilience.DependencyUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -17,6 +33,32 @@ public class CacheService {
     
     private final RedisTemplate<String, Object> redisTemplate;
     private final AppConfig appConfig;
+    private final CacheManager cacheManager;
+    private final CacheKeyIndex cacheKeyIndex;
+    private final DependencyGuards dependencyGuards;
+    
+    private static final int SCAN_BATCH_SIZE = 500;
+    
+    /**
+     * Evict every cached price series and indicator result for a symbol,
+     * in the near cache and Redis, on every node
+     */
+    public void evictSymbol(String symbol) {
+        for (String cacheName : List.of("stockData", "technicalAnalysis")) {
+            try {
+                Cache cache = cacheManager.getCache(cacheName);
+                if (cache instanceof TwoTierCache twoTierCache) {
+                    twoTierCache.evictByPrefix(symbol + "_");
+                } else if (cache != null) {
+                    // Cache providers without prefix eviction lose the whole cache
+                    cache.clear();
+                }
+            } catch (Exception e) {
+                logFailure(e, "Error evicting {} from cache {}: {}", symbol, cacheName);
+            }
+        }
+        log.info("Cache cleared for symbol: {}", symbol);
+    }
     
     /**
      * Cache stock data with default TTL
@@ -44,10 +86,14 @@ public class CacheService {
      */
     public void cacheData(String key, Object data, int ttlSeconds) {
         try {
-            redisTemplate.opsForValue().set(key, data, Duration.ofSeconds(ttlSeconds));
+            redis(() -> {
+                redisTemplate.opsForValue().set(key, data, Duration.ofSeconds(ttlSeconds));
+                cacheKeyIndex.added(CacheKeyIndex.cacheNameOf(key), bytes(key), Duration.ofSeconds(ttlSeconds));
+                return null;
+            });
             log.debug("Cached data with key: {} for {} seconds", key, ttlSeconds);
         } catch (Exception e) {
-            log.error("Error caching data with key {}: {}", key, e.getMessage());
+            logFailure(e, "Error caching data with key {}: {}", key);
         }
     }
     
@@ -56,7 +102,7 @@ public class CacheService {
      */
     public Object getCachedData(String key) {
         try {
-            Object data = redisTemplate.opsForValue().get(key);
+            Object data = redis(() -> redisTemplate.opsForValue().get(key));
             if (data != null) {
                 log.debug("Cache hit for key: {}", key);
             } else {
@@ -64,7 +110,7 @@ public class CacheService {
             }
             return data;
         } catch (Exception e) {
-            log.error("Error getting cached data with key {}: {}", key, e.getMessage());
+            logFailure(e, "Error getting cached data with key {}: {}", key);
             return null;
         }
     }
@@ -74,10 +120,10 @@ public class CacheService {
      */
     public boolean hasCachedData(String key) {
         try {
-            Boolean exists = redisTemplate.hasKey(key);
+            Boolean exists = redis(() -> redisTemplate.hasKey(key));
             return exists != null && exists;
         } catch (Exception e) {
-            log.error("Error checking cache for key {}: {}", key, e.getMessage());
+            logFailure(e, "Error checking cache for key {}: {}", key);
             return false;
         }
     }
@@ -87,25 +133,22 @@ public class CacheService {
      */
     public void deleteCachedData(String key) {
         try {
-            redisTemplate.delete(key);
+            redis(() -> unlink(List.of(key)));
             log.debug("Deleted cached data with key: {}", key);
         } catch (Exception e) {
-            log.error("Error deleting cached data with key {}: {}", key, e.getMessage());
+            logFailure(e, "Error deleting cached data with key {}: {}", key);
         }
     }
     
     /**
-     * Delete cached data by pattern
+     * Delete cached data by pattern, walking the keyspace with SCAN instead of KEYS
      */
     public void deleteCachedDataByPattern(String pattern) {
         try {
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.debug("Deleted {} cached entries matching pattern: {}", keys.size(), pattern);
-            }
+            long deleted = redis(() -> unlinkMatching(pattern));
+            log.debug("Deleted {} cached entries matching pattern: {}", deleted, pattern);
         } catch (Exception e) {
-            log.error("Error deleting cached data by pattern {}: {}", pattern, e.getMessage());
+            logFailure(e, "Error deleting cached data by pattern {}: {}", pattern);
         }
     }
     
@@ -114,10 +157,10 @@ public class CacheService {
      */
     public long getTTL(String key) {
         try {
-            Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+            Long ttl = redis(() -> redisTemplate.getExpire(key, TimeUnit.SECONDS));
             return ttl != null ? ttl : -1;
         } catch (Exception e) {
-            log.error("Error getting TTL for key {}: {}", key, e.getMessage());
+            logFailure(e, "Error getting TTL for key {}: {}", key);
             return -1;
         }
     }
@@ -129,62 +172,57 @@ public class CacheService {
         try {
             long currentTTL = getTTL(key);
             if (currentTTL > 0) {
-                redisTemplate.expire(key, Duration.ofSeconds(currentTTL + additionalSeconds));
+                Duration ttl = Duration.ofSeconds(currentTTL + additionalSeconds);
+                redis(() -> {
+                    redisTemplate.expire(key, ttl);
+                    cacheKeyIndex.added(CacheKeyIndex.cacheNameOf(key), bytes(key), ttl);
+                    return null;
+                });
                 log.debug("Extended TTL for key: {} by {} seconds", key, additionalSeconds);
             }
         } catch (Exception e) {
-            log.error("Error extending TTL for key {}: {}", key, e.getMessage());
+            logFailure(e, "Error extending TTL for key {}: {}", key);
         }
     }
     
     /**
-     * Clear all cache
+     * Clear all cache entries and their key indexes. Only cache keys are touched, so
+     * rate-limit budgets and demand counters that share the Redis database survive.
      */
     public void clearAllCache() {
         try {
-            Set<String> keys = redisTemplate.keys("*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("Cleared {} cache entries", keys.size());
-            }
+            long deleted = redis(() -> {
+                long unlinked = 0;
+                for (String cacheName : CacheKeyIndex.TRACKED_CACHES) {
+                    unlinked += unlinkMatching(cacheName + "*");
+                }
+                unlinkMatching(CacheKeyIndex.INDEX_PREFIX + "*");
+                return unlinked;
+            });
+            log.info("Cleared {} cache entries", deleted);
         } catch (Exception e) {
-            log.error("Error clearing all cache: {}", e.getMessage());
+            logFailure(e, "Error clearing all cache: {}");
         }
     }
     
     /**
-     * Get cache statistics
+     * Get cache statistics from the maintained key indexes and DBSIZE; no key is scanned
      */
     public CacheStats getCacheStats() {
         try {
-            Set<String> allKeys = redisTemplate.keys("*");
-            int totalKeys = allKeys != null ? allKeys.size() : 0;
-            
-            int stockDataKeys = 0;
-            int technicalAnalysisKeys = 0;
-            int llmAnalysisKeys = 0;
-            
-            if (allKeys != null) {
-                for (String key : allKeys) {
-                    if (key.startsWith("stockData")) {
-                        stockDataKeys++;
-                    } else if (key.startsWith("technicalAnalysis")) {
-                        technicalAnalysisKeys++;
-                    } else if (key.startsWith("llmAnalysis")) {
-                        llmAnalysisKeys++;
-                    }
-                }
-            }
-            
-            return CacheStats.builder()
-                    .totalKeys(totalKeys)
-                    .stockDataKeys(stockDataKeys)
-                    .technicalAnalysisKeys(technicalAnalysisKeys)
-                    .llmAnalysisKeys(llmAnalysisKeys)
-                    .build();
+            return redis(() -> {
+                Long totalKeys = redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+                
+                return CacheStats.builder()
+                        .totalKeys(totalKeys != null ? totalKeys.intValue() : 0)
+                        .stockDataKeys((int) cacheKeyIndex.size("stockData"))
+                        .technicalAnalysisKeys((int) cacheKeyIndex.size("technicalAnalysis"))
+                        .llmAnalysisKeys((int) cacheKeyIndex.size("llmAnalysis"))
+                        .build();
+            });
                     
         } catch (Exception e) {
-            log.error("Error getting cache stats: {}", e.getMessage());
+            logFailure(e, "Error getting cache stats: {}");
             return CacheStats.builder()
                     .totalKeys(0)
                     .stockDataKeys(0)
@@ -194,6 +232,72 @@ public class CacheService {
         }
     }
     
+    /**
+     * Run the Redis work through its circuit breaker, so while Redis is down it fails at once
+     * instead of waiting out the command timeout
+     */
+    private <T> T redis(Supplier<T> call) {
+        return dependencyGuards.guard(DependencyGuards.REDIS).call(call);
+    }
+    
+    /**
+     * Log a failed Redis operation; the format's last placeholder takes the error message.
+     * Calls turned away while the breaker is open are expected and only logged at debug.
+     */
+    private void logFailure(Exception e, String format, Object... args) {
+        Object[] withMessage = Arrays.copyOf(args, args.length + 1);
+        withMessage[args.length] = e.getMessage();
+        if (e instanceof DependencyUnavailableException) {
+            log.debug(format, withMessage);
+        } else {
+            log.error(format, withMessage);
+        }
+    }
+    
+    /**
+     * Unlink every key matching the pattern in SCAN-sized batches so Redis is never blocked for long
+     */
+    private long unlinkMatching(String pattern) {
+        long deleted = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == SCAN_BATCH_SIZE) {
+                    deleted += unlink(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleted += unlink(batch);
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * UNLINK frees values off the Redis main thread; the key indexes are updated to match
+     */
+    private long unlink(List<String> keys) {
+        Long removed = redisTemplate.unlink(keys);
+        
+        Map<String, List<byte[]>> keysByCache = new HashMap<>();
+        for (String key : keys) {
+            String cacheName = CacheKeyIndex.cacheNameOf(key);
+            if (cacheName != null) {
+                keysByCache.computeIfAbsent(cacheName, name -> new ArrayList<>()).add(bytes(key));
+            }
+        }
+        keysByCache.forEach((cacheName, cacheKeys) -> cacheKeyIndex.removed(cacheName, cacheKeys.toArray(new byte[0][])));
+        
+        return removed != null ? removed : 0;
+    }
+    
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+    
     /**
      * Cache statistics DTO
      */
@@ -29,12 +29,23 @@ public class DataCleanupService {
     @Value("${app.data.cleanup-enabled:true}")
     private boolean cleanupEnabled;
     
+    @Value("${app.data.partition-months-ahead:3}")
+    private int partitionMonthsAhead;
+    
     /**
-     * Scheduled cleanup task - runs daily at 2 AM
+     * Scheduled cleanup task - runs daily at 2 AM. Expired data goes by dropping
+     * whole monthly partitions, so there is nothing left for VACUUM to reclaim.
      */
     @Scheduled(cron = "${app.data.cleanup-schedule:0 0 2 * * ?}")
     @Transactional
     public void performScheduledCleanup() {
+        // Upcoming partitions are needed even when cleanup is off
+        try {
+            ensurePartitions();
+        } catch (Exception e) {
+            log.error("Error creating table partitions", e);
+        }
+        
         if (!cleanupEnabled) {
             log.info("Data cleanup is disabled");
             return;
@@ -47,7 +58,7 @@ public class DataCleanupService {
             
             log.info("Data cleanup completed successfully: {}", cleanupStats);
             
-            // Optimize database after cleanup
+            // Refresh planner statistics after partitions were dropped
             optimizeDatabase();
             
         } catch (Exception e) {
@@ -86,6 +97,40 @@ public class DataCleanupService {
         return stats;
     }
     
+    /**
+     * Create the monthly partitions of stock_data and technical_analysis from the
+     * retention cutoff to the configured number of months ahead
+     */
+    public Map<String, Integer> ensurePartitions() {
+        Map<String, Integer> created = new HashMap<>();
+        LocalDate fromDate = LocalDate.now().minusDays(retentionDays);
+        LocalDate toDate = LocalDate.now().plusMonths(partitionMonthsAhead);
+        
+        try (Connection connection = dataSource.getConnection()) {
+            String sql = "SELECT create_monthly_partitions(?, ?, ?)";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (String table : new String[]{"stock_data", "technical_analysis"}) {
+                    stmt.setString(1, table);
+                    stmt.setObject(2, fromDate);
+                    stmt.setObject(3, toDate);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        int count = rs.next() ? rs.getInt(1) : 0;
+                        created.put(table, count);
+                        if (count > 0) {
+                            log.info("Created {} monthly partitions for {}", count, table);
+                        }
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            log.error("Error creating table partitions", e);
+            throw new RuntimeException("Failed to create table partitions", e);
+        }
+        
+        return created;
+    }
+    
     /**
      * Get database statistics
      */
@@ -149,6 +194,8 @@ public class DataCleanupService {
         policy.put("retentionDays", retentionDays);
         policy.put("cleanupEnabled", cleanupEnabled);
         policy.put("cutoffDate", LocalDate.now().minusDays(retentionDays));
+        policy.put("granularity", "Monthly partitions, dropped once entirely past the cutoff");
+        policy.put("partitionMonthsAhead", partitionMonthsAhead);
         policy.put("nextCleanup", "Daily at 2 AM");
         return policy;
     }
@@ -1,26 +1,28 @@
 package com.stockgenie.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockgenie.analysis.PriceSeries;
+import com.stockgenie.analysis.TradingCalendar;
 import com.stockgenie.config.FinancialApiConfig;
-import com.stockgenie.dto.AlphaVantageResponse;
 import com.stockgenie.dto.StockDataDto;
 import com.stockgenie.entity.StockData;
+import com.stockgenie.provider.MarketDataRouter;
 import com.stockgenie.repository.StockDataRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,36 +33,45 @@ public class FinancialDataService {
     private final StockDataRepository stockDataRepository;
     private final FinancialApiConfig financialApiConfig;
     private final WebClient.Builder webClientBuilder;
-    private final ObjectMapper objectMapper;
     private final RateLimitService rateLimitService;
     private final ApiOptimizationService apiOptimizationService;
+    private final CacheService cacheService;
+    private final StockDataCoverageService coverageService;
+    private final SymbolDemandService symbolDemandService;
+    private final MarketDataRouter marketDataRouter;
     
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    /**
+     * Rows read per keyset page when streaming a range
+     */
+    private static final int STREAM_PAGE_SIZE = 500;
     
     /**
      * Fetch stock data for a symbol within a date range
-     * First checks database, then fetches from API if needed
+     * Serves the database for covered dates and fetches only the missing trading-day ranges from the API
      */
     @Cacheable(value = "stockData", key = "#symbol + '_' + #startDate + '_' + #endDate")
     public List<StockDataDto> fetchStockData(String symbol, LocalDate startDate, LocalDate endDate) {
         log.info("Fetching stock data for {} from {} to {}", symbol, startDate, endDate);
+        symbolDemandService.recordCacheMiss(symbol);
         
-        // Check if we have data in the database
-        if (hasDataInRange(symbol, startDate, endDate)) {
+        List<StockDataCoverageService.DateRange> missing = findMissingRanges(symbol, startDate, endDate);
+        if (missing.isEmpty()) {
             log.info("Found existing data in database for {}", symbol);
             return getDataFromDatabase(symbol, startDate, endDate);
         }
         
         // Fetch from API
-        log.info("Fetching data from API for {}", symbol);
-        return fetchFromAlphaVantage(symbol, startDate, endDate);
+        log.info("Fetching {} missing range(s) from API for {}: {}", missing.size(), symbol, missing);
+        return fetchFromProviders(symbol, startDate, endDate, missing);
     }
     
     /**
-     * Check if we have data in the database for the given range
+     * Trading-day ranges not yet fetched; days whose daily bar is not final yet are never requested
      */
-    private boolean hasDataInRange(String symbol, LocalDate startDate, LocalDate endDate) {
-        return stockDataRepository.existsBySymbolAndDateBetween(symbol, startDate, endDate);
+    private List<StockDataCoverageService.DateRange> findMissingRanges(String symbol, LocalDate startDate, LocalDate endDate) {
+        LocalDate lastCompleted = TradingCalendar.lastCompletedTradingDay();
+        LocalDate fetchableEnd = endDate.isAfter(lastCompleted) ? lastCompleted : endDate;
+        return coverageService.findMissingRanges(symbol, startDate, fetchableEnd);
     }
     
     /**
@@ -74,145 +85,162 @@ public class FinancialDataService {
     }
     
     /**
-     * Fetch data from Alpha Vantage API
+     * Reactive variant of {@link #fetchStockData}: the upstream call, its retries and
+     * rate limit waits hold no thread, and database work runs on the bounded elastic scheduler
      */
-    private List<StockDataDto> fetchFromAlphaVantage(String symbol, LocalDate startDate, LocalDate endDate) {
-        try {
-            String apiKey = financialApiConfig.getAlphaVantage().getApiKey();
-            String baseUrl = financialApiConfig.getAlphaVantage().getBaseUrl();
-            
-            if ("demo".equals(apiKey) || apiKey == null || apiKey.trim().isEmpty()) {
-                log.warn("Using demo API key - limited functionality. Please set ALPHA_VANTAGE_API_KEY environment variable for real data.");
-                return createMockData(symbol, startDate, endDate);
+    public Mono<List<StockDataDto>> fetchStockDataReactive(String symbol, LocalDate startDate, LocalDate endDate) {
+        return Mono.fromCallable(() -> {
+                    symbolDemandService.recordCacheMiss(symbol);
+                    return findMissingRanges(symbol, startDate, endDate);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(missing -> {
+                    if (missing.isEmpty()) {
+                        log.info("Found existing data in database for {}", symbol);
+                        return Mono.fromCallable(() -> getDataFromDatabase(symbol, startDate, endDate))
+                                .subscribeOn(Schedulers.boundedElastic());
+                    }
+                    log.info("Fetching {} missing range(s) from API for {}: {}", missing.size(), symbol, missing);
+                    return fetchFromProvidersReactive(symbol, startDate, endDate, missing);
+                });
+    }
+    
+    /**
+     * Fetch the missing ranges from the market data providers
+     */
+    private List<StockDataDto> fetchFromProviders(String symbol, LocalDate startDate, LocalDate endDate,
+                                                  List<StockDataCoverageService.DateRange> missing) {
+        return fetchFromProvidersReactive(symbol, startDate, endDate, missing).block();
+    }
+    
+    /**
+     * Fetch the missing ranges from the market data providers without blocking, store the new bars and
+     * return the whole requested range from the database. Falls back to stored or mock data on any failure.
+     */
+    private Mono<List<StockDataDto>> fetchFromProvidersReactive(String symbol, LocalDate startDate, LocalDate endDate,
+                                                                List<StockDataCoverageService.DateRange> missing) {
+        if (isDemoApiKey()) {
+            log.warn("Using demo API keys - limited functionality. Please set ALPHA_VANTAGE_API_KEY or EODHD_API_KEY environment variable for real data.");
+            return Mono.fromCallable(() -> createMockData(symbol, startDate, endDate));
+        }
+        
+        return storeMissingRangesReactive(symbol, missing)
+                .publishOn(Schedulers.boundedElastic())
+                .map(stored -> stored ? getDataFromDatabase(symbol, startDate, endDate) : fallbackData(symbol, startDate, endDate));
+    }
+    
+    private boolean isDemoApiKey() {
+        return !marketDataRouter.hasConfiguredProvider();
+    }
+    
+    /**
+     * Fetch the missing ranges from the market data providers and store the new bars. Emits whether
+     * they were stored; upstream errors and empty responses are logged and reported as false.
+     */
+    private Mono<Boolean> storeMissingRangesReactive(String symbol, List<StockDataCoverageService.DateRange> missing) {
+        LocalDate fetchStart = missing.get(0).start();
+        LocalDate fetchEnd = missing.get(missing.size() - 1).end();
+        
+        return marketDataRouter.fetchDailyBars(symbol, fetchStart, fetchEnd)
+                .publishOn(Schedulers.boundedElastic())
+                .map(fetched -> {
+                    storeMissingBars(symbol, convertToDtos(fetched.series(), fetched.provider()), missing);
+                    return true;
+                })
+                .onErrorResume(e -> {
+                    // Retry exhaustion wraps the last upstream error
+                    Throwable cause = e instanceof WebClientResponseException || e.getCause() == null ? e : e.getCause();
+                    if (cause instanceof WebClientResponseException responseException) {
+                        log.error("HTTP error fetching stock data for {}: {} - {}", symbol,
+                                responseException.getStatusCode(), responseException.getResponseBodyAsString());
+                    } else {
+                        log.error("Unable to fetch stock data for {}: {}", symbol, e.getMessage());
+                    }
+                    return Mono.just(false);
+                });
+    }
+    
+    /**
+     * Save the fetched bars that fall in a missing range, then mark the ranges covered up to the
+     * last bar the provider returned. Days after it may simply not be published yet, so they stay
+     * missing and are asked for again.
+     */
+    private void storeMissingBars(String symbol, List<StockDataDto> fetched,
+                                  List<StockDataCoverageService.DateRange> missing) {
+        List<StockDataDto> newBars = new ArrayList<>();
+        LocalDate lastBar = null;
+        for (StockDataDto bar : fetched) {
+            if (inAnyRange(bar.getDate(), missing)) {
+                newBars.add(bar);
             }
-            
-            log.info("Fetching real data from Alpha Vantage for symbol: {}", symbol);
-            
-            // Build API URL
-            String apiUrl = baseUrl + "?function=TIME_SERIES_DAILY&symbol=" + symbol + 
-                           "&outputsize=full&apikey=" + apiKey;
-            
-            // Use optimized API service with retry mechanism
-            String responseJson = apiOptimizationService.makeApiCallWithRetry(apiUrl, "stock_data_" + symbol);
-            
-            if (responseJson == null || responseJson.trim().isEmpty()) {
-                log.error("Empty response received from Alpha Vantage for {}", symbol);
-                return createMockData(symbol, startDate, endDate);
+            if (lastBar == null || bar.getDate().isAfter(lastBar)) {
+                lastBar = bar.getDate();
             }
-            
-            // Check for API error messages
-            if (responseJson.contains("\"Error Message\"") || responseJson.contains("\"Note\"")) {
-                log.error("Alpha Vantage API error for {}: {}", symbol, responseJson);
-                return createMockData(symbol, startDate, endDate);
+        }
+        
+        // Upserted, so bars a concurrent fetch or an older row already stored are simply overwritten
+        if (!newBars.isEmpty()) {
+            saveStockDataToDatabase(newBars);
+        }
+        
+        if (lastBar == null) {
+            log.info("No bars returned for {} between {} and {}, leaving the range missing", symbol,
+                    missing.get(0).start(), missing.get(missing.size() - 1).end());
+            return;
+        }
+        for (StockDataCoverageService.DateRange range : missing) {
+            if (range.start().isAfter(lastBar)) {
+                break;
             }
-            
-            // Parse the JSON response
-            AlphaVantageResponse response = parseAlphaVantageResponse(responseJson);
-            
-            if (response == null || response.getTimeSeries() == null || response.getTimeSeries().isEmpty()) {
-                log.error("No valid time series data received from Alpha Vantage for {}", symbol);
-                return createMockData(symbol, startDate, endDate);
+            coverageService.markCovered(symbol, range.start(), range.end().isAfter(lastBar) ? lastBar : range.end());
+        }
+    }
+    
+    private static boolean inAnyRange(LocalDate date, List<StockDataCoverageService.DateRange> ranges) {
+        for (StockDataCoverageService.DateRange range : ranges) {
+            if (!date.isBefore(range.start()) && !date.isAfter(range.end())) {
+                return true;
             }
-            
-            List<StockDataDto> stockDataList = convertAlphaVantageResponse(response, symbol);
-            
-            // Save to database
-            saveStockDataToDatabase(stockDataList);
-            
-            // Filter by date range
-            return stockDataList.stream()
-                    .filter(data -> !data.getDate().isBefore(startDate) && !data.getDate().isAfter(endDate))
-                    .collect(Collectors.toList());
-                    
-        } catch (WebClientResponseException e) {
-            log.error("HTTP error fetching data from Alpha Vantage for {}: {} - {}", symbol, e.getStatusCode(), e.getResponseBodyAsString());
-            return createMockData(symbol, startDate, endDate);
-        } catch (Exception e) {
-            log.error("Unexpected error fetching stock data for {}: {}", symbol, e.getMessage());
-            return createMockData(symbol, startDate, endDate);
         }
+        return false;
     }
     
     /**
-     * Parse Alpha Vantage JSON response
+     * Whatever the database holds for the range, or mock data when it holds nothing
      */
-    private AlphaVantageResponse parseAlphaVantageResponse(String responseJson) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(responseJson);
-            
-            // Check for time series data
-            JsonNode timeSeriesNode = rootNode.get("Time Series (Daily)");
-            if (timeSeriesNode == null) {
-                log.warn("No Time Series (Daily) found in response");
-                return null;
-            }
-            
-            AlphaVantageResponse response = new AlphaVantageResponse();
-            Map<String, AlphaVantageResponse.TimeSeriesData> timeSeries = new java.util.HashMap<>();
-            
-            // Parse metadata
-            JsonNode metaDataNode = rootNode.get("Meta Data");
-            if (metaDataNode != null) {
-                AlphaVantageResponse.MetaData metaData = new AlphaVantageResponse.MetaData();
-                metaData.setInformation(metaDataNode.get("1. Information").asText());
-                metaData.setSymbol(metaDataNode.get("2. Symbol").asText());
-                metaData.setLastRefreshed(metaDataNode.get("3. Last Refreshed").asText());
-                metaData.setOutputSize(metaDataNode.get("4. Output Size").asText());
-                metaData.setTimeZone(metaDataNode.get("5. Time Zone").asText());
-                response.setMetaData(metaData);
-            }
-            
-            // Parse time series data
-            timeSeriesNode.fields().forEachRemaining(entry -> {
-                String date = entry.getKey();
-                JsonNode dataNode = entry.getValue();
-                
-                AlphaVantageResponse.TimeSeriesData data = new AlphaVantageResponse.TimeSeriesData();
-                data.setOpen(dataNode.get("1. open").asText());
-                data.setHigh(dataNode.get("2. high").asText());
-                data.setLow(dataNode.get("3. low").asText());
-                data.setClose(dataNode.get("4. close").asText());
-                data.setVolume(dataNode.get("5. volume").asText());
-                
-                timeSeries.put(date, data);
-            });
-            
-            response.setTimeSeries(timeSeries);
-            return response;
-            
-        } catch (Exception e) {
-            log.error("Error parsing Alpha Vantage response: {}", e.getMessage());
-            return null;
+    private List<StockDataDto> fallbackData(String symbol, LocalDate startDate, LocalDate endDate) {
+        List<StockDataDto> stored = getDataFromDatabase(symbol, startDate, endDate);
+        if (!stored.isEmpty()) {
+            log.warn("Serving {} stored records for {} without the missing ranges", stored.size(), symbol);
+            return stored;
         }
+        return createMockData(symbol, startDate, endDate);
     }
     
     /**
-     * Convert Alpha Vantage response to StockDataDto list
+     * Convert a parsed price series to StockDataDto list
      */
-    private List<StockDataDto> convertAlphaVantageResponse(AlphaVantageResponse response, String symbol) {
-        List<StockDataDto> stockDataList = new ArrayList<>();
+    static List<StockDataDto> convertToDtos(PriceSeries series, String dataSource) {
+        List<StockDataDto> stockDataList = new ArrayList<>(series.size());
+        double[] open = series.open();
+        double[] high = series.high();
+        double[] low = series.low();
+        double[] close = series.close();
+        long[] volume = series.volume();
         
-        for (Map.Entry<String, AlphaVantageResponse.TimeSeriesData> entry : response.getTimeSeries().entrySet()) {
-            try {
-                LocalDate date = LocalDate.parse(entry.getKey(), DATE_FORMATTER);
-                AlphaVantageResponse.TimeSeriesData data = entry.getValue();
-                
-                StockDataDto stockData = StockDataDto.builder()
-                        .symbol(symbol)
-                        .date(date)
-                        .open(new BigDecimal(data.getOpen()))
-                        .high(new BigDecimal(data.getHigh()))
-                        .low(new BigDecimal(data.getLow()))
-                        .close(new BigDecimal(data.getClose()))
-                        .volume(Long.parseLong(data.getVolume()))
-                        .adjustedClose(new BigDecimal(data.getClose())) // Use close as adjusted close for now
-                        .dataSource("alpha-vantage")
-                        .build();
-                
-                stockDataList.add(stockData);
-            } catch (Exception e) {
-                log.warn("Error parsing data for date {}: {}", entry.getKey(), e.getMessage());
-            }
+        for (int i = 0; i < series.size(); i++) {
+            BigDecimal closePrice = BigDecimal.valueOf(close[i]);
+            stockDataList.add(StockDataDto.builder()
+                    .symbol(series.getSymbol())
+                    .date(series.date(i))
+                    .open(BigDecimal.valueOf(open[i]))
+                    .high(BigDecimal.valueOf(high[i]))
+                    .low(BigDecimal.valueOf(low[i]))
+                    .close(closePrice)
+                    .volume(volume[i])
+                    .adjustedClose(closePrice) // Use close as adjusted close for now
+                    .dataSource(dataSource)
+                    .build());
         }
         
         return stockDataList;
@@ -226,8 +254,8 @@ public class FinancialDataService {
                 .map(this::convertToEntity)
                 .collect(Collectors.toList());
         
-        stockDataRepository.saveAll(entities);
-        log.info("Saved {} stock data records to database", entities.size());
+        int changed = stockDataRepository.upsertAll(entities);
+        log.info("Upserted {} stock data records to database, {} inserted or changed", entities.size(), changed);
     }
     
     /**
@@ -265,7 +293,7 @@ public class FinancialDataService {
     }
     
     /**
-     * Create mock data for testing (when using demo API key)
+     * Create mock data for testing (when using demo API keys)
      */
     private List<StockDataDto> createMockData(String symbol, LocalDate startDate, LocalDate endDate) {
         List<StockDataDto> mockData = new ArrayList<>();
@@ -326,6 +354,67 @@ public class FinancialDataService {
         return fetchStockData(symbol, startDate, endDate);
     }
     
+    /**
+     * Stream stock data for a symbol with number of days, one page at a time. Missing ranges are
+     * fetched and stored first; the range is then read back with a keyset query, so memory stays
+     * at one page however long the range is.
+     */
+    public void streamStockDataForRange(String symbol, int days, Consumer<List<StockDataDto>> pageConsumer) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days);
+        
+        List<StockDataCoverageService.DateRange> missing = findMissingRanges(symbol, startDate, endDate);
+        if (!missing.isEmpty()) {
+            boolean stored = !isDemoApiKey() && Boolean.TRUE.equals(storeMissingRangesReactive(symbol, missing).block());
+            if (!stored && !stockDataRepository.existsBySymbolAndDateBetween(symbol, startDate, endDate)) {
+                // Same fallback as fetchStockData; mock data is never stored
+                pageConsumer.accept(createMockData(symbol, startDate, endDate));
+                return;
+            }
+        }
+        
+        LocalDate after = startDate.minusDays(1);
+        while (true) {
+            List<StockData> page = stockDataRepository.findStockDataPage(symbol, after, endDate, Limit.of(STREAM_PAGE_SIZE));
+            if (page.isEmpty()) {
+                return;
+            }
+            pageConsumer.accept(page.stream().map(this::convertToDto).collect(Collectors.toList()));
+            if (page.size() < STREAM_PAGE_SIZE) {
+                return;
+            }
+            after = page.get(page.size() - 1).getDate();
+        }
+    }
+    
+    /**
+     * Whether the last {@code days} days hold trading days that were never fetched, and a real
+     * API key is configured to fetch them
+     */
+    public boolean needsPrefetch(String symbol, int days) {
+        LocalDate endDate = LocalDate.now();
+        return !isDemoApiKey() && !findMissingRanges(symbol, endDate.minusDays(days), endDate).isEmpty();
+    }
+    
+    /**
+     * Fetch and store the missing trading days of the last {@code days} days ahead of demand,
+     * then drop the symbol's cached series so the next request reads the fresh rows. Unlike
+     * the request path there is no mock fallback; returns whether new data was stored.
+     */
+    public boolean prefetchStockData(String symbol, int days) {
+        LocalDate endDate = LocalDate.now();
+        List<StockDataCoverageService.DateRange> missing = findMissingRanges(symbol, endDate.minusDays(days), endDate);
+        if (missing.isEmpty() || isDemoApiKey()) {
+            return false;
+        }
+        log.info("Prefetching {} missing range(s) for {}: {}", missing.size(), symbol, missing);
+        boolean stored = Boolean.TRUE.equals(storeMissingRangesReactive(symbol, missing).block());
+        if (stored) {
+            cacheService.evictSymbol(symbol);
+        }
+        return stored;
+    }
+    
     /**
      * Get latest stock data for a symbol
      */
@@ -352,10 +441,7 @@ public class FinancialDataService {
      */
     public void refreshStockData(String symbol) {
         log.info("Refreshing stock data for {}", symbol);
-        // Clear cache for this symbol
-        // Note: In a real implementation, you'd use @CacheEvict or similar
-        // For now, we'll just log the action
-        log.info("Cache cleared for symbol: {}", symbol);
+        cacheService.evictSymbol(symbol);
         
         // Fetch fresh data
         LocalDate endDate = LocalDate.now();
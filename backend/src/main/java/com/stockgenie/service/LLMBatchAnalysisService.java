@@ -0,0 +1,208 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.LocalLLMConfig;
+import com.stockgenie.dto.AnalysisRequestDto;
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.entity.AnalysisRequest;
+import com.stockgenie.repository.AnalysisRequestRepository;
+import com.stockgenie.resilience.DependencyUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the simple LLM analysis over many symbols in the background. Every symbol gets an
+ * analysis_request row that moves PENDING -> PROCESSING -> COMPLETED (or FAILED). Requests
+ * are pipelined: max-in-flight plus a small lookahead run at once across all batches, so the
+ * model always has the next prompt waiting without the batch flooding the LLM queue.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LLMBatchAnalysisService {
+
+    static final String ANALYSIS_TYPE = "llm-batch";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final LocalLLMService localLLMService;
+    private final FinancialDataService financialDataService;
+    private final AnalysisRequestRepository analysisRequestRepository;
+    private final LocalLLMConfig localLLMConfig;
+    private final Environment environment;
+
+    private SimpleAsyncTaskExecutor batchExecutor;
+    private SimpleAsyncTaskExecutor requestExecutor;
+
+    @PostConstruct
+    void startExecutors() {
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        int pipelineDepth = Math.max(1, localLLMConfig.getMaxInFlight()) + Math.max(0, localLLMConfig.getBatch().getLookahead());
+
+        batchExecutor = new SimpleAsyncTaskExecutor("llm-batch-");
+        batchExecutor.setVirtualThreads(virtual);
+
+        // execute() blocks once the pipeline is full, which is what paces a batch
+        requestExecutor = new SimpleAsyncTaskExecutor("llm-batch-request-");
+        requestExecutor.setVirtualThreads(virtual);
+        requestExecutor.setConcurrencyLimit(pipelineDepth);
+        log.info("Batch LLM analysis pipeline depth {}", pipelineDepth);
+    }
+
+    @PreDestroy
+    void stopExecutors() {
+        batchExecutor.close();
+        requestExecutor.close();
+    }
+
+    /**
+     * Record a PENDING request per symbol and start the batch; returns the batch id
+     */
+    public String startBatch(List<String> symbols, int days) {
+        String batchId = UUID.randomUUID().toString();
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days);
+
+        List<AnalysisRequest> requests = new ArrayList<>();
+        for (String symbol : normalizeSymbols(symbols)) {
+            requests.add(AnalysisRequest.builder()
+                    .symbol(symbol)
+                    .analysisType(ANALYSIS_TYPE)
+                    .batchId(batchId)
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .status(AnalysisRequest.Status.PENDING)
+                    .build());
+        }
+        List<AnalysisRequest> saved = analysisRequestRepository.saveAll(requests);
+        log.info("Batch LLM analysis {} queued for {} symbols", batchId, saved.size());
+
+        batchExecutor.execute(() -> runBatch(batchId, saved, days));
+        return batchId;
+    }
+
+    public Map<String, Object> getBatchStatus(String batchId) {
+        List<AnalysisRequest> requests = analysisRequestRepository.findByBatchIdOrderByIdAsc(batchId);
+
+        Map<AnalysisRequest.Status, Integer> counts = new EnumMap<>(AnalysisRequest.Status.class);
+        for (AnalysisRequest.Status status : AnalysisRequest.Status.values()) {
+            counts.put(status, 0);
+        }
+        List<AnalysisRequestDto> results = new ArrayList<>(requests.size());
+        for (AnalysisRequest request : requests) {
+            counts.merge(request.getStatus(), 1, Integer::sum);
+            results.add(AnalysisRequestDto.builder()
+                    .symbol(request.getSymbol())
+                    .startDate(request.getStartDate())
+                    .endDate(request.getEndDate())
+                    .llmResponse(request.getLlmResponse())
+                    .status(request.getStatus())
+                    .errorMessage(request.getErrorMessage())
+                    .build());
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("batchId", batchId);
+        status.put("requested", requests.size());
+        status.put("counts", counts);
+        status.put("finished", counts.get(AnalysisRequest.Status.PENDING) == 0 && counts.get(AnalysisRequest.Status.PROCESSING) == 0);
+        status.put("results", results);
+        return status;
+    }
+
+    private void runBatch(String batchId, List<AnalysisRequest> requests, int days) {
+        long startTime = System.currentTimeMillis();
+        CountDownLatch remaining = new CountDownLatch(requests.size());
+        for (AnalysisRequest request : requests) {
+            requestExecutor.execute(() -> {
+                try {
+                    process(request, days);
+                } finally {
+                    remaining.countDown();
+                }
+            });
+        }
+        try {
+            remaining.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Batch LLM analysis {} interrupted", batchId);
+            return;
+        }
+        log.info("Batch LLM analysis {} of {} symbols finished in {} ms",
+                batchId, requests.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private void process(AnalysisRequest request, int days) {
+        request.setStatus(AnalysisRequest.Status.PROCESSING);
+        analysisRequestRepository.save(request);
+
+        try {
+            List<StockDataDto> stockData = financialDataService.getStockDataForRange(request.getSymbol(), days);
+            if (stockData == null || stockData.isEmpty()) {
+                throw new IllegalStateException("No stock data available for " + request.getSymbol());
+            }
+            request.setLlmResponse(analyzeWhenAdmitted(request.getSymbol(), stockData));
+            request.setStatus(AnalysisRequest.Status.COMPLETED);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Batch LLM analysis failed for {}: {}", request.getSymbol(), e.getMessage());
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            request.setErrorMessage(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            request.setStatus(AnalysisRequest.Status.FAILED);
+        }
+        analysisRequestRepository.save(request);
+    }
+
+    /**
+     * Batch requests give way to interactive ones; when the LLM queue turns one away, or
+     * Ollama's circuit breaker is open, wait as long as suggested and try again
+     */
+    private String analyzeWhenAdmitted(String symbol, List<StockDataDto> stockData) throws InterruptedException {
+        int maxAttempts = Math.max(1, localLLMConfig.getBatch().getMaxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return localLLMService.analyzeStockSimpleForBatch(symbol, stockData);
+            } catch (LLMRequestScheduler.RejectedException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("LLM queue busy for {}, retrying in {} s", symbol, e.getRetryAfterSeconds());
+                TimeUnit.SECONDS.sleep(e.getRetryAfterSeconds());
+            } catch (DependencyUnavailableException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("{} for {}, retrying in {} s", e.getMessage(), symbol, e.getRetryAfterSeconds());
+                TimeUnit.SECONDS.sleep(e.getRetryAfterSeconds());
+            }
+        }
+    }
+
+    private static List<String> normalizeSymbols(List<String> symbols) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.isBlank()) {
+                unique.add(symbol.trim().toUpperCase());
+            }
+        }
+        return new ArrayList<>(unique);
+    }
+}
@@ -0,0 +1,301 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.LocalLLMConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of Ollama. At most {@code local-llm.max-in-flight} generations
+ * run at once; the rest wait in one bounded queue per priority, and a free slot always goes
+ * to the oldest interactive request before any batch one. A request is turned away up front
+ * when its queue is full or the wait already ahead of it exceeds {@code local-llm.queue.max-wait},
+ * and also if it is still waiting once that time has passed.
+ */
+@Service
+@Slf4j
+public class LLMRequestScheduler {
+
+    public enum Priority {
+        /**
+         * A user is waiting on the result
+         */
+        INTERACTIVE,
+        /**
+         * Batch jobs and cache pre-warming
+         */
+        BATCH
+    }
+
+    /**
+     * The request was not admitted; callers should answer 429 with the Retry-After hint
+     */
+    @Getter
+    public static class RejectedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        RejectedException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    /**
+     * Weight of the newest generation in the moving average of generation time
+     */
+    private static final double SERVICE_TIME_ALPHA = 0.2;
+
+    private final LocalLLMConfig localLLMConfig;
+    private final MeterRegistry meterRegistry;
+    private final Map<Priority, Deque<Waiter>> waiting = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+
+    private int inFlight;
+    private double averageServiceNanos;
+
+    public LLMRequestScheduler(LocalLLMConfig localLLMConfig, MeterRegistry meterRegistry) {
+        this.localLLMConfig = localLLMConfig;
+        this.meterRegistry = meterRegistry;
+        for (Priority priority : Priority.values()) {
+            String tag = tag(priority);
+            waiting.put(priority, new ArrayDeque<>());
+            Gauge.builder("stockgenie.llm.queue.depth", this, scheduler -> scheduler.queued(priority))
+                    .description("LLM requests waiting for a generation slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("stockgenie.llm.queue.wait")
+                    .description("Time LLM requests waited for a generation slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("stockgenie.llm.in.flight", this, LLMRequestScheduler::inFlight)
+                .description("LLM generations running against Ollama")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run a blocking call once a slot is free, holding the slot until it returns
+     */
+    public <T> T execute(Priority priority, Supplier<T> call) {
+        CompletableFuture<Permit> slot = acquire(priority);
+        Permit permit;
+        try {
+            permit = slot.get();
+        } catch (InterruptedException e) {
+            abandon(slot);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for an LLM slot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedException rejected) {
+                throw rejected;
+            }
+            throw new RuntimeException("Failed waiting for an LLM slot", e.getCause());
+        }
+        try {
+            return call.get();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Subscribe to the stream once a slot is free, holding the slot until it terminates or is
+     * cancelled. A rejection is signalled as an error before anything is emitted.
+     */
+    public <T> Flux<T> executeStreaming(Priority priority, Supplier<Flux<T>> call) {
+        return Flux.usingWhen(
+                Mono.defer(() -> {
+                    CompletableFuture<Permit> slot = acquire(priority);
+                    // Cancelling the Mono cancels the slot request; a slot granted just before is released
+                    return Mono.fromFuture(slot).doOnCancel(() -> slot.thenAccept(Permit::release));
+                }),
+                permit -> call.get(),
+                permit -> Mono.fromRunnable(permit::release));
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> queues = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            queues.put(tag(priority), waiting.get(priority).size());
+        }
+        return Map.of(
+                "inFlight", inFlight,
+                "maxInFlight", maxInFlight(),
+                "queued", queues,
+                "averageGenerationMs", Math.round(averageServiceNanos / 1_000_000));
+    }
+
+    CompletableFuture<Permit> acquire(Priority priority) {
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(localLLMConfig.getQueue().getMaxWait());
+        Waiter waiter;
+        synchronized (this) {
+            if (inFlight < maxInFlight()) {
+                inFlight++;
+                waitTimers.get(priority).record(Duration.ZERO);
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            long expectedWaitNanos = expectedWaitNanos(priority);
+            if (waiting.get(priority).size() >= maxQueued(priority)) {
+                throw reject(priority, "queue_full", "LLM queue is full", expectedWaitNanos);
+            }
+            if (expectedWaitNanos > maxWaitNanos) {
+                throw reject(priority, "expected_wait", "LLM queue wait would exceed the limit", expectedWaitNanos);
+            }
+            waiter = new Waiter(priority);
+            waiting.get(priority).addLast(waiter);
+        }
+
+        CompletableFuture.delayedExecutor(maxWaitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            long expectedWaitNanos;
+            synchronized (this) {
+                expectedWaitNanos = expectedWaitNanos(priority);
+            }
+            RejectedException timedOut = new RejectedException("Timed out waiting for an LLM slot", retryAfterSeconds(expectedWaitNanos));
+            if (waiter.slot.completeExceptionally(timedOut)) {
+                countRejected(priority, "timeout");
+            }
+        });
+        // A waiter that timed out or was cancelled gives up its place in line
+        waiter.slot.whenComplete((permit, error) -> {
+            if (error != null) {
+                synchronized (this) {
+                    waiting.get(priority).remove(waiter);
+                }
+            }
+        });
+        return waiter.slot;
+    }
+
+    /**
+     * Pass the slot to the next waiter still wanting it, or free it
+     */
+    private void handOff() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = waiting.get(Priority.INTERACTIVE).pollFirst();
+                if (next == null) {
+                    next = waiting.get(Priority.BATCH).pollFirst();
+                }
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            // Completed outside the lock: the waiter may continue on this thread
+            if (next.slot.complete(new Permit())) {
+                waitTimers.get(next.priority).record(System.nanoTime() - next.enqueuedAt, TimeUnit.NANOSECONDS);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Give up on a slot request; a slot granted in the meantime is released straight away
+     */
+    private void abandon(CompletableFuture<Permit> slot) {
+        if (!slot.cancel(false)) {
+            slot.thenAccept(Permit::release);
+        }
+    }
+
+    /**
+     * Waiters served before a new request of this priority, times the average generation time,
+     * spread over the slots
+     */
+    private long expectedWaitNanos(Priority priority) {
+        return (long) ((waitingAhead(priority) + 1) * averageServiceNanos / maxInFlight());
+    }
+
+    private int waitingAhead(Priority priority) {
+        int ahead = waiting.get(Priority.INTERACTIVE).size();
+        if (priority == Priority.BATCH) {
+            ahead += waiting.get(Priority.BATCH).size();
+        }
+        return ahead;
+    }
+
+    private RejectedException reject(Priority priority, String reason, String message, long expectedWaitNanos) {
+        countRejected(priority, reason);
+        return new RejectedException(message, retryAfterSeconds(expectedWaitNanos));
+    }
+
+    private void countRejected(Priority priority, String reason) {
+        meterRegistry.counter("stockgenie.llm.queue.rejected", "priority", tag(priority), "reason", reason).increment();
+        log.debug("Rejected {} LLM request: {}", tag(priority), reason);
+    }
+
+    private static long retryAfterSeconds(long expectedWaitNanos) {
+        return TimeUnit.NANOSECONDS.toSeconds(expectedWaitNanos) + 1;
+    }
+
+    private synchronized int queued(Priority priority) {
+        return waiting.get(priority).size();
+    }
+
+    private synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private int maxInFlight() {
+        return Math.max(1, localLLMConfig.getMaxInFlight());
+    }
+
+    private int maxQueued(Priority priority) {
+        return priority == Priority.INTERACTIVE
+                ? localLLMConfig.getQueue().getMaxInteractive()
+                : localLLMConfig.getQueue().getMaxBatch();
+    }
+
+    private static String tag(Priority priority) {
+        return priority.name().toLowerCase();
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Permit> slot = new CompletableFuture<>();
+
+        private Waiter(Priority priority) {
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * One generation slot; releasing it more than once has no effect
+     */
+    final class Permit {
+        private final long grantedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            long serviceNanos = System.nanoTime() - grantedAt;
+            synchronized (LLMRequestScheduler.this) {
+                averageServiceNanos = averageServiceNanos == 0
+                        ? serviceNanos
+                        : averageServiceNanos + SERVICE_TIME_ALPHA * (serviceNanos - averageServiceNanos);
+            }
+            handOff();
+        }
+    }
+}
@@ -1,22 +1,43 @@
 package com.stockgenie.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockgenie.config.AppConfig;
 import com.stockgenie.config.LocalLLMConfig;
+import com.stockgenie.config.UpstreamWebClients;
 import com.stockgenie.dto.*;
+import com.stockgenie.resilience.DependencyGuard;
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.resilience.DependencyUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
@@ -24,8 +45,9 @@ import java.util.Map;
 public class LocalLLMService {
     
     private final LocalLLMConfig localLLMConfig;
-    private final WebClient.Builder webClientBuilder;
+    private final UpstreamWebClients upstreamWebClients;
     private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
     
     @Autowired
     private FinancialDataService financialDataService;
@@ -33,10 +55,40 @@ public class LocalLLMService {
     @Autowired
     private TechnicalAnalysisService technicalAnalysisService;
     
+    @Autowired
+    private LLMRequestScheduler llmRequestScheduler;
+    
+    @Autowired
+    private AppConfig appConfig;
+    
+    @Autowired
+    private DependencyGuards dependencyGuards;
+    
+    private static final String COMPLETION_CACHE = "llmAnalysis";
+    private static final String SIMPLE_ANALYSIS_INSTRUCTIONS = """
+            You are a financial analyst. Analyze the stock data given below.
+            
+            Please provide:
+            1. Brief trend analysis
+            2. Key price movements
+            3. Volume analysis
+            4. Recommendation: BUY, SELL, or HOLD with confidence percentage (1-100)
+            5. Brief reasoning for your recommendation
+            
+            Keep your analysis concise and professional.
+            
+            """;
+    private static final long MODEL_DIGEST_REFRESH_MS = 5 * 60 * 1000;
+    
+    private final Map<String, CompletableFuture<String>> promptsInFlight = new ConcurrentHashMap<>();
+    private volatile String modelDigest;
+    private volatile WebClient ollamaClient;
+    private volatile long modelDigestCheckedAt;
+    private final AtomicBoolean modelDigestRefreshing = new AtomicBoolean();
+    
     /**
      * Analyze stock data using local LLM
      */
-    @Cacheable(value = "llmAnalysis", key = "#request.symbol + '_' + #request.analysisType + '_' + #request.stockData.hashCode()")
     public LLMResponseDto analyzeStockData(LLMRequestDto request) {
         log.info("Analyzing stock data for {} using LLM", request.getSymbol());
         
@@ -44,7 +96,7 @@ public class LocalLLMService {
         
         try {
             String prompt = buildPrompt(request);
-            String response = callOllamaAPI(prompt);
+            String response = completePrompt(prompt, LLMRequestScheduler.Priority.INTERACTIVE);
             
             long processingTime = System.currentTimeMillis() - startTime;
             
@@ -57,12 +109,50 @@ public class LocalLLMService {
                     .symbol(request.getSymbol())
                     .build();
                     
+        } catch (LLMRequestScheduler.RejectedException | DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error analyzing stock data with LLM: {}", e.getMessage());
             throw new RuntimeException("Failed to analyze stock data with LLM", e);
         }
     }
     
+    /**
+     * Stream the analysis as it is generated. The assembled response goes into the same
+     * prompt cache as {@link #analyzeStockData} once Ollama marks it done, and a cached
+     * completion is replayed as a single chunk. A stream that ends early or empty is not cached.
+     */
+    public Flux<String> streamStockAnalysis(LLMRequestDto request) {
+        log.info("Streaming LLM analysis for {}", request.getSymbol());
+        
+        return Mono.fromCallable(() -> buildPrompt(request)).flatMapMany(prompt -> {
+            String promptDigest = promptDigest(prompt);
+            
+            // Cache reads and writes may go to Redis, so keep them off the event loop
+            Flux<String> generated = Flux.defer(() -> {
+                long startTime = System.currentTimeMillis();
+                StringBuilder assembled = new StringBuilder();
+                // Fail before queueing when Ollama is known to be down
+                ollama().ensureAvailable();
+                return llmRequestScheduler.executeStreaming(LLMRequestScheduler.Priority.INTERACTIVE,
+                                () -> ollama().flux(callOllamaAPIStreaming(prompt)))
+                        .doOnNext(assembled::append)
+                        // Only a finished, non-empty completion is cached; anything else ends the stream with an error
+                        .concatWith(Mono.defer(() -> assembled.isEmpty()
+                                ? Mono.<String>error(new RuntimeException("Empty response from Ollama API"))
+                                : Mono.<String>fromRunnable(() ->
+                                                cacheCompletion(promptDigest, assembled.toString(), System.currentTimeMillis() - startTime))
+                                        .subscribeOn(Schedulers.boundedElastic())));
+            });
+            
+            return Mono.fromCallable(() -> cachedCompletion(promptDigest))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(LLMCompletionDto::getResponse)
+                    .flux()
+                    .switchIfEmpty(generated);
+        });
+    }
+    
     /**
      * Simple stock analysis that fetches data internally
      */
@@ -77,7 +167,7 @@ public class LocalLLMService {
             String prompt = buildSimplePrompt(symbol, stockData, analysisType);
             
             // Call LLM
-            String response = callOllamaAPI(prompt);
+            String response = completePrompt(prompt, LLMRequestScheduler.Priority.INTERACTIVE);
             
             // Parse response for recommendation
             String recommendation = extractRecommendation(response);
@@ -104,6 +194,8 @@ public class LocalLLMService {
             
             return result;
             
+        } catch (LLMRequestScheduler.RejectedException | DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error in simple stock analysis: {}", e.getMessage());
             Map<String, Object> errorResult = new HashMap<>();
@@ -116,10 +208,19 @@ public class LocalLLMService {
         }
     }
     
+    /**
+     * Simple analysis text for a batch job: the analyzeStockSimple prompt, served from the prompt
+     * cache when possible and otherwise queued behind interactive requests
+     */
+    public String analyzeStockSimpleForBatch(String symbol, List<StockDataDto> stockData) {
+        String prompt = buildSimplePrompt(symbol, stockData, "batch");
+        return completePrompt(prompt, LLMRequestScheduler.Priority.BATCH);
+    }
+    
     /**
      * Build prompt based on analysis type
      */
-    private String buildPrompt(LLMRequestDto request) {
+    String buildPrompt(LLMRequestDto request) {
         String basePrompt = getBasePrompt(request.getAnalysisType());
         
         // Format stock data
@@ -273,25 +374,35 @@ public class LocalLLMService {
      * Call Ollama API
      */
     private String callOllamaAPI(String prompt) {
+        return callOllamaAPI(prompt, LLMRequestScheduler.Priority.INTERACTIVE);
+    }
+    
+    /**
+     * Call Ollama API once the scheduler admits the request
+     */
+    private String callOllamaAPI(String prompt, LLMRequestScheduler.Priority priority) {
         try {
-            WebClient webClient = webClientBuilder.baseUrl(localLLMConfig.getBaseUrl()).build();
+            WebClient webClient = ollamaClient();
             
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", localLLMConfig.getModel());
             requestBody.put("prompt", prompt);
             requestBody.put("stream", false);
-            requestBody.put("options", Map.of(
-                    "temperature", localLLMConfig.getTemperature(),
-                    "top_p", localLLMConfig.getTopP(),
-                    "num_predict", localLLMConfig.getMaxTokens()
-            ));
+            requestBody.put("options", ollamaOptions());
+            if (priority == LLMRequestScheduler.Priority.BATCH) {
+                // Keep the model and its prompt cache loaded between batch requests
+                requestBody.put("keep_alive", localLLMConfig.getBatch().getKeepAlive());
+            }
             
-            String response = webClient.post()
+            // Fail before queueing when Ollama is known to be down
+            DependencyGuard ollama = ollama();
+            ollama.ensureAvailable();
+            String response = llmRequestScheduler.execute(priority, () -> ollama.call(() -> webClient.post()
                     .uri("/api/generate")
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(String.class)
-                    .block();
+                    .block()));
             
             if (response == null) {
                 throw new RuntimeException("Empty response from Ollama API");
@@ -304,6 +415,8 @@ public class LocalLLMService {
             log.info("LLM response received, length: {} characters", generatedText.length());
             return generatedText;
             
+        } catch (LLMRequestScheduler.RejectedException | DependencyUnavailableException e) {
+            throw e;
         } catch (WebClientResponseException e) {
             log.error("Error calling Ollama API: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("Failed to call Ollama API: " + e.getMessage(), e);
@@ -313,6 +426,241 @@ public class LocalLLMService {
         }
     }
     
+    /**
+     * Call Ollama API with streaming on, emitting each token chunk as it arrives. The timeout
+     * bounds the wait for every chunk rather than the whole completion, and cancelling the
+     * subscription closes the connection so Ollama stops generating.
+     */
+    private Flux<String> callOllamaAPIStreaming(String prompt) {
+        WebClient webClient = ollamaClient();
+        
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", localLLMConfig.getModel());
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", true);
+        requestBody.put("options", ollamaOptions());
+        
+        // Ollama answers with one JSON object per line, the last one flagged done
+        return Flux.defer(() -> {
+            AtomicBoolean done = new AtomicBoolean();
+            return webClient.post()
+                    .uri("/api/generate")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(JsonNode.class)
+                    .timeout(Duration.ofMillis(localLLMConfig.getTimeout()))
+                    .<JsonNode>handle((chunk, sink) -> {
+                        if (chunk.hasNonNull("error")) {
+                            sink.error(new RuntimeException("Ollama API error: " + chunk.get("error").asText()));
+                        } else {
+                            sink.next(chunk);
+                        }
+                    })
+                    .takeUntil(chunk -> {
+                        done.set(chunk.path("done").asBoolean());
+                        return done.get();
+                    })
+                    // A connection closed before the done chunk leaves a truncated completion
+                    .concatWith(Mono.defer(() -> done.get()
+                            ? Mono.empty()
+                            : Mono.error(new RuntimeException("Ollama stream ended before the response was done"))))
+                    .map(chunk -> chunk.path("response").asText(""))
+                    .filter(token -> !token.isEmpty())
+                    .doOnError(WebClientResponseException.class, e ->
+                            log.error("Error calling Ollama API: {} - {}", e.getStatusCode(), e.getResponseBodyAsString()));
+        });
+    }
+    
+    /**
+     * Completion for the prompt from the prompt cache, else from Ollama. Concurrent callers
+     * with the same prompt share one generation.
+     */
+    private String completePrompt(String prompt, LLMRequestScheduler.Priority priority) {
+        String promptDigest = promptDigest(prompt);
+        LLMCompletionDto cached = cachedCompletion(promptDigest);
+        if (cached != null) {
+            log.info("LLM prompt cache hit for {}", promptDigest);
+            return cached.getResponse();
+        }
+        
+        CompletableFuture<String> candidate = new CompletableFuture<>();
+        CompletableFuture<String> shared = promptsInFlight.putIfAbsent(promptDigest, candidate);
+        if (shared != null) {
+            try {
+                return shared.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        try {
+            long startTime = System.currentTimeMillis();
+            String response = callOllamaAPI(prompt, priority);
+            cacheCompletion(promptDigest, response, System.currentTimeMillis() - startTime);
+            candidate.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            candidate.completeExceptionally(e);
+            throw e;
+        } finally {
+            promptsInFlight.remove(promptDigest, candidate);
+        }
+    }
+    
+    private DependencyGuard ollama() {
+        return dependencyGuards.guard(DependencyGuards.OLLAMA);
+    }
+    
+    /**
+     * Ollama's pooled client with the base URL applied, built on first use
+     */
+    private WebClient ollamaClient() {
+        WebClient client = ollamaClient;
+        if (client == null) {
+            client = upstreamWebClients.client(DependencyGuards.OLLAMA).mutate()
+                    .baseUrl(localLLMConfig.getBaseUrl())
+                    .build();
+            ollamaClient = client;
+        }
+        return client;
+    }
+    
+    /**
+     * Sampling options sent with every generation, in a fixed order so they digest stably
+     */
+    private Map<String, Object> ollamaOptions() {
+        Map<String, Object> options = new TreeMap<>();
+        options.put("temperature", localLLMConfig.getTemperature());
+        options.put("top_p", localLLMConfig.getTopP());
+        options.put("num_predict", localLLMConfig.getMaxTokens());
+        return options;
+    }
+    
+    /**
+     * Cache key for a prompt: SHA-256 over the model, the options and the prompt with line
+     * endings and surrounding whitespace normalised
+     */
+    String promptDigest(String prompt) {
+        try {
+            String canonical = normalizedModel(localLLMConfig.getModel()) + "\n"
+                    + objectMapper.writeValueAsString(ollamaOptions()) + "\n"
+                    + prompt.replace("\r\n", "\n").strip();
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return "prompt:" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to digest LLM prompt", e);
+        }
+    }
+    
+    /**
+     * Ollama treats an untagged model name as the latest tag
+     */
+    private static String normalizedModel(String model) {
+        return model != null && !model.contains(":") ? model + ":latest" : model;
+    }
+    
+    /**
+     * Cached completion for the digest, unless it has expired or was made by another build of the model
+     */
+    private LLMCompletionDto cachedCompletion(String promptDigest) {
+        Cache cache = cacheManager.getCache(COMPLETION_CACHE);
+        if (cache == null) {
+            return null;
+        }
+        try {
+            LLMCompletionDto cached = cache.get(promptDigest, LLMCompletionDto.class);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.getExpiresAt() != null && cached.getExpiresAt().isBefore(LocalDateTime.now())) {
+                cache.evict(promptDigest);
+                return null;
+            }
+            String currentDigest = currentModelDigest();
+            if (cached.getModelDigest() != null && currentDigest != null && !cached.getModelDigest().equals(currentDigest)) {
+                log.info("Ignoring cached LLM completion {} from an older build of {}", promptDigest, cached.getModel());
+                cache.evict(promptDigest);
+                return null;
+            }
+            return cached;
+        } catch (Exception e) {
+            log.warn("Failed to read cached LLM completion {}: {}", promptDigest, e.getMessage());
+            return null;
+        }
+    }
+    
+    private void cacheCompletion(String promptDigest, String response, long generationMs) {
+        Cache cache = cacheManager.getCache(COMPLETION_CACHE);
+        if (cache == null || response.isEmpty()) {
+            return;
+        }
+        int ttlSeconds = appConfig.getCache().getLlmAnalysisTtl();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            cache.put(promptDigest, LLMCompletionDto.builder()
+                    .promptDigest(promptDigest)
+                    .response(response)
+                    .model(localLLMConfig.getModel())
+                    .modelDigest(currentModelDigest())
+                    .generationMs(generationMs)
+                    .createdAt(now)
+                    .expiresAt(ttlSeconds > 0 ? now.plusSeconds(ttlSeconds) : null)
+                    .build());
+            log.info("Cached LLM completion {}, length: {} characters", promptDigest, response.length());
+        } catch (Exception e) {
+            log.warn("Failed to cache LLM completion {}: {}", promptDigest, e.getMessage());
+        }
+    }
+    
+    /**
+     * Last known digest of the configured model as Ollama reports it. Once that is a few
+     * minutes old the first caller starts one lookup in the background; no caller waits on it.
+     */
+    private String currentModelDigest() {
+        if (System.currentTimeMillis() - modelDigestCheckedAt > MODEL_DIGEST_REFRESH_MS
+                && modelDigestRefreshing.compareAndSet(false, true)) {
+            Mono.fromRunnable(() -> {
+                        String digest = fetchModelDigest();
+                        if (digest != null) {
+                            modelDigest = digest;
+                        }
+                        modelDigestCheckedAt = System.currentTimeMillis();
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doFinally(signal -> modelDigestRefreshing.set(false))
+                    .subscribe();
+        }
+        return modelDigest;
+    }
+    
+    private String fetchModelDigest() {
+        try {
+            WebClient webClient = ollamaClient();
+            
+            String response = ollama().call(() -> webClient.get()
+                    .uri("/api/tags")
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .timeout(Duration.ofSeconds(5))
+                    .block());
+            
+            if (response == null) {
+                return null;
+            }
+            String model = normalizedModel(localLLMConfig.getModel());
+            for (JsonNode entry : objectMapper.readTree(response).path("models")) {
+                if (model.equals(normalizedModel(entry.path("name").asText()))) {
+                    return entry.path("digest").asText(null);
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            log.debug("Could not read model digest from Ollama: {}", e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * Test LLM connection
      */
@@ -335,13 +683,13 @@ public class LocalLLMService {
      */
     public List<String> getAvailableModels() {
         try {
-            WebClient webClient = webClientBuilder.baseUrl(localLLMConfig.getBaseUrl()).build();
+            WebClient webClient = ollamaClient();
             
-            String response = webClient.get()
+            String response = ollama().call(() -> webClient.get()
                     .uri("/api/tags")
                     .retrieve()
                     .bodyToMono(String.class)
-                    .block();
+                    .block());
             
             if (response == null) {
                 return List.of();
@@ -379,21 +727,24 @@ public class LocalLLMService {
     }
     
     /**
-     * Check if LLM service is available
+     * Check if LLM service is available; answers at once while Ollama's circuit breaker is open
      */
     public boolean isLLMAvailable() {
         try {
-            WebClient webClient = webClientBuilder.baseUrl(localLLMConfig.getBaseUrl()).build();
+            WebClient webClient = ollamaClient();
             
             // Try to get models list to check if Ollama is running
-            String response = webClient.get()
+            String response = ollama().call(() -> webClient.get()
                     .uri("/api/tags")
                     .retrieve()
                     .bodyToMono(String.class)
                     .timeout(java.time.Duration.ofSeconds(5))
-                    .block();
+                    .block());
             
             return response != null && response.contains("models");
+        } catch (DependencyUnavailableException e) {
+            log.debug("LLM service not available: {}", e.getMessage());
+            return false;
         } catch (Exception e) {
             log.warn("LLM service not available: {}", e.getMessage());
             return false;
@@ -409,20 +760,20 @@ public class LocalLLMService {
                 return "LLM service is not available. Please ensure Ollama is running on " + localLLMConfig.getBaseUrl();
             }
             
-            WebClient webClient = webClientBuilder.baseUrl(localLLMConfig.getBaseUrl()).build();
+            WebClient webClient = ollamaClient();
             
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", localLLMConfig.getModel());
             requestBody.put("prompt", prompt);
             requestBody.put("stream", false);
             
-            String response = webClient.post()
+            String response = llmRequestScheduler.execute(LLMRequestScheduler.Priority.INTERACTIVE, () -> ollama().call(() -> webClient.post()
                     .uri("/api/generate")
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(String.class)
                     .timeout(java.time.Duration.ofSeconds(30))
-                    .block();
+                    .block()));
             
             if (response != null) {
                 JsonNode jsonResponse = objectMapper.readTree(response);
@@ -441,9 +792,10 @@ public class LocalLLMService {
     /**
      * Build simple prompt for stock analysis
      */
-    private String buildSimplePrompt(String symbol, List<StockDataDto> stockData, String analysisType) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("You are a financial analyst. Analyze the following stock data for ").append(symbol).append(":\n\n");
+    String buildSimplePrompt(String symbol, List<StockDataDto> stockData, String analysisType) {
+        // Instructions first and identical for every symbol, so Ollama can reuse their evaluated prefix
+        StringBuilder prompt = new StringBuilder(SIMPLE_ANALYSIS_INSTRUCTIONS);
+        prompt.append("Stock: ").append(symbol).append("\n");
         
         prompt.append("Stock Data (last ").append(stockData.size()).append(" days):\n");
         for (StockDataDto data : stockData) {
@@ -451,14 +803,6 @@ public class LocalLLMService {
                 data.getDate(), data.getOpen(), data.getHigh(), data.getLow(), data.getClose(), data.getVolume()));
         }
         
-        prompt.append("\nPlease provide:\n");
-        prompt.append("1. Brief trend analysis\n");
-        prompt.append("2. Key price movements\n");
-        prompt.append("3. Volume analysis\n");
-        prompt.append("4. Recommendation: BUY, SELL, or HOLD with confidence percentage (1-100)\n");
-        prompt.append("5. Brief reasoning for your recommendation\n\n");
-        prompt.append("Keep your analysis concise and professional.");
-        
         return prompt.toString();
     }
     
@@ -3,92 +3,148 @@ package com.stockgenie.service;
 import com.stockgenie.config.FinancialApiConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Per-provider call budgets: a GCRA limiter for the per-minute rate (a burst of up to the
+ * per-minute limit, then one call per 60s / limit) and a counter for the per-UTC-day quota.
+ * Checking and consuming happen in one step. The state lives in Redis, behind a Lua script,
+ * so every replica draws from the same budget; while Redis is unreachable each JVM falls
+ * back to a local limiter with the same rules.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RateLimitService {
-    
-    private final FinancialApiConfig financialApiConfig;
-    
-    // Track API calls per minute and per day
-    private final ConcurrentHashMap<String, AtomicInteger> callsPerMinute = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, AtomicInteger> callsPerDay = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, LocalDateTime> lastMinuteReset = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, LocalDateTime> lastDayReset = new ConcurrentHashMap<>();
-    
+
     /**
-     * Check if we can make an API call based on rate limits
+     * Whether a call was admitted, and if not, how long until one could be
      */
-    public boolean canMakeApiCall(String apiProvider) {
-        String minuteKey = apiProvider + "_minute";
-        String dayKey = apiProvider + "_day";
-        
-        LocalDateTime now = LocalDateTime.now();
-        
-        // Check minute rate limit
-        if (!canMakeCallInTimeWindow(minuteKey, now, ChronoUnit.MINUTES, 
-                getCallsPerMinute(apiProvider))) {
-            log.warn("Rate limit exceeded for {} - calls per minute", apiProvider);
-            return false;
+    public record Acquisition(boolean admitted, long retryAfterMs) {
+    }
+
+    /**
+     * Calls used against each limit right now; a limit of 0 means none
+     */
+    public record Usage(long minuteCalls, int callsPerMinute, long dayCalls, int callsPerDay, String limiter) {
+
+        public long remainingToday() {
+            return callsPerDay > 0 ? Math.max(0, callsPerDay - dayCalls) : Long.MAX_VALUE;
         }
-        
-        // Check day rate limit
-        if (!canMakeCallInTimeWindow(dayKey, now, ChronoUnit.DAYS, 
-                getCallsPerDay(apiProvider))) {
-            log.warn("Rate limit exceeded for {} - calls per day", apiProvider);
-            return false;
+
+        public long remainingThisMinute() {
+            return callsPerMinute > 0 ? Math.max(0, callsPerMinute - minuteCalls) : Long.MAX_VALUE;
         }
-        
-        return true;
     }
-    
+
+    private static final String KEY_PREFIX = "stockgenie:ratelimit:";
+
     /**
-     * Record an API call
+     * KEYS: theoretical arrival time, day counter.
+     * ARGV: emission interval ms, burst tolerance ms, day limit, day counter TTL ms,
+     * ms until the day ends, 1 to consume or 0 to only check.
+     * Returns {1, 0} when admitted, else {0, retry-after ms}.
      */
-    public void recordApiCall(String apiProvider) {
-        String minuteKey = apiProvider + "_minute";
-        String dayKey = apiProvider + "_day";
-        
-        callsPerMinute.computeIfAbsent(minuteKey, k -> new AtomicInteger(0)).incrementAndGet();
-        callsPerDay.computeIfAbsent(dayKey, k -> new AtomicInteger(0)).incrementAndGet();
-        
-        log.debug("Recorded API call for {}. Minute: {}, Day: {}", 
-                apiProvider, 
-                callsPerMinute.get(minuteKey).get(),
-                callsPerDay.get(dayKey).get());
-    }
-    
+    private static final RedisScript<List<Long>> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local interval = tonumber(ARGV[1])
+            local tolerance = tonumber(ARGV[2])
+            local dayLimit = tonumber(ARGV[3])
+            local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+            if tat < now then
+              tat = now
+            end
+            if interval > 0 and tat - tolerance > now then
+              return {0, tat - tolerance - now}
+            end
+            local used = tonumber(redis.call('GET', KEYS[2]) or 0)
+            if dayLimit > 0 and used >= dayLimit then
+              return {0, tonumber(ARGV[5])}
+            end
+            if ARGV[6] == '1' then
+              if interval > 0 then
+                redis.call('SET', KEYS[1], tat + interval, 'PX', tat + interval - now)
+              end
+              redis.call('INCR', KEYS[2])
+              redis.call('PEXPIRE', KEYS[2], ARGV[4])
+            end
+            return {1, 0}
+            """, longList());
+
+    private final FinancialApiConfig financialApiConfig;
+    private final StringRedisTemplate redisTemplate;
+    private final Clock clock = Clock.systemUTC();
+    private final ConcurrentHashMap<String, LocalBudget> localBudgets = new ConcurrentHashMap<>();
+
+    private volatile long redisRetryAt;
+
     /**
-     * Check if we can make a call within a time window
+     * Take one call from the provider's budget if both limits allow it
      */
-    private boolean canMakeCallInTimeWindow(String key, LocalDateTime now, 
-                                          ChronoUnit timeUnit, int maxCalls) {
-        LocalDateTime lastReset = getLastReset(key, now, timeUnit);
-        AtomicInteger callCount = callsPerMinute.computeIfAbsent(key, k -> new AtomicInteger(0));
-        
-        // Reset counter if time window has passed
-        if (lastReset.isBefore(now.minus(1, timeUnit))) {
-            callCount.set(0);
-            lastMinuteReset.put(key, now);
+    public Acquisition tryAcquire(String apiProvider) {
+        Acquisition acquisition = acquire(apiProvider, true);
+        if (!acquisition.admitted()) {
+            log.warn("Rate limit exceeded for {} - next call in {} ms", apiProvider, acquisition.retryAfterMs());
         }
-        
-        return callCount.get() < maxCalls;
+        return acquisition;
     }
-    
+
     /**
-     * Get the last reset time for a key
+     * Check if we can make an API call based on rate limits, without using up any budget
      */
-    private LocalDateTime getLastReset(String key, LocalDateTime now, ChronoUnit timeUnit) {
-        return lastMinuteReset.computeIfAbsent(key, k -> now.minus(1, timeUnit));
+    public boolean canMakeApiCall(String apiProvider) {
+        return acquire(apiProvider, false).admitted();
+    }
+
+    private Acquisition acquire(String apiProvider, boolean consume) {
+        Limits limits = limitsFor(apiProvider);
+        long now = clock.millis();
+        if (redisTemplate != null && financialApiConfig.getLimiter().isShared() && now >= redisRetryAt) {
+            try {
+                return acquireShared(apiProvider, limits, now, consume);
+            } catch (Exception e) {
+                fallBackToLocal(now, e);
+            }
+        }
+        return localBudgets.computeIfAbsent(apiProvider, key -> new LocalBudget()).acquire(limits, now, today(), consume);
     }
-    
+
+    private Acquisition acquireShared(String apiProvider, Limits limits, long now, boolean consume) {
+        LocalDate today = today();
+        List<Long> result = redisTemplate.execute(ACQUIRE_SCRIPT,
+                Arrays.asList(tatKey(apiProvider), dayKey(apiProvider, today)),
+                String.valueOf(limits.intervalMs()),
+                String.valueOf(limits.toleranceMs()),
+                String.valueOf(limits.perDay()),
+                String.valueOf(Duration.ofDays(2).toMillis()),
+                String.valueOf(millisUntilTomorrow(now, today)),
+                consume ? "1" : "0");
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Unexpected rate limit script result: " + result);
+        }
+        return new Acquisition(result.get(0) == 1, result.get(1));
+    }
+
+    /**
+     * Lua integers come back as Long, but a class literal cannot carry the element type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Class<List<Long>> longList() {
+        return (Class) List.class;
+    }
+
     /**
      * Get calls per minute limit for API provider
      */
@@ -96,11 +152,12 @@ public class RateLimitService {
         if ("alpha-vantage".equals(apiProvider)) {
             return financialApiConfig.getAlphaVantage().getRateLimit().getCallsPerMinute();
         } else if ("eodhd".equals(apiProvider)) {
-            return 60; // Default for EODHD
+            int configured = financialApiConfig.getEodhd().getRateLimit().getCallsPerMinute();
+            return configured > 0 ? configured : 60; // Default for EODHD
         }
         return 5; // Default conservative limit
     }
-    
+
     /**
      * Get calls per day limit for API provider
      */
@@ -112,20 +169,109 @@ public class RateLimitService {
         }
         return 25; // Default conservative limit
     }
-    
+
     /**
      * Get current rate limit status
      */
     public String getRateLimitStatus(String apiProvider) {
-        String minuteKey = apiProvider + "_minute";
-        String dayKey = apiProvider + "_day";
-        
-        int minuteCalls = callsPerMinute.getOrDefault(minuteKey, new AtomicInteger(0)).get();
-        int dayCalls = callsPerDay.getOrDefault(dayKey, new AtomicInteger(0)).get();
-        int minuteLimit = getCallsPerMinute(apiProvider);
-        int dayLimit = getCallsPerDay(apiProvider);
-        
-        return String.format("API: %s, Minute: %d/%d, Day: %d/%d", 
-                apiProvider, minuteCalls, minuteLimit, dayCalls, dayLimit);
+        Usage usage = getUsage(apiProvider);
+        return String.format("API: %s, Minute: %d/%d, Day: %d/%d, Limiter: %s",
+                apiProvider, usage.minuteCalls(), usage.callsPerMinute(), usage.dayCalls(), usage.callsPerDay(), usage.limiter());
+    }
+
+    public Usage getUsage(String apiProvider) {
+        Limits limits = limitsFor(apiProvider);
+        long now = clock.millis();
+        if (redisTemplate != null && financialApiConfig.getLimiter().isShared() && now >= redisRetryAt) {
+            try {
+                List<String> values = redisTemplate.opsForValue().multiGet(
+                        List.of(tatKey(apiProvider), dayKey(apiProvider, today())));
+                long tat = values != null && values.get(0) != null ? Long.parseLong(values.get(0)) : now;
+                long dayCalls = values != null && values.get(1) != null ? Long.parseLong(values.get(1)) : 0;
+                return usage(limits, now, tat, dayCalls, "shared");
+            } catch (Exception e) {
+                fallBackToLocal(now, e);
+            }
+        }
+        LocalBudget budget = localBudgets.computeIfAbsent(apiProvider, key -> new LocalBudget());
+        synchronized (budget) {
+            return usage(limits, now, budget.tat, today().equals(budget.day) ? budget.used : 0, "local");
+        }
+    }
+
+    private static Usage usage(Limits limits, long now, long tat, long dayCalls, String limiter) {
+        // Calls in the current burst window: outstanding emission intervals, rounded up
+        long minuteCalls = limits.intervalMs() > 0 ? (Math.max(0, tat - now) + limits.intervalMs() - 1) / limits.intervalMs() : 0;
+        return new Usage(minuteCalls, limits.perMinute(), dayCalls, limits.perDay(), limiter);
+    }
+
+    /**
+     * Stop asking Redis for a while, so neither acquiring nor reading usage waits on it again
+     * until the cooldown has passed
+     */
+    private void fallBackToLocal(long now, Exception e) {
+        redisRetryAt = now + financialApiConfig.getLimiter().getFallbackCooldown();
+        log.warn("Shared rate limiter unavailable, using the local limiter for {} ms: {}",
+                financialApiConfig.getLimiter().getFallbackCooldown(), e.getMessage());
+    }
+
+    private Limits limitsFor(String apiProvider) {
+        return Limits.of(getCallsPerMinute(apiProvider), getCallsPerDay(apiProvider));
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock.withZone(ZoneOffset.UTC));
+    }
+
+    private static long millisUntilTomorrow(long now, LocalDate today) {
+        return today.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli() - now;
+    }
+
+    private static String tatKey(String apiProvider) {
+        return KEY_PREFIX + apiProvider + ":tat";
+    }
+
+    private static String dayKey(String apiProvider, LocalDate day) {
+        return KEY_PREFIX + apiProvider + ":day:" + day;
+    }
+
+    /**
+     * Per-minute limit as a GCRA emission interval and burst tolerance, plus the daily quota (0 for none)
+     */
+    record Limits(int perMinute, int perDay, long intervalMs, long toleranceMs) {
+
+        static Limits of(int perMinute, int perDay) {
+            long intervalMs = perMinute > 0 ? Duration.ofMinutes(1).toMillis() / perMinute : 0;
+            long toleranceMs = perMinute > 0 ? (perMinute - 1) * intervalMs : 0;
+            return new Limits(perMinute, perDay, intervalMs, toleranceMs);
+        }
+    }
+
+    /**
+     * The same budget as the Redis script keeps, for one JVM
+     */
+    static final class LocalBudget {
+        private long tat;
+        private LocalDate day;
+        private int used;
+
+        synchronized Acquisition acquire(Limits limits, long now, LocalDate today, boolean consume) {
+            if (!today.equals(day)) {
+                day = today;
+                used = 0;
+            }
+            long start = Math.max(tat, now);
+            if (limits.intervalMs() > 0 && start - limits.toleranceMs() > now) {
+                return new Acquisition(false, start - limits.toleranceMs() - now);
+            }
+            if (limits.perDay() > 0 && used >= limits.perDay()) {
+                return new Acquisition(false, millisUntilTomorrow(now, today));
+            }
+            if (consume) {
+                tat = start + limits.intervalMs();
+                used++;
+            }
+            return new Acquisition(true, 0);
+        }
     }
 }
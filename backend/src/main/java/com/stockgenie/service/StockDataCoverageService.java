@@ -0,0 +1,133 @@
+package com.stockgenie.service;
+
+import com.stockgenie.analysis.TradingCalendar;
+import com.stockgenie.entity.StockDataCoverage;
+import com.stockgenie.repository.StockDataCoverageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks, per symbol, the date intervals already fetched from upstream. Two
+ * intervals separated only by weekends or market holidays count as contiguous,
+ * so a covered range never looks incomplete just because the market was closed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockDataCoverageService {
+
+    private final StockDataCoverageRepository coverageRepository;
+
+    /**
+     * Inclusive date range
+     */
+    public record DateRange(LocalDate start, LocalDate end) {
+    }
+
+    /**
+     * Trading-day sub-ranges of [startDate, endDate] that no covered interval spans, in date order
+     */
+    @Transactional(readOnly = true)
+    public List<DateRange> findMissingRanges(String symbol, LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+        List<DateRange> covered = coverageRepository.findBySymbolOrderByStartDateAsc(symbol).stream()
+                .map(coverage -> new DateRange(coverage.getStartDate(), coverage.getEndDate()))
+                .toList();
+        return missingRanges(covered, startDate, endDate);
+    }
+
+    /**
+     * Record [startDate, endDate] as fetched, merging it with every interval it overlaps or touches
+     */
+    @Transactional
+    public void markCovered(String symbol, LocalDate startDate, LocalDate endDate) {
+        List<StockDataCoverage> intervals = coverageRepository.findBySymbolOrderByStartDateAsc(symbol);
+        List<StockDataCoverage> absorbed = new ArrayList<>();
+        LocalDate mergedStart = startDate;
+        LocalDate mergedEnd = endDate;
+
+        // Growing the merged range can make an earlier interval touch it, so sweep until stable
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (StockDataCoverage interval : intervals) {
+                if (!absorbed.contains(interval) && touches(interval.getStartDate(), interval.getEndDate(), mergedStart, mergedEnd)) {
+                    absorbed.add(interval);
+                    mergedStart = min(mergedStart, interval.getStartDate());
+                    mergedEnd = max(mergedEnd, interval.getEndDate());
+                    changed = true;
+                }
+            }
+        }
+
+        StockDataCoverage merged = absorbed.isEmpty()
+                ? StockDataCoverage.builder().symbol(symbol).build()
+                : absorbed.remove(0);
+        merged.setStartDate(mergedStart);
+        merged.setEndDate(mergedEnd);
+        coverageRepository.save(merged);
+        if (!absorbed.isEmpty()) {
+            coverageRepository.deleteAll(absorbed);
+        }
+        log.debug("Coverage for {} now includes {} to {}", symbol, mergedStart, mergedEnd);
+    }
+
+    static List<DateRange> missingRanges(List<DateRange> coveredByStart, LocalDate startDate, LocalDate endDate) {
+        List<DateRange> missing = new ArrayList<>();
+        LocalDate cursor = startDate;
+
+        for (DateRange covered : coveredByStart) {
+            if (cursor.isAfter(endDate) || covered.start().isAfter(endDate)) {
+                break;
+            }
+            if (covered.end().isBefore(cursor)) {
+                continue;
+            }
+            if (covered.start().isAfter(cursor)) {
+                addTradingDays(missing, cursor, covered.start().minusDays(1));
+            }
+            cursor = max(cursor, covered.end().plusDays(1));
+        }
+        if (!cursor.isAfter(endDate)) {
+            addTradingDays(missing, cursor, endDate);
+        }
+        return missing;
+    }
+
+    /**
+     * Add the gap trimmed to trading days, if it holds any
+     */
+    private static void addTradingDays(List<DateRange> missing, LocalDate from, LocalDate to) {
+        LocalDate start = TradingCalendar.onOrAfter(from);
+        if (start.isAfter(to)) {
+            return;
+        }
+        missing.add(new DateRange(start, TradingCalendar.onOrBefore(to)));
+    }
+
+    private static boolean touches(LocalDate start, LocalDate end, LocalDate otherStart, LocalDate otherEnd) {
+        if (end.isBefore(otherStart)) {
+            return !TradingCalendar.hasTradingDayBetween(end, otherStart);
+        }
+        if (otherEnd.isBefore(start)) {
+            return !TradingCalendar.hasTradingDayBetween(otherEnd, start);
+        }
+        return true;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,134 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.provider.MarketDataRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Spends the upstream API budget that interactive requests leave over on the symbols asked
+ * for most, so their requests find the data already stored. It only runs off-peak, keeps
+ * {@code app.prefetch.reserved-calls} of each provider's daily quota for interactive requests,
+ * and spreads the rest evenly over the runs left before the quota resets or the off-peak
+ * window closes. The budget is that of every provider the router could send the calls to.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockDataPrefetchService {
+
+    private final AppConfig appConfig;
+    private final MarketDataRouter marketDataRouter;
+    private final SymbolDemandService symbolDemandService;
+    private final FinancialDataService financialDataService;
+
+    @Scheduled(fixedDelayString = "${app.prefetch.interval:600000}", initialDelayString = "${app.prefetch.initial-delay:60000}")
+    public void prefetchScheduled() {
+        AppConfig.Prefetch prefetch = appConfig.getPrefetch();
+        if (!prefetch.isEnabled()) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(prefetch.getZone()));
+        if (!inOffPeakWindow(now.toLocalTime(), prefetch.getOffPeakStart(), prefetch.getOffPeakEnd())) {
+            return;
+        }
+        try {
+            prefetch(callsForThisRun(now));
+        } catch (Exception e) {
+            log.error("Error during scheduled prefetch", e);
+        }
+    }
+
+    /**
+     * Refresh the most requested symbols that have gaps, making at most {@code calls} upstream calls
+     */
+    public int prefetch(long calls) {
+        if (calls <= 0) {
+            return 0;
+        }
+        AppConfig.Prefetch prefetch = appConfig.getPrefetch();
+        Map<String, Long> ranked = symbolDemandService.rankSymbols(prefetch.getDemandDays());
+
+        int made = 0;
+        int considered = 0;
+        for (Map.Entry<String, Long> entry : ranked.entrySet()) {
+            if (made >= calls || considered++ >= prefetch.getMaxSymbols()) {
+                break;
+            }
+            String symbol = entry.getKey();
+            if (!financialDataService.needsPrefetch(symbol, prefetch.getHistoryDays())) {
+                continue;
+            }
+            made++;
+            boolean stored = financialDataService.prefetchStockData(symbol, prefetch.getHistoryDays());
+            log.info("Prefetch of {} (demand {}) {}", symbol, entry.getValue(), stored ? "stored new data" : "stored nothing");
+        }
+        log.info("Prefetch made {} of {} allowed calls over {} ranked symbols", made, calls, ranked.size());
+        return made;
+    }
+
+    /**
+     * The unreserved daily budget of the routable providers divided over the runs left before it
+     * is spent for good, capped by what their per-minute limits allow right now
+     */
+    private long callsForThisRun(ZonedDateTime now) {
+        AppConfig.Prefetch prefetch = appConfig.getPrefetch();
+        Map<String, RateLimitService.Usage> budgets = marketDataRouter.candidateUsage();
+
+        long spendable = 0;
+        long thisMinute = 0;
+        for (RateLimitService.Usage usage : budgets.values()) {
+            spendable = plus(spendable, usage.callsPerDay() > 0
+                    ? Math.max(0, usage.remainingToday() - prefetch.getReservedCalls())
+                    : usage.remainingThisMinute());
+            thisMinute = plus(thisMinute, usage.remainingThisMinute());
+        }
+        if (spendable <= 0) {
+            log.debug("Prefetch skipped, no unreserved calls left on {} routable provider(s)", budgets.size());
+            return 0;
+        }
+
+        long runsLeft = Math.max(1, Duration.between(now, spendBy(now)).toMillis() / Math.max(1, prefetch.getInterval()));
+        long calls = (spendable + runsLeft - 1) / runsLeft;
+        return Math.min(calls, thisMinute);
+    }
+
+    /**
+     * Sum of two call counts, where Long.MAX_VALUE stands for no limit
+     */
+    private static long plus(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Whichever comes first: the end of the off-peak window or the UTC midnight that resets the daily quota
+     */
+    private ZonedDateTime spendBy(ZonedDateTime now) {
+        ZonedDateTime windowEnd = now.with(appConfig.getPrefetch().getOffPeakEnd());
+        if (!windowEnd.isAfter(now)) {
+            windowEnd = windowEnd.plusDays(1);
+        }
+        ZonedDateTime quotaReset = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay(ZoneOffset.UTC)
+                .withZoneSameInstant(now.getZone());
+        return windowEnd.isBefore(quotaReset) ? windowEnd : quotaReset;
+    }
+
+    static boolean inOffPeakWindow(LocalTime time, LocalTime start, LocalTime end) {
+        if (start.isBefore(end)) {
+            return !time.isBefore(start) && time.isBefore(end);
+        }
+        // The window wraps past midnight
+        return !time.isBefore(start) || time.isBefore(end);
+    }
+}
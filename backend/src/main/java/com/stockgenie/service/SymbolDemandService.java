@@ -0,0 +1,109 @@
+package com.stockgenie.service;
+
+import com.stockgenie.repository.AnalysisRequestRepository;
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.resilience.DependencyUnavailableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * How much each symbol has been asked for lately: stock data cache misses, counted per UTC
+ * day in a Redis sorted set shared by all instances, plus rows in analysis_request. Redis
+ * calls go through the Redis circuit breaker; while it is open, counts are dropped and the
+ * ranking falls back to analysis requests without waiting on Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SymbolDemandService {
+
+    private static final String MISSES_KEY_PREFIX = "stockgenie:demand:misses:";
+
+    /**
+     * Daily miss counts are kept this long, enough for any ranking window in use
+     */
+    private static final Duration MISSES_TTL = Duration.ofDays(31);
+
+    private final StringRedisTemplate redisTemplate;
+    private final AnalysisRequestRepository analysisRequestRepository;
+    private final DependencyGuards dependencyGuards;
+
+    /**
+     * Count a stock data request the cache could not answer
+     */
+    public void recordCacheMiss(String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            return;
+        }
+        String key = missesKey(LocalDate.now(ZoneOffset.UTC));
+        try {
+            redis(() -> {
+                redisTemplate.opsForZSet().incrementScore(key, symbol.trim().toUpperCase(), 1);
+                return redisTemplate.expire(key, MISSES_TTL);
+            });
+        } catch (Exception e) {
+            // Demand is a hint for prefetching; losing a count must not fail the request
+            log.debug("Could not record cache miss for {}: {}", symbol, e.getMessage());
+        }
+    }
+
+    /**
+     * Symbols by demand over the last {@code days} days, most requested first
+     */
+    public Map<String, Long> rankSymbols(int days) {
+        Map<String, Long> demand = new HashMap<>();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        try {
+            for (int i = 0; i < days; i++) {
+                String key = missesKey(today.minusDays(i));
+                Set<ZSetOperations.TypedTuple<String>> misses =
+                        redis(() -> redisTemplate.opsForZSet().rangeWithScores(key, 0, -1));
+                if (misses != null) {
+                    for (ZSetOperations.TypedTuple<String> miss : misses) {
+                        if (miss.getValue() != null && miss.getScore() != null) {
+                            demand.merge(miss.getValue(), miss.getScore().longValue(), Long::sum);
+                        }
+                    }
+                }
+            }
+        } catch (DependencyUnavailableException e) {
+            log.info("Redis is unavailable, ranking by analysis requests only: {}", e.getMessage());
+            demand.clear();
+        } catch (Exception e) {
+            log.warn("Could not read cache miss counts, ranking by analysis requests only: {}", e.getMessage());
+            demand.clear();
+        }
+
+        LocalDateTime since = LocalDateTime.now().minusDays(days);
+        for (Object[] row : analysisRequestRepository.countRequestsBySymbolSince(since)) {
+            demand.merge(((String) row[0]).toUpperCase(), ((Number) row[1]).longValue(), Long::sum);
+        }
+
+        Map<String, Long> ranked = new LinkedHashMap<>();
+        demand.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> ranked.put(entry.getKey(), entry.getValue()));
+        return ranked;
+    }
+
+    private <T> T redis(Supplier<T> call) {
+        return dependencyGuards.guard(DependencyGuards.REDIS).call(call);
+    }
+
+    private static String missesKey(LocalDate day) {
+        return MISSES_KEY_PREFIX + day;
+    }
+}
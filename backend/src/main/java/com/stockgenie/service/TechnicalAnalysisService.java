@@ -1,8 +1,15 @@
 package com.stockgenie.service;
 
+import com.stockgenie.analysis.IndicatorKernels;
+import com.stockgenie.analysis.PriceSeries;
+import com.stockgenie.analysis.RollingIndicator;
 import com.stockgenie.dto.StockDataDto;
 import com.stockgenie.dto.TechnicalAnalysisDto;
+import com.stockgenie.entity.IndicatorState;
+import com.stockgenie.entity.StockData;
 import com.stockgenie.entity.TechnicalAnalysis;
+import com.stockgenie.repository.IndicatorStateRepository;
+import com.stockgenie.repository.StockDataRepository;
 import com.stockgenie.repository.TechnicalAnalysisRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +18,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -21,6 +29,27 @@ import java.util.stream.Collectors;
 public class TechnicalAnalysisService {
     
     private final TechnicalAnalysisRepository technicalAnalysisRepository;
+    private final IndicatorStateRepository indicatorStateRepository;
+    private final StockDataRepository stockDataRepository;
+    
+    /**
+     * How each supported indicator is computed and stored
+     */
+    private record IndicatorSpec(RollingIndicator.Kind kind, int period,
+                                 TechnicalAnalysis.IndicatorType indicatorType, int storedPeriod) {
+    }
+    
+    private static final Map<String, IndicatorSpec> INDICATOR_SPECS = Map.of(
+            "SMA_20", new IndicatorSpec(RollingIndicator.Kind.SMA, 20, TechnicalAnalysis.IndicatorType.SMA, 20),
+            "SMA_50", new IndicatorSpec(RollingIndicator.Kind.SMA, 50, TechnicalAnalysis.IndicatorType.SMA, 50),
+            "EMA_12", new IndicatorSpec(RollingIndicator.Kind.EMA, 12, TechnicalAnalysis.IndicatorType.EMA, 12),
+            "EMA_26", new IndicatorSpec(RollingIndicator.Kind.EMA, 26, TechnicalAnalysis.IndicatorType.EMA, 26),
+            "RSI_14", new IndicatorSpec(RollingIndicator.Kind.RSI, 14, TechnicalAnalysis.IndicatorType.RSI, 14),
+            "MACD", new IndicatorSpec(RollingIndicator.Kind.MACD, IndicatorKernels.MACD_FAST_PERIOD,
+                    TechnicalAnalysis.IndicatorType.MACD, IndicatorKernels.MACD_FAST_PERIOD),
+            // Using SMA as placeholder type for OBV
+            "OBV", new IndicatorSpec(RollingIndicator.Kind.OBV, 1, TechnicalAnalysis.IndicatorType.SMA, 1)
+    );
     
     /**
      * Calculate technical indicators for a list of stock data
@@ -35,14 +64,22 @@ public class TechnicalAnalysisService {
         }
         
         Map<String, List<TechnicalAnalysisDto>> results = new HashMap<>();
+        PriceSeries series = PriceSeries.fromStockData(symbol, stockData);
         
         for (String indicator : indicators) {
+            IndicatorSpec spec = INDICATOR_SPECS.get(indicator.toUpperCase());
+            if (spec == null) {
+                log.warn("Unknown indicator: {}", indicator);
+                results.put(indicator, new ArrayList<>());
+                continue;
+            }
+            
             try {
-                List<TechnicalAnalysisDto> indicatorResults = calculateIndicator(symbol, stockData, indicator);
+                List<TechnicalAnalysisDto> indicatorResults = calculateIndicator(series, spec);
                 results.put(indicator, indicatorResults);
                 
-                // Save to database
-                saveTechnicalAnalysisToDatabase(indicatorResults);
+                // Save to database, writing only bars the stored state has not seen
+                persistIndicator(series, spec, indicatorResults);
                 
             } catch (Exception e) {
                 log.error("Error calculating indicator {} for {}: {}", indicator, symbol, e.getMessage());
@@ -55,242 +92,269 @@ public class TechnicalAnalysisService {
     /**
      * Calculate a specific indicator
      */
-    private List<TechnicalAnalysisDto> calculateIndicator(String symbol, List<StockDataDto> stockData, String indicator) {
-        switch (indicator.toUpperCase()) {
-            case "SMA_20":
-                return calculateSMA(symbol, stockData, 20);
-            case "SMA_50":
-                return calculateSMA(symbol, stockData, 50);
-            case "EMA_12":
-                return calculateEMA(symbol, stockData, 12);
-            case "EMA_26":
-                return calculateEMA(symbol, stockData, 26);
-            case "RSI_14":
-                return calculateRSI(symbol, stockData, 14);
-            case "MACD":
-                return calculateMACD(symbol, stockData);
-            case "OBV":
-                return calculateOBV(symbol, stockData);
+    private List<TechnicalAnalysisDto> calculateIndicator(PriceSeries series, IndicatorSpec spec) {
+        switch (spec.kind()) {
+            case SMA:
+                return calculateSMA(series, spec.period());
+            case EMA:
+                return calculateEMA(series, spec.period());
+            case RSI:
+                return calculateRSI(series, spec.period());
+            case MACD:
+                return calculateMACD(series);
+            case OBV:
+                return calculateOBV(series);
             default:
-                log.warn("Unknown indicator: {}", indicator);
-                return new ArrayList<>();
+                throw new IllegalArgumentException("Unsupported indicator kind: " + spec.kind());
         }
     }
     
     /**
      * Calculate Simple Moving Average
      */
-    private List<TechnicalAnalysisDto> calculateSMA(String symbol, List<StockDataDto> stockData, int period) {
-        List<TechnicalAnalysisDto> results = new ArrayList<>();
-        
-        for (int i = period - 1; i < stockData.size(); i++) {
-            BigDecimal sum = BigDecimal.ZERO;
-            for (int j = i - period + 1; j <= i; j++) {
-                sum = sum.add(stockData.get(j).getClose());
-            }
-            BigDecimal sma = sum.divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
-            
-            TechnicalAnalysisDto analysis = TechnicalAnalysisDto.builder()
-                    .symbol(symbol)
-                    .date(stockData.get(i).getDate())
-                    .indicatorType(TechnicalAnalysis.IndicatorType.SMA)
-                    .period(period)
-                    .value(sma)
-                    .build();
-            
-            results.add(analysis);
-        }
-        
-        return results;
+    private List<TechnicalAnalysisDto> calculateSMA(PriceSeries series, int period) {
+        double[] values = new double[series.size()];
+        int from = IndicatorKernels.sma(series.close(), series.size(), period, values);
+        return toDtos(series, values, from, TechnicalAnalysis.IndicatorType.SMA, period);
     }
     
     /**
      * Calculate Exponential Moving Average
      */
-    private List<TechnicalAnalysisDto> calculateEMA(String symbol, List<StockDataDto> stockData, int period) {
-        List<TechnicalAnalysisDto> results = new ArrayList<>();
-        
-        if (stockData.size() < period) {
-            return results;
+    private List<TechnicalAnalysisDto> calculateEMA(PriceSeries series, int period) {
+        double[] values = new double[series.size()];
+        int from = IndicatorKernels.ema(series.close(), series.size(), period, values);
+        return toDtos(series, values, from, TechnicalAnalysis.IndicatorType.EMA, period);
+    }
+    
+    /**
+     * Calculate Relative Strength Index
+     */
+    private List<TechnicalAnalysisDto> calculateRSI(PriceSeries series, int period) {
+        double[] values = new double[series.size()];
+        int from = IndicatorKernels.rsi(series.close(), series.size(), period, values);
+        return toDtos(series, values, from, TechnicalAnalysis.IndicatorType.RSI, period);
+    }
+    
+    /**
+     * Calculate MACD (Moving Average Convergence Divergence)
+     */
+    private List<TechnicalAnalysisDto> calculateMACD(PriceSeries series) {
+        double[] values = new double[series.size()];
+        int from = IndicatorKernels.macd(series.close(), series.size(),
+                IndicatorKernels.MACD_FAST_PERIOD, IndicatorKernels.MACD_SLOW_PERIOD, values);
+        return toDtos(series, values, from, TechnicalAnalysis.IndicatorType.MACD, IndicatorKernels.MACD_FAST_PERIOD);
+    }
+    
+    /**
+     * Calculate On-Balance Volume
+     */
+    private List<TechnicalAnalysisDto> calculateOBV(PriceSeries series) {
+        long[] values = new long[series.size()];
+        int from = IndicatorKernels.obv(series.close(), series.volume(), series.size(), values);
+        
+        List<TechnicalAnalysisDto> results = new ArrayList<>(Math.max(series.size() - from, 0));
+        for (int i = from; i < series.size(); i++) {
+            // Using SMA as placeholder
+            results.add(toDto(series, i, TechnicalAnalysis.IndicatorType.SMA, 1, BigDecimal.valueOf(values[i])));
         }
-        
-        // Calculate multiplier
-        BigDecimal multiplier = BigDecimal.valueOf(2.0).divide(BigDecimal.valueOf(period + 1), 6, RoundingMode.HALF_UP);
-        
-        // First EMA is SMA
-        BigDecimal sum = BigDecimal.ZERO;
-        for (int i = 0; i < period; i++) {
-            sum = sum.add(stockData.get(i).getClose());
+        return results;
+    }
+    
+    /**
+     * Convert a kernel output buffer to DTOs; BigDecimal is only created here
+     */
+    private List<TechnicalAnalysisDto> toDtos(PriceSeries series, double[] values, int from,
+                                              TechnicalAnalysis.IndicatorType indicatorType, int period) {
+        List<TechnicalAnalysisDto> results = new ArrayList<>(Math.max(series.size() - from, 0));
+        for (int i = from; i < series.size(); i++) {
+            results.add(toDto(series, i, indicatorType, period, toValue(values[i])));
         }
-        BigDecimal ema = sum.divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
-        
-        TechnicalAnalysisDto firstAnalysis = TechnicalAnalysisDto.builder()
-                .symbol(symbol)
-                .date(stockData.get(period - 1).getDate())
-                .indicatorType(TechnicalAnalysis.IndicatorType.EMA)
+        return results;
+    }
+    
+    private static TechnicalAnalysisDto toDto(PriceSeries series, int index,
+                                              TechnicalAnalysis.IndicatorType indicatorType, int period, BigDecimal value) {
+        return TechnicalAnalysisDto.builder()
+                .symbol(series.getSymbol())
+                .date(series.date(index))
+                .indicatorType(indicatorType)
                 .period(period)
-                .value(ema)
+                .value(value)
                 .build();
-        results.add(firstAnalysis);
-        
-        // Calculate subsequent EMAs
-        for (int i = period; i < stockData.size(); i++) {
-            BigDecimal currentPrice = stockData.get(i).getClose();
-            ema = currentPrice.multiply(multiplier).add(ema.multiply(BigDecimal.ONE.subtract(multiplier)));
-            
-            TechnicalAnalysisDto analysis = TechnicalAnalysisDto.builder()
-                    .symbol(symbol)
-                    .date(stockData.get(i).getDate())
-                    .indicatorType(TechnicalAnalysis.IndicatorType.EMA)
-                    .period(period)
-                    .value(ema.setScale(4, RoundingMode.HALF_UP))
-                    .build();
-            
-            results.add(analysis);
-        }
-        
-        return results;
+    }
+    
+    private static BigDecimal toValue(double value) {
+        return BigDecimal.valueOf(IndicatorKernels.round(value, IndicatorKernels.VALUE_SCALE))
+                .setScale(IndicatorKernels.VALUE_SCALE, RoundingMode.HALF_UP);
     }
     
     /**
-     * Calculate Relative Strength Index
+     * Persist an indicator against its stored rolling state.
+     * When the series simply extends the bars the state has already seen, the
+     * state is advanced one step per new bar and only those rows are written.
+     * A full recompute happens only for a backfill (bars before the state's
+     * first bar), a gap, or a corrected close on the last persisted bar. It runs
+     * over the stored price history from the earlier of the state's first bar and
+     * the series' first bar, so the stored values never depend on which request
+     * window happened to trigger it.
      */
-    private List<TechnicalAnalysisDto> calculateRSI(String symbol, List<StockDataDto> stockData, int period) {
-        List<TechnicalAnalysisDto> results = new ArrayList<>();
-        
-        if (stockData.size() < period + 1) {
-            return results;
-        }
-        
-        List<BigDecimal> gains = new ArrayList<>();
-        List<BigDecimal> losses = new ArrayList<>();
-        
-        // Calculate price changes
-        for (int i = 1; i < stockData.size(); i++) {
-            BigDecimal change = stockData.get(i).getClose().subtract(stockData.get(i - 1).getClose());
-            gains.add(change.compareTo(BigDecimal.ZERO) > 0 ? change : BigDecimal.ZERO);
-            losses.add(change.compareTo(BigDecimal.ZERO) < 0 ? change.abs() : BigDecimal.ZERO);
-        }
-        
-        // Calculate initial average gain and loss
-        BigDecimal avgGain = gains.subList(0, period).stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
-        
-        BigDecimal avgLoss = losses.subList(0, period).stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
-        
-        // Calculate RSI
-        for (int i = period; i < gains.size(); i++) {
-            // Update averages using Wilder's smoothing
-            avgGain = avgGain.multiply(BigDecimal.valueOf(period - 1))
-                    .add(gains.get(i))
-                    .divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
-            
-            avgLoss = avgLoss.multiply(BigDecimal.valueOf(period - 1))
-                    .add(losses.get(i))
-                    .divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
-            
-            BigDecimal rs = avgLoss.compareTo(BigDecimal.ZERO) == 0 ? 
-                    BigDecimal.valueOf(100) : avgGain.divide(avgLoss, 4, RoundingMode.HALF_UP);
-            BigDecimal rsi = BigDecimal.valueOf(100).subtract(
-                    BigDecimal.valueOf(100).divide(BigDecimal.ONE.add(rs), 4, RoundingMode.HALF_UP));
+    private void persistIndicator(PriceSeries series, IndicatorSpec spec, List<TechnicalAnalysisDto> computed) {
+        String symbol = series.getSymbol();
+        int n = series.size();
+        Optional<IndicatorState> stored = indicatorStateRepository
+                .findBySymbolAndIndicatorTypeAndPeriod(symbol, spec.kind(), spec.period());
+        
+        if (stored.isPresent()) {
+            IndicatorState state = stored.get();
+            int firstDay = (int) state.getFirstDate().toEpochDay();
+            int lastDay = (int) state.getLastDate().toEpochDay();
+            int lastIndex = Arrays.binarySearch(series.epochDays(), 0, n, lastDay);
+            boolean withinHistory = series.epochDay(0) >= firstDay;
             
-            TechnicalAnalysisDto analysis = TechnicalAnalysisDto.builder()
-                    .symbol(symbol)
-                    .date(stockData.get(i + 1).getDate())
-                    .indicatorType(TechnicalAnalysis.IndicatorType.RSI)
-                    .period(period)
-                    .value(rsi)
-                    .build();
-            
-            results.add(analysis);
+            if (withinHistory && lastIndex >= 0 && series.close()[lastIndex] == state.getLastClose()) {
+                appendBars(series, spec, state, lastIndex + 1);
+                return;
+            }
+            if (withinHistory && series.epochDay(n - 1) < lastDay) {
+                // The requested window lies inside history that is already persisted
+                return;
+            }
+            PriceSeries history = withStoredHistory(series, state);
+            log.info("Recomputing {} for {} from {}: backfill or correction detected", spec.kind(), symbol, history.date(0));
+            saveTechnicalAnalysisToDatabase(calculateIndicator(history, spec));
+            saveState(state, RollingIndicator.replay(spec.kind(), spec.period(), history));
+            return;
         }
         
-        return results;
+        saveTechnicalAnalysisToDatabase(computed);
+        saveState(newState(symbol, spec), RollingIndicator.replay(spec.kind(), spec.period(), series));
     }
     
     /**
-     * Calculate MACD (Moving Average Convergence Divergence)
+     * The stored bars from the earlier of the state's and the series' first bar to the later of
+     * their last bars, with the series' bars taking the place of stored ones on the same date
      */
-    private List<TechnicalAnalysisDto> calculateMACD(String symbol, List<StockDataDto> stockData) {
-        List<TechnicalAnalysisDto> results = new ArrayList<>();
-        
-        if (stockData.size() < 26) {
-            return results;
+    private PriceSeries withStoredHistory(PriceSeries series, IndicatorState state) {
+        int n = series.size();
+        LocalDate from = series.date(0).isBefore(state.getFirstDate()) ? series.date(0) : state.getFirstDate();
+        LocalDate to = series.date(n - 1).isAfter(state.getLastDate()) ? series.date(n - 1) : state.getLastDate();
+        List<StockData> storedBars = stockDataRepository.findStockDataInRange(series.getSymbol(), from, to);
+        
+        double[] open = series.open();
+        double[] high = series.high();
+        double[] low = series.low();
+        double[] close = series.close();
+        long[] volume = series.volume();
+        PriceSeries.Builder merged = PriceSeries.builder(series.getSymbol(), storedBars.size() + n);
+        int next = 0;
+        for (StockData bar : storedBars) {
+            int day = (int) bar.getDate().toEpochDay();
+            boolean replaced = false;
+            for (; next < n && series.epochDay(next) <= day; next++) {
+                merged.add(series.epochDay(next), open[next], high[next], low[next], close[next], volume[next]);
+                replaced |= series.epochDay(next) == day;
+            }
+            if (!replaced) {
+                merged.add(day, bar.getOpen().doubleValue(), bar.getHigh().doubleValue(), bar.getLow().doubleValue(),
+                        bar.getClose().doubleValue(), bar.getVolume() != null ? bar.getVolume() : 0L);
+            }
         }
-        
-        // Calculate EMAs
-        List<TechnicalAnalysisDto> ema12 = calculateEMA(symbol, stockData, 12);
-        List<TechnicalAnalysisDto> ema26 = calculateEMA(symbol, stockData, 26);
-        
-        // Calculate MACD line
-        for (int i = 0; i < Math.min(ema12.size(), ema26.size()); i++) {
-            BigDecimal macdLine = ema12.get(i).getValue().subtract(ema26.get(i).getValue());
-            
-            TechnicalAnalysisDto analysis = TechnicalAnalysisDto.builder()
-                    .symbol(symbol)
-                    .date(ema12.get(i).getDate())
-                    .indicatorType(TechnicalAnalysis.IndicatorType.MACD)
-                    .period(12)
-                    .value(macdLine)
-                    .build();
-            
-            results.add(analysis);
+        for (; next < n; next++) {
+            merged.add(series.epochDay(next), open[next], high[next], low[next], close[next], volume[next]);
         }
-        
-        return results;
+        return merged.build();
     }
     
     /**
-     * Calculate On-Balance Volume
+     * Advance the stored state over the bars from {@code from} onwards and write only their rows
      */
-    private List<TechnicalAnalysisDto> calculateOBV(String symbol, List<StockDataDto> stockData) {
-        List<TechnicalAnalysisDto> results = new ArrayList<>();
-        
-        if (stockData.size() < 2) {
-            return results;
+    private void appendBars(PriceSeries series, IndicatorSpec spec, IndicatorState state, int from) {
+        if (from >= series.size()) {
+            return;
         }
         
-        BigDecimal obv = BigDecimal.ZERO;
-        
-        for (int i = 1; i < stockData.size(); i++) {
-            BigDecimal currentClose = stockData.get(i).getClose();
-            BigDecimal previousClose = stockData.get(i - 1).getClose();
-            BigDecimal volume = BigDecimal.valueOf(stockData.get(i).getVolume());
-            
-            if (currentClose.compareTo(previousClose) > 0) {
-                obv = obv.add(volume);
-            } else if (currentClose.compareTo(previousClose) < 0) {
-                obv = obv.subtract(volume);
+        RollingIndicator rolling = toRollingIndicator(state);
+        double[] close = series.close();
+        long[] volume = series.volume();
+        List<TechnicalAnalysisDto> newRows = new ArrayList<>(series.size() - from);
+        for (int i = from; i < series.size(); i++) {
+            double value = rolling.advance(series.epochDay(i), close[i], volume[i]);
+            if (rolling.isReady()) {
+                BigDecimal decimal = spec.kind() == RollingIndicator.Kind.OBV ? BigDecimal.valueOf((long) value) : toValue(value);
+                newRows.add(toDto(series, i, spec.indicatorType(), spec.storedPeriod(), decimal));
             }
-            // If close prices are equal, OBV remains unchanged
-            
-            TechnicalAnalysisDto analysis = TechnicalAnalysisDto.builder()
-                    .symbol(symbol)
-                    .date(stockData.get(i).getDate())
-                    .indicatorType(TechnicalAnalysis.IndicatorType.SMA) // Using SMA as placeholder
-                    .period(1)
-                    .value(obv)
-                    .build();
-            
-            results.add(analysis);
         }
         
-        return results;
+        saveTechnicalAnalysisToDatabase(newRows);
+        saveState(state, rolling);
+    }
+    
+    private static IndicatorState newState(String symbol, IndicatorSpec spec) {
+        return IndicatorState.builder()
+                .symbol(symbol)
+                .indicatorType(spec.kind())
+                .period(spec.period())
+                .build();
+    }
+    
+    private void saveState(IndicatorState state, RollingIndicator rolling) {
+        state.setBarCount(rolling.getBarCount());
+        state.setFirstDate(LocalDate.ofEpochDay(rolling.getFirstEpochDay()));
+        state.setLastDate(LocalDate.ofEpochDay(rolling.getLastEpochDay()));
+        state.setLastClose(rolling.getLastClose());
+        state.setPrimaryValue(rolling.getPrimary());
+        state.setSecondaryValue(rolling.getSecondary());
+        state.setSeedSum(rolling.getSeedSum());
+        state.setWindowValues(encodeWindow(rolling.getWindow()));
+        state.setWindowPosition(rolling.getWindowPosition());
+        indicatorStateRepository.save(state);
+    }
+    
+    private static RollingIndicator toRollingIndicator(IndicatorState state) {
+        return RollingIndicator.restore(state.getIndicatorType(), state.getPeriod(), state.getBarCount(),
+                (int) state.getFirstDate().toEpochDay(), (int) state.getLastDate().toEpochDay(), state.getLastClose(),
+                valueOrZero(state.getPrimaryValue()), valueOrZero(state.getSecondaryValue()),
+                valueOrZero(state.getSeedSum()), decodeWindow(state.getWindowValues()),
+                state.getWindowPosition() != null ? state.getWindowPosition() : 0);
+    }
+    
+    private static double valueOrZero(Double value) {
+        return value != null ? value : 0d;
+    }
+    
+    private static byte[] encodeWindow(double[] window) {
+        if (window == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(window.length * Double.BYTES);
+        buffer.asDoubleBuffer().put(window);
+        return buffer.array();
+    }
+    
+    private static double[] decodeWindow(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        double[] window = new double[bytes.length / Double.BYTES];
+        ByteBuffer.wrap(bytes).asDoubleBuffer().get(window);
+        return window;
     }
     
     /**
-     * Save technical analysis results to database
+     * Upsert technical analysis results, so a retry after a partial failure
+     * or a recompute over stored dates overwrites rather than conflicts
      */
     private void saveTechnicalAnalysisToDatabase(List<TechnicalAnalysisDto> analysisList) {
+        if (analysisList.isEmpty()) {
+            return;
+        }
         List<TechnicalAnalysis> entities = analysisList.stream()
                 .map(this::convertToEntity)
                 .collect(Collectors.toList());
         
-        technicalAnalysisRepository.saveAll(entities);
-        log.info("Saved {} technical analysis records to database", entities.size());
+        int changed = technicalAnalysisRepository.upsertAll(entities);
+        log.info("Upserted {} technical analysis records to database, {} inserted or changed", entities.size(), changed);
     }
     
     /**
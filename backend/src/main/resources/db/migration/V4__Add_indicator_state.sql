@@ -0,0 +1,31 @@
+-- Persisted rolling indicator state
+-- Lets a new bar advance each indicator by one step instead of recomputing the full history
+
+CREATE TABLE IF NOT EXISTS indicator_state (
+    id BIGSERIAL PRIMARY KEY,
+    symbol VARCHAR(10) NOT NULL,
+    indicator_type VARCHAR(20) NOT NULL,
+    period INTEGER NOT NULL,
+    bar_count BIGINT NOT NULL,
+    first_date DATE NOT NULL,
+    last_date DATE NOT NULL,
+    last_close DOUBLE PRECISION NOT NULL,
+    primary_value DOUBLE PRECISION,
+    secondary_value DOUBLE PRECISION,
+    seed_sum DOUBLE PRECISION,
+    window_values BYTEA,
+    window_position INTEGER,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(symbol, indicator_type, period)
+);
+
+CREATE TRIGGER update_indicator_state_updated_at
+    BEFORE UPDATE ON indicator_state
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+COMMENT ON TABLE indicator_state IS 'Rolling indicator state per symbol, indicator and period';
+COMMENT ON COLUMN indicator_state.first_date IS 'First bar the state was computed from';
+COMMENT ON COLUMN indicator_state.last_date IS 'Last bar folded into the state';
+COMMENT ON COLUMN indicator_state.last_close IS 'Close of the last bar, used to detect corrections';
+COMMENT ON COLUMN indicator_state.window_values IS 'SMA ring buffer of closes, packed doubles';
@@ -0,0 +1,62 @@
+-- Coverage index for stock_data
+-- Records which date intervals have been fetched from upstream per symbol, so only missing ranges are requested
+
+CREATE TABLE IF NOT EXISTS stock_data_coverage (
+    id BIGSERIAL PRIMARY KEY,
+    symbol VARCHAR(10) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CHECK (start_date <= end_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_data_coverage_symbol_start ON stock_data_coverage(symbol, start_date);
+
+CREATE TRIGGER update_stock_data_coverage_updated_at
+    BEFORE UPDATE ON stock_data_coverage
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+COMMENT ON TABLE stock_data_coverage IS 'Date intervals per symbol already fetched from upstream into stock_data';
+COMMENT ON COLUMN stock_data_coverage.start_date IS 'First covered calendar date (inclusive)';
+COMMENT ON COLUMN stock_data_coverage.end_date IS 'Last covered calendar date (inclusive)';
+
+-- Retention must shrink coverage together with the rows, or purged ranges would never be refetched
+CREATE OR REPLACE FUNCTION cleanup_old_data(retention_days INTEGER DEFAULT 365)
+RETURNS TABLE(
+    table_name TEXT,
+    deleted_count BIGINT
+) AS $$
+DECLARE
+    cutoff_date DATE;
+    stock_data_count BIGINT;
+    technical_analysis_count BIGINT;
+    analysis_request_count BIGINT;
+    coverage_count BIGINT;
+BEGIN
+    cutoff_date := CURRENT_DATE - retention_days;
+    
+    -- Clean up old stock data
+    DELETE FROM stock_data WHERE date < cutoff_date;
+    GET DIAGNOSTICS stock_data_count = ROW_COUNT;
+    
+    -- Drop or trim coverage of the purged dates
+    DELETE FROM stock_data_coverage WHERE end_date < cutoff_date;
+    GET DIAGNOSTICS coverage_count = ROW_COUNT;
+    UPDATE stock_data_coverage SET start_date = cutoff_date WHERE start_date < cutoff_date;
+    
+    -- Clean up old technical analysis data
+    DELETE FROM technical_analysis WHERE date < cutoff_date;
+    GET DIAGNOSTICS technical_analysis_count = ROW_COUNT;
+    
+    -- Clean up old analysis requests (keep for 30 days)
+    DELETE FROM analysis_request WHERE created_at < (CURRENT_TIMESTAMP - INTERVAL '30 days');
+    GET DIAGNOSTICS analysis_request_count = ROW_COUNT;
+    
+    -- Return cleanup statistics
+    RETURN QUERY SELECT 'stock_data'::TEXT, stock_data_count;
+    RETURN QUERY SELECT 'stock_data_coverage'::TEXT, coverage_count;
+    RETURN QUERY SELECT 'technical_analysis'::TEXT, technical_analysis_count;
+    RETURN QUERY SELECT 'analysis_request'::TEXT, analysis_request_count;
+END;
+$$ LANGUAGE plpgsql;
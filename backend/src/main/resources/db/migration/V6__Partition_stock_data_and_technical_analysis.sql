@@ -0,0 +1,316 @@
+-- Monthly range partitioning for stock_data and technical_analysis
+-- Retention drops whole expired partitions instead of deleting rows, so the nightly cleanup
+-- no longer leaves dead tuples behind or needs a VACUUM afterwards
+
+-- Views depend on the table being replaced; recreated below
+DROP VIEW IF EXISTS latest_stock_data;
+DROP VIEW IF EXISTS stock_data_summary;
+
+-- Move the existing tables and their index names out of the way
+ALTER TABLE stock_data RENAME TO stock_data_unpartitioned;
+ALTER TABLE technical_analysis RENAME TO technical_analysis_unpartitioned;
+
+ALTER INDEX IF EXISTS stock_data_pkey RENAME TO stock_data_unpartitioned_pkey;
+ALTER INDEX IF EXISTS stock_data_symbol_date_key RENAME TO stock_data_unpartitioned_symbol_date_key;
+ALTER INDEX IF EXISTS technical_analysis_pkey RENAME TO technical_analysis_unpartitioned_pkey;
+ALTER INDEX IF EXISTS technical_analysis_symbol_date_indicator_type_period_key
+    RENAME TO technical_analysis_unpartitioned_key;
+
+-- Replaced by the per-partition indexes below; the CURRENT_DATE predicates were frozen at creation time
+DROP INDEX IF EXISTS idx_stock_data_symbol_date;
+DROP INDEX IF EXISTS idx_stock_data_date;
+DROP INDEX IF EXISTS idx_stock_data_symbol;
+DROP INDEX IF EXISTS idx_stock_data_date_range;
+DROP INDEX IF EXISTS idx_stock_data_recent;
+DROP INDEX IF EXISTS idx_technical_analysis_symbol_date;
+DROP INDEX IF EXISTS idx_technical_analysis_indicator;
+DROP INDEX IF EXISTS idx_technical_analysis_symbol_indicator;
+DROP INDEX IF EXISTS idx_technical_analysis_date_range;
+DROP INDEX IF EXISTS idx_technical_analysis_recent;
+
+-- Keep the id sequences; they would otherwise be dropped with the old tables
+ALTER SEQUENCE stock_data_id_seq OWNED BY NONE;
+ALTER SEQUENCE technical_analysis_id_seq OWNED BY NONE;
+
+-- Columns the entity defines but V1 did not create
+ALTER TABLE technical_analysis_unpartitioned ADD COLUMN IF NOT EXISTS signal NUMERIC(15,8);
+ALTER TABLE technical_analysis_unpartitioned ADD COLUMN IF NOT EXISTS histogram NUMERIC(15,8);
+ALTER TABLE technical_analysis_unpartitioned ADD COLUMN IF NOT EXISTS metadata VARCHAR(1000);
+ALTER TABLE technical_analysis_unpartitioned ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+
+-- Unique constraints on a partitioned table must include the partition key
+CREATE TABLE stock_data (
+    id BIGINT NOT NULL DEFAULT nextval('stock_data_id_seq'),
+    symbol VARCHAR(10) NOT NULL,
+    date DATE NOT NULL,
+    open NUMERIC(10,6) NOT NULL,
+    high NUMERIC(10,6) NOT NULL,
+    low NUMERIC(10,6) NOT NULL,
+    close NUMERIC(10,6) NOT NULL,
+    volume BIGINT NOT NULL,
+    adjusted_close NUMERIC(10,6),
+    data_source VARCHAR(50) DEFAULT 'alpha-vantage',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, date),
+    UNIQUE (symbol, date)
+) PARTITION BY RANGE (date);
+
+CREATE TABLE technical_analysis (
+    id BIGINT NOT NULL DEFAULT nextval('technical_analysis_id_seq'),
+    symbol VARCHAR(10) NOT NULL,
+    date DATE NOT NULL,
+    indicator_type VARCHAR(50) NOT NULL,
+    indicator_value NUMERIC(15,8) NOT NULL,
+    period INTEGER,
+    signal NUMERIC(15,8),
+    histogram NUMERIC(15,8),
+    metadata VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, date),
+    UNIQUE (symbol, date, indicator_type, period)
+) PARTITION BY RANGE (date);
+
+ALTER SEQUENCE stock_data_id_seq OWNED BY stock_data.id;
+ALTER SEQUENCE technical_analysis_id_seq OWNED BY technical_analysis.id;
+
+-- Catches rows outside every monthly partition, e.g. a backfill older than retention
+CREATE TABLE stock_data_default PARTITION OF stock_data DEFAULT;
+CREATE TABLE technical_analysis_default PARTITION OF technical_analysis DEFAULT;
+
+-- Defined on the parents, so every partition gets its own copy
+CREATE INDEX idx_stock_data_date ON stock_data(date);
+CREATE INDEX idx_technical_analysis_symbol_indicator ON technical_analysis(symbol, indicator_type, date);
+
+CREATE TRIGGER update_stock_data_updated_at
+    BEFORE UPDATE ON stock_data
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+CREATE TRIGGER update_technical_analysis_updated_at
+    BEFORE UPDATE ON technical_analysis
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- Create the monthly partitions <parent>_YYYYMM for every month in [from_date, to_date] that has none.
+-- Rows of that month already sitting in the default partition are moved into the new one.
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, from_date DATE, to_date DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    month_end DATE;
+    partition_name TEXT;
+    created_count INTEGER := 0;
+BEGIN
+    month_start := date_trunc('month', from_date)::DATE;
+    WHILE month_start <= to_date LOOP
+        month_end := (month_start + INTERVAL '1 month')::DATE;
+        partition_name := parent || '_' || to_char(month_start, 'YYYYMM');
+
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                           partition_name, parent);
+            EXECUTE format('WITH moved AS (DELETE FROM %I WHERE date >= %L AND date < %L RETURNING *) '
+                           'INSERT INTO %I SELECT * FROM moved',
+                           parent || '_default', month_start, month_end, partition_name);
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           parent, partition_name, month_start, month_end);
+            created_count := created_count + 1;
+        END IF;
+
+        month_start := month_end;
+    END LOOP;
+
+    RETURN created_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Drop the monthly partitions of parent that end on or before cutoff_date, then delete the
+-- expired rows left in the default partition. Returns the number of rows removed.
+CREATE OR REPLACE FUNCTION drop_expired_partitions(parent TEXT, cutoff_date DATE)
+RETURNS BIGINT AS $$
+DECLARE
+    partition_name TEXT;
+    partition_rows BIGINT;
+    removed_count BIGINT := 0;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = parent::regclass
+          AND c.relname ~ ('^' || parent || '_[0-9]{6}$')
+          AND (to_date(right(c.relname, 6), 'YYYYMM') + INTERVAL '1 month')::DATE <= cutoff_date
+    LOOP
+        EXECUTE format('SELECT COUNT(*) FROM %I', partition_name) INTO partition_rows;
+        EXECUTE format('DROP TABLE %I', partition_name);
+        removed_count := removed_count + partition_rows;
+    END LOOP;
+
+    EXECUTE format('DELETE FROM %I WHERE date < %L', parent || '_default', cutoff_date);
+    GET DIAGNOSTICS partition_rows = ROW_COUNT;
+
+    RETURN removed_count + partition_rows;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for the default retention window and the next three months; older rows land in the
+-- default partition until the first cleanup, which also creates partitions for a longer configured window
+SELECT create_monthly_partitions('stock_data', CURRENT_DATE - 365, (CURRENT_DATE + INTERVAL '3 months')::DATE);
+SELECT create_monthly_partitions('technical_analysis', CURRENT_DATE - 365, (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+INSERT INTO stock_data (id, symbol, date, open, high, low, close, volume, adjusted_close, data_source,
+                        created_at, updated_at)
+SELECT id, symbol, date, open, high, low, close, volume, adjusted_close, data_source, created_at, updated_at
+FROM stock_data_unpartitioned;
+
+INSERT INTO technical_analysis (id, symbol, date, indicator_type, indicator_value, period, signal, histogram,
+                                metadata, created_at, updated_at)
+SELECT id, symbol, date, indicator_type, indicator_value, period, signal, histogram, metadata, created_at,
+       COALESCE(updated_at, created_at)
+FROM technical_analysis_unpartitioned;
+
+DROP TABLE stock_data_unpartitioned;
+DROP TABLE technical_analysis_unpartitioned;
+
+-- Recreate views for latest stock data and summaries
+CREATE OR REPLACE VIEW latest_stock_data AS
+SELECT DISTINCT ON (symbol)
+    symbol,
+    date,
+    open,
+    high,
+    low,
+    close,
+    volume,
+    adjusted_close,
+    data_source,
+    created_at,
+    updated_at
+FROM stock_data
+ORDER BY symbol, date DESC;
+
+CREATE OR REPLACE VIEW stock_data_summary AS
+SELECT
+    symbol,
+    COUNT(*) as total_records,
+    MIN(date) as earliest_date,
+    MAX(date) as latest_date,
+    AVG(close) as avg_close,
+    MIN(close) as min_close,
+    MAX(close) as max_close,
+    SUM(volume) as total_volume
+FROM stock_data
+GROUP BY symbol;
+
+-- Retention by partition: expired months are dropped whole, so rows older than the cutoff
+-- can survive until the end of their month
+CREATE OR REPLACE FUNCTION cleanup_old_data(retention_days INTEGER DEFAULT 365)
+RETURNS TABLE(
+    table_name TEXT,
+    deleted_count BIGINT
+) AS $$
+DECLARE
+    cutoff_date DATE;
+    stock_data_count BIGINT;
+    technical_analysis_count BIGINT;
+    analysis_request_count BIGINT;
+    coverage_count BIGINT;
+BEGIN
+    cutoff_date := CURRENT_DATE - retention_days;
+
+    -- Drop expired stock data partitions
+    stock_data_count := drop_expired_partitions('stock_data', cutoff_date);
+
+    -- Drop or trim coverage of the purged dates
+    DELETE FROM stock_data_coverage WHERE end_date < cutoff_date;
+    GET DIAGNOSTICS coverage_count = ROW_COUNT;
+    UPDATE stock_data_coverage SET start_date = cutoff_date WHERE start_date < cutoff_date;
+
+    -- Drop expired technical analysis partitions
+    technical_analysis_count := drop_expired_partitions('technical_analysis', cutoff_date);
+
+    -- Clean up old analysis requests (keep for 30 days)
+    DELETE FROM analysis_request WHERE created_at < (CURRENT_TIMESTAMP - INTERVAL '30 days');
+    GET DIAGNOSTICS analysis_request_count = ROW_COUNT;
+
+    -- Return cleanup statistics
+    RETURN QUERY SELECT 'stock_data'::TEXT, stock_data_count;
+    RETURN QUERY SELECT 'stock_data_coverage'::TEXT, coverage_count;
+    RETURN QUERY SELECT 'technical_analysis'::TEXT, technical_analysis_count;
+    RETURN QUERY SELECT 'analysis_request'::TEXT, analysis_request_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- VACUUM cannot run inside a function, and dropped partitions leave nothing to reclaim;
+-- autovacuum skips partitioned parents, so their statistics are refreshed here
+CREATE OR REPLACE FUNCTION optimize_database()
+RETURNS TEXT AS $$
+BEGIN
+    ANALYZE stock_data;
+    ANALYZE technical_analysis;
+    ANALYZE analysis_request;
+
+    RETURN 'Database optimization completed successfully';
+END;
+$$ LANGUAGE plpgsql;
+
+-- A partitioned parent has no storage of its own, so sizes are summed over its partitions
+CREATE OR REPLACE FUNCTION get_database_stats()
+RETURNS TABLE(
+    table_name TEXT,
+    record_count BIGINT,
+    oldest_record DATE,
+    newest_record DATE,
+    table_size TEXT
+) AS $$
+BEGIN
+    RETURN QUERY
+    SELECT
+        'stock_data'::TEXT,
+        COUNT(*),
+        MIN(date),
+        MAX(date),
+        pg_size_pretty((SELECT SUM(pg_total_relation_size(relid))::BIGINT FROM pg_partition_tree('stock_data')))
+    FROM stock_data
+    UNION ALL
+    SELECT
+        'technical_analysis'::TEXT,
+        COUNT(*),
+        MIN(date),
+        MAX(date),
+        pg_size_pretty((SELECT SUM(pg_total_relation_size(relid))::BIGINT FROM pg_partition_tree('technical_analysis')))
+    FROM technical_analysis
+    UNION ALL
+    SELECT
+        'analysis_request'::TEXT,
+        COUNT(*),
+        MIN(created_at::DATE),
+        MAX(created_at::DATE),
+        pg_size_pretty(pg_total_relation_size('analysis_request'))
+    FROM analysis_request;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON TABLE stock_data IS 'Historical stock price data, range-partitioned by month on date';
+COMMENT ON TABLE technical_analysis IS 'Technical analysis indicators for stocks, range-partitioned by month on date';
+COMMENT ON TABLE stock_data_default IS 'Rows outside every monthly stock_data partition';
+COMMENT ON TABLE technical_analysis_default IS 'Rows outside every monthly technical_analysis partition';
+
+COMMENT ON COLUMN stock_data.symbol IS 'Stock symbol (e.g., AAPL, MSFT)';
+COMMENT ON COLUMN stock_data.date IS 'Trading date';
+COMMENT ON COLUMN stock_data.open IS 'Opening price';
+COMMENT ON COLUMN stock_data.high IS 'Highest price of the day';
+COMMENT ON COLUMN stock_data.low IS 'Lowest price of the day';
+COMMENT ON COLUMN stock_data.close IS 'Closing price';
+COMMENT ON COLUMN stock_data.volume IS 'Trading volume';
+COMMENT ON COLUMN stock_data.adjusted_close IS 'Adjusted closing price';
+COMMENT ON COLUMN stock_data.data_source IS 'Source of the data (alpha-vantage, eodhd, etc.)';
+
+COMMENT ON COLUMN technical_analysis.indicator_type IS 'Type of technical indicator (SMA, EMA, RSI, etc.)';
+COMMENT ON COLUMN technical_analysis.indicator_value IS 'Value of the technical indicator';
+COMMENT ON COLUMN technical_analysis.period IS 'Period used for calculation (e.g., 20 for SMA_20)';
+
+COMMENT ON FUNCTION create_monthly_partitions(TEXT, DATE, DATE) IS 'Creates missing monthly partitions, moving matching rows out of the default partition';
+COMMENT ON FUNCTION drop_expired_partitions(TEXT, DATE) IS 'Drops monthly partitions that end before the cutoff and trims the default partition';
+COMMENT ON FUNCTION cleanup_old_data(INTEGER) IS 'Cleans up old data based on retention policy, dropping whole partitions';
+COMMENT ON FUNCTION optimize_database() IS 'Refreshes planner statistics, including those of partitioned parents';
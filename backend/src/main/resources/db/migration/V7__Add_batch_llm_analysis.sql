@@ -0,0 +1,16 @@
+-- Batch LLM analysis
+-- The AnalysisRequest entity now maps to analysis_request (it used to point at a Hibernate-created
+-- analysis_requests table); add the columns it writes and a batch id to group one run's rows
+
+ALTER TABLE analysis_request
+    ADD COLUMN IF NOT EXISTS start_date DATE,
+    ADD COLUMN IF NOT EXISTS end_date DATE,
+    ADD COLUMN IF NOT EXISTS indicators VARCHAR(2000),
+    ADD COLUMN IF NOT EXISTS llm_response TEXT,
+    ADD COLUMN IF NOT EXISTS error_message VARCHAR(1000),
+    ADD COLUMN IF NOT EXISTS batch_id VARCHAR(36);
+
+CREATE INDEX IF NOT EXISTS idx_analysis_request_batch_status
+    ON analysis_request(batch_id, status) WHERE batch_id IS NOT NULL;
+
+COMMENT ON COLUMN analysis_request.batch_id IS 'Batch LLM run the request belongs to, null for single requests';
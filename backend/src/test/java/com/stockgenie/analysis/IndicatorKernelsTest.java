@@ -0,0 +1,167 @@
+package com.stockgenie.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the primitive kernels against the BigDecimal algorithms they replaced.
+ */
+class IndicatorKernelsTest {
+
+    private static final double TOLERANCE = 1e-4;
+
+    private final double[] closes = randomWalk(5_000, 42L);
+    private final BigDecimal[] decimalCloses = toDecimals(closes);
+
+    @Test
+    void smaMatchesBigDecimalReference() {
+        for (int period : new int[]{20, 50}) {
+            double[] out = new double[closes.length];
+            int from = IndicatorKernels.sma(closes, closes.length, period, out);
+
+            List<BigDecimal> expected = new ArrayList<>();
+            for (int i = period - 1; i < decimalCloses.length; i++) {
+                BigDecimal sum = BigDecimal.ZERO;
+                for (int j = i - period + 1; j <= i; j++) {
+                    sum = sum.add(decimalCloses[j]);
+                }
+                expected.add(sum.divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP));
+            }
+
+            assertMatches(expected, out, from);
+        }
+    }
+
+    @Test
+    void emaMatchesBigDecimalReference() {
+        for (int period : new int[]{12, 26}) {
+            double[] out = new double[closes.length];
+            int from = IndicatorKernels.ema(closes, closes.length, period, out);
+            assertMatches(referenceEma(period), out, from);
+        }
+    }
+
+    @Test
+    void rsiMatchesBigDecimalReference() {
+        int period = 14;
+        double[] out = new double[closes.length];
+        int from = IndicatorKernels.rsi(closes, closes.length, period, out);
+
+        BigDecimal hundred = BigDecimal.valueOf(100);
+        BigDecimal avgGain = BigDecimal.ZERO;
+        BigDecimal avgLoss = BigDecimal.ZERO;
+        for (int i = 1; i <= period; i++) {
+            BigDecimal change = decimalCloses[i].subtract(decimalCloses[i - 1]);
+            avgGain = avgGain.add(change.max(BigDecimal.ZERO));
+            avgLoss = avgLoss.add(change.min(BigDecimal.ZERO).abs());
+        }
+        avgGain = avgGain.divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
+        avgLoss = avgLoss.divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
+
+        List<BigDecimal> expected = new ArrayList<>();
+        for (int i = period + 1; i < decimalCloses.length; i++) {
+            BigDecimal change = decimalCloses[i].subtract(decimalCloses[i - 1]);
+            avgGain = avgGain.multiply(BigDecimal.valueOf(period - 1)).add(change.max(BigDecimal.ZERO))
+                    .divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
+            avgLoss = avgLoss.multiply(BigDecimal.valueOf(period - 1)).add(change.min(BigDecimal.ZERO).abs())
+                    .divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
+            BigDecimal rs = avgLoss.signum() == 0 ? hundred : avgGain.divide(avgLoss, 4, RoundingMode.HALF_UP);
+            expected.add(hundred.subtract(hundred.divide(BigDecimal.ONE.add(rs), 4, RoundingMode.HALF_UP)));
+        }
+
+        assertMatches(expected, out, from);
+    }
+
+    @Test
+    void macdIsFastMinusSlowEmaOnTheSameBar() {
+        double[] out = new double[closes.length];
+        int from = IndicatorKernels.macd(closes, closes.length, 12, 26, out);
+
+        List<BigDecimal> ema12 = referenceEma(12);
+        List<BigDecimal> ema26 = referenceEma(26);
+        List<BigDecimal> expected = new ArrayList<>();
+        for (int i = 0; i < ema26.size(); i++) {
+            expected.add(ema12.get(i + 14).subtract(ema26.get(i)));
+        }
+
+        assertEquals(25, from);
+        assertMatches(expected, out, from);
+    }
+
+    @Test
+    void obvAccumulatesSignedVolume() {
+        double[] close = {10.0, 10.5, 10.5, 10.2, 11.0};
+        long[] volume = {100, 200, 300, 400, 500};
+        long[] out = new long[close.length];
+
+        int from = IndicatorKernels.obv(close, volume, close.length, out);
+
+        assertEquals(1, from);
+        assertEquals(200, out[1]);
+        assertEquals(200, out[2]);
+        assertEquals(-200, out[3]);
+        assertEquals(300, out[4]);
+    }
+
+    @Test
+    void shortInputsProduceNoValues() {
+        double[] out = new double[10];
+        assertEquals(10, IndicatorKernels.sma(closes, 10, 20, out));
+        assertEquals(10, IndicatorKernels.ema(closes, 10, 12, out));
+        assertEquals(10, IndicatorKernels.rsi(closes, 10, 14, out));
+        assertEquals(10, IndicatorKernels.macd(closes, 10, 12, 26, out));
+    }
+
+    private List<BigDecimal> referenceEma(int period) {
+        BigDecimal multiplier = BigDecimal.valueOf(2.0).divide(BigDecimal.valueOf(period + 1), 6, RoundingMode.HALF_UP);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < period; i++) {
+            sum = sum.add(decimalCloses[i]);
+        }
+        BigDecimal ema = sum.divide(BigDecimal.valueOf(period), 4, RoundingMode.HALF_UP);
+
+        List<BigDecimal> values = new ArrayList<>();
+        values.add(ema);
+        for (int i = period; i < decimalCloses.length; i++) {
+            ema = decimalCloses[i].multiply(multiplier).add(ema.multiply(BigDecimal.ONE.subtract(multiplier)));
+            // Bound the scale so the reference stays fast; far below the 4dp comparison
+            ema = ema.setScale(20, RoundingMode.HALF_UP);
+            values.add(ema.setScale(4, RoundingMode.HALF_UP));
+        }
+        return values;
+    }
+
+    private static void assertMatches(List<BigDecimal> expected, double[] actual, int from) {
+        assertEquals(expected.size(), actual.length - from, "number of values");
+        for (int i = 0; i < expected.size(); i++) {
+            double value = IndicatorKernels.round(actual[from + i], IndicatorKernels.VALUE_SCALE);
+            assertEquals(expected.get(i).doubleValue(), value, TOLERANCE + 1e-9, "value at bar " + (from + i));
+        }
+    }
+
+    private static double[] randomWalk(int size, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[size];
+        long priceInTicks = 1_500_000L; // 150.0000
+        for (int i = 0; i < size; i++) {
+            priceInTicks = Math.max(10_000L, priceInTicks + random.nextInt(40_001) - 20_000);
+            values[i] = priceInTicks / 10_000d;
+        }
+        return values;
+    }
+
+    private static BigDecimal[] toDecimals(double[] values) {
+        BigDecimal[] decimals = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            decimals[i] = BigDecimal.valueOf(values[i]);
+        }
+        return decimals;
+    }
+}
@@ -0,0 +1,120 @@
+package com.stockgenie.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that stepping bar by bar reproduces the batch kernels, including
+ * across a persist/restore boundary.
+ */
+class RollingIndicatorTest {
+
+    private static final int BARS = 2_000;
+    private static final int FIRST_DAY = 19_000;
+
+    private final double[] closes = new double[BARS];
+    private final long[] volumes = new long[BARS];
+
+    RollingIndicatorTest() {
+        Random random = new Random(7L);
+        long priceInTicks = 1_500_000L;
+        for (int i = 0; i < BARS; i++) {
+            priceInTicks = Math.max(10_000L, priceInTicks + random.nextInt(40_001) - 20_000);
+            closes[i] = priceInTicks / 10_000d;
+            volumes[i] = 1_000L + random.nextInt(1_000_000);
+        }
+    }
+
+    @Test
+    void steppingMatchesKernels() {
+        assertMatchesKernel(RollingIndicator.Kind.SMA, 20, kernel(RollingIndicator.Kind.SMA, 20));
+        assertMatchesKernel(RollingIndicator.Kind.SMA, 50, kernel(RollingIndicator.Kind.SMA, 50));
+        assertMatchesKernel(RollingIndicator.Kind.EMA, 12, kernel(RollingIndicator.Kind.EMA, 12));
+        assertMatchesKernel(RollingIndicator.Kind.RSI, 14, kernel(RollingIndicator.Kind.RSI, 14));
+        assertMatchesKernel(RollingIndicator.Kind.MACD, 12, kernel(RollingIndicator.Kind.MACD, 12));
+        assertMatchesKernel(RollingIndicator.Kind.OBV, 1, kernel(RollingIndicator.Kind.OBV, 1));
+    }
+
+    @Test
+    void restoredStateContinuesWhereItStopped() {
+        for (RollingIndicator.Kind kind : RollingIndicator.Kind.values()) {
+            int period = kind == RollingIndicator.Kind.SMA ? 20 : 14;
+            double[] expected = kernel(kind, period);
+
+            RollingIndicator first = RollingIndicator.create(kind, period);
+            for (int i = 0; i < BARS / 2; i++) {
+                first.advance(FIRST_DAY + i, closes[i], volumes[i]);
+            }
+
+            RollingIndicator restored = RollingIndicator.restore(kind, first.getPeriod(), first.getBarCount(),
+                    first.getFirstEpochDay(), first.getLastEpochDay(), first.getLastClose(), first.getPrimary(),
+                    first.getSecondary(), first.getSeedSum(), first.getWindow(), first.getWindowPosition());
+            for (int i = BARS / 2; i < BARS; i++) {
+                double value = restored.advance(FIRST_DAY + i, closes[i], volumes[i]);
+                assertEquals(round(expected[i]), round(value), 1e-9, kind + " at bar " + i);
+            }
+        }
+    }
+
+    @Test
+    void reportsReadinessAfterWarmUp() {
+        RollingIndicator rsi = RollingIndicator.create(RollingIndicator.Kind.RSI, 14);
+        for (int i = 0; i < 15; i++) {
+            assertTrue(Double.isNaN(rsi.advance(FIRST_DAY + i, closes[i], volumes[i])));
+            assertFalse(rsi.isReady());
+        }
+        rsi.advance(FIRST_DAY + 15, closes[15], volumes[15]);
+        assertTrue(rsi.isReady());
+    }
+
+    @Test
+    void rejectsBarsOutOfOrder() {
+        RollingIndicator ema = RollingIndicator.create(RollingIndicator.Kind.EMA, 12);
+        ema.advance(FIRST_DAY + 1, 10d, 1L);
+        assertThrows(IllegalArgumentException.class, () -> ema.advance(FIRST_DAY + 1, 11d, 1L));
+    }
+
+    private void assertMatchesKernel(RollingIndicator.Kind kind, int period, double[] expected) {
+        RollingIndicator indicator = RollingIndicator.create(kind, period);
+        for (int i = 0; i < BARS; i++) {
+            double value = indicator.advance(FIRST_DAY + i, closes[i], volumes[i]);
+            if (Double.isNaN(expected[i])) {
+                assertFalse(indicator.isReady(), kind + " ready too early at bar " + i);
+                assertTrue(Double.isNaN(value), kind + " value too early at bar " + i);
+            } else {
+                assertTrue(indicator.isReady(), kind + " not ready at bar " + i);
+                assertEquals(round(expected[i]), round(value), 1e-9, kind + " at bar " + i);
+            }
+        }
+    }
+
+    private double[] kernel(RollingIndicator.Kind kind, int period) {
+        double[] out = new double[BARS];
+        java.util.Arrays.fill(out, Double.NaN);
+        switch (kind) {
+            case SMA -> IndicatorKernels.sma(closes, BARS, period, out);
+            case EMA -> IndicatorKernels.ema(closes, BARS, period, out);
+            case RSI -> IndicatorKernels.rsi(closes, BARS, period, out);
+            case MACD -> IndicatorKernels.macd(closes, BARS,
+                    IndicatorKernels.MACD_FAST_PERIOD, IndicatorKernels.MACD_SLOW_PERIOD, out);
+            case OBV -> {
+                long[] obv = new long[BARS];
+                int from = IndicatorKernels.obv(closes, volumes, BARS, obv);
+                for (int i = from; i < BARS; i++) {
+                    out[i] = obv[i];
+                }
+            }
+        }
+        return out;
+    }
+
+    private static double round(double value) {
+        return IndicatorKernels.round(value, IndicatorKernels.VALUE_SCALE);
+    }
+}
@@ -0,0 +1,60 @@
+package com.stockgenie.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the calendar against published NYSE holiday schedules.
+ */
+class TradingCalendarTest {
+
+    @Test
+    void knowsTheRegularHolidays() {
+        LocalDate[] holidays2024 = {
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 19),
+                LocalDate.of(2024, 3, 29), LocalDate.of(2024, 5, 27), LocalDate.of(2024, 6, 19),
+                LocalDate.of(2024, 7, 4), LocalDate.of(2024, 9, 2), LocalDate.of(2024, 11, 28),
+                LocalDate.of(2024, 12, 25)
+        };
+        for (LocalDate holiday : holidays2024) {
+            assertFalse(TradingCalendar.isTradingDay(holiday), holiday.toString());
+        }
+        assertTrue(TradingCalendar.isTradingDay(LocalDate.of(2024, 7, 5)));
+    }
+
+    @Test
+    void appliesWeekendObservance() {
+        // Christmas 2021 fell on a Saturday, New Year's Day 2023 on a Sunday
+        assertFalse(TradingCalendar.isTradingDay(LocalDate.of(2021, 12, 24)));
+        assertFalse(TradingCalendar.isTradingDay(LocalDate.of(2023, 1, 2)));
+        // New Year's Day 2022 fell on a Saturday and is not observed on the Friday before
+        assertTrue(TradingCalendar.isTradingDay(LocalDate.of(2021, 12, 31)));
+    }
+
+    @Test
+    void stepsOverClosedDays() {
+        LocalDate saturday = LocalDate.of(2024, 3, 30);
+        assertEquals(LocalDate.of(2024, 4, 1), TradingCalendar.onOrAfter(saturday));
+        assertEquals(LocalDate.of(2024, 3, 28), TradingCalendar.onOrBefore(saturday));
+        assertFalse(TradingCalendar.hasTradingDayBetween(LocalDate.of(2024, 3, 28), LocalDate.of(2024, 4, 1)));
+        assertTrue(TradingCalendar.hasTradingDayBetween(LocalDate.of(2024, 3, 27), LocalDate.of(2024, 4, 1)));
+        assertEquals(6, TradingCalendar.countTradingDays(LocalDate.of(2024, 3, 25), LocalDate.of(2024, 4, 2), 100));
+    }
+
+    @Test
+    void dailyBarIsFinalOnlyAfterTheClose() {
+        ZonedDateTime beforeClose = ZonedDateTime.of(2024, 4, 2, 15, 0, 0, 0, TradingCalendar.MARKET_ZONE);
+        ZonedDateTime afterClose = beforeClose.withHour(18);
+        ZonedDateTime monday = ZonedDateTime.of(2024, 4, 1, 9, 0, 0, 0, TradingCalendar.MARKET_ZONE);
+
+        assertEquals(LocalDate.of(2024, 4, 1), TradingCalendar.lastCompletedTradingDay(beforeClose));
+        assertEquals(LocalDate.of(2024, 4, 2), TradingCalendar.lastCompletedTradingDay(afterClose));
+        assertEquals(LocalDate.of(2024, 3, 28), TradingCalendar.lastCompletedTradingDay(monday));
+    }
+}
@@ -0,0 +1,135 @@
+package com.stockgenie.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stockgenie.dto.StockDataDto;
+import com.stockgenie.dto.TechnicalAnalysisDto;
+import com.stockgenie.entity.TechnicalAnalysis;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips through the binary series codec and its JSON fallback.
+ */
+class SeriesCodecTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer()
+            .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+    private final SeriesRedisSerializer serializer = new SeriesRedisSerializer(json);
+
+    @Test
+    void priceSeriesRoundTrips() {
+        List<StockDataDto> series = priceSeries(500);
+
+        byte[] encoded = serializer.serialize(series);
+
+        assertTrue(SeriesCodec.isEncoded(encoded));
+        assertEquals(series, serializer.deserialize(encoded));
+    }
+
+    @Test
+    void missingFieldsStayMissing() {
+        List<StockDataDto> series = priceSeries(3);
+        series.get(1).setAdjustedClose(null);
+        series.get(2).setVolume(null);
+
+        assertEquals(series, serializer.deserialize(serializer.serialize(series)));
+    }
+
+    @Test
+    void indicatorSeriesRoundTrips() {
+        Map<String, List<TechnicalAnalysisDto>> indicators = new LinkedHashMap<>();
+        indicators.put("RSI_14", indicatorSeries(TechnicalAnalysis.IndicatorType.RSI, 14, 300, false));
+        indicators.put("MACD", indicatorSeries(TechnicalAnalysis.IndicatorType.MACD, 12, 300, true));
+        indicators.put("SMA_50", List.of());
+
+        byte[] encoded = serializer.serialize(indicators);
+
+        assertTrue(SeriesCodec.isEncoded(encoded));
+        assertEquals(indicators, serializer.deserialize(encoded));
+    }
+
+    @Test
+    void mixedSymbolsFallBackToJson() {
+        List<StockDataDto> series = priceSeries(2);
+        series.get(1).setSymbol("MSFT");
+
+        assertNull(SeriesCodec.encode(series));
+        byte[] encoded = serializer.serialize(series);
+        assertFalse(SeriesCodec.isEncoded(encoded));
+        assertEquals(series, serializer.deserialize(encoded));
+    }
+
+    @Test
+    void readsEntriesWrittenAsJson() {
+        List<StockDataDto> series = priceSeries(10);
+
+        assertEquals(series, serializer.deserialize(json.serialize(series)));
+    }
+
+    @Test
+    void isMuchSmallerThanJson() {
+        List<StockDataDto> series = priceSeries(250);
+
+        int jsonSize = json.serialize(series).length;
+        int codecSize = serializer.serialize(series).length;
+
+        assertTrue(codecSize * 5 <= jsonSize, "codec " + codecSize + " bytes vs json " + jsonSize + " bytes");
+    }
+
+    private static List<StockDataDto> priceSeries(int bars) {
+        Random random = new Random(bars);
+        List<StockDataDto> series = new ArrayList<>(bars);
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        long closeTicks = 1_500_000L;
+        for (int i = 0; i < bars; i++) {
+            long openTicks = closeTicks;
+            closeTicks = Math.max(10_000L, closeTicks + random.nextInt(40_001) - 20_000);
+            series.add(StockDataDto.builder()
+                    .symbol("AAPL")
+                    .date(date)
+                    .open(BigDecimal.valueOf(openTicks, 4))
+                    .high(BigDecimal.valueOf(Math.max(openTicks, closeTicks) + random.nextInt(10_000), 4))
+                    .low(BigDecimal.valueOf(Math.min(openTicks, closeTicks) - random.nextInt(10_000), 4))
+                    .close(BigDecimal.valueOf(closeTicks, 4))
+                    .volume(1_000_000L + random.nextInt(500_000))
+                    .adjustedClose(BigDecimal.valueOf(closeTicks, 4))
+                    .dataSource("ALPHA_VANTAGE")
+                    .build());
+            date = date.plusDays(date.getDayOfWeek().getValue() == 5 ? 3 : 1);
+        }
+        return series;
+    }
+
+    private static List<TechnicalAnalysisDto> indicatorSeries(TechnicalAnalysis.IndicatorType type, int period,
+                                                              int rows, boolean withSignal) {
+        Random random = new Random(rows);
+        List<TechnicalAnalysisDto> series = new ArrayList<>(rows);
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        for (int i = 0; i < rows; i++) {
+            series.add(TechnicalAnalysisDto.builder()
+                    .symbol("AAPL")
+                    .date(date)
+                    .indicatorType(type)
+                    .period(period)
+                    .value(BigDecimal.valueOf(random.nextInt(100_000_000), 6))
+                    .signal(withSignal ? BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 6) : null)
+                    .histogram(withSignal ? BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 6) : null)
+                    .build());
+            date = date.plusDays(1);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,74 @@
+package com.stockgenie.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamWebClientsTest {
+
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamWebClients clients;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        AppConfig appConfig = new AppConfig();
+        AppConfig.Http.Client settings = new AppConfig.Http.Client();
+        settings.setMaxConnections(3);
+        appConfig.getHttp().getClients().put("stub", settings);
+        meterRegistry = new SimpleMeterRegistry();
+        clients = new UpstreamWebClients(WebClient.builder(), appConfig, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.close();
+        server.stop(0);
+    }
+
+    @Test
+    void reusesOneClientAndItsConnectionsAcrossCalls() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        for (int i = 0; i < 20; i++) {
+            assertEquals("ok", clients.client("stub").get().uri(url).retrieve().bodyToMono(String.class).block());
+        }
+
+        assertSame(clients.client("stub"), clients.client("stub"));
+        // A connection goes back to the pool just after its body is handed on, so the next
+        // call may race it once; beyond that every call reuses an open connection
+        assertTrue(clientPorts.size() <= 2, "connections opened: " + clientPorts.size());
+    }
+
+    @Test
+    void exportsPoolUseForEachUpstream() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        clients.client("stub").get().uri(url).retrieve().bodyToMono(String.class).block();
+
+        assertEquals(3.0, meterRegistry.get("stockgenie.http.client.pool.max").tag("upstream", "stub").gauge().value());
+        assertEquals(1.0, meterRegistry.get("stockgenie.http.client.pool.total").tag("upstream", "stub").gauge().value());
+        assertEquals(0.0, meterRegistry.get("stockgenie.http.client.pool.active").tag("upstream", "stub").gauge().value());
+    }
+}
@@ -0,0 +1,178 @@
+package com.stockgenie.provider;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.config.FinancialApiConfig;
+import com.stockgenie.config.UpstreamWebClients;
+import com.stockgenie.resilience.DependencyGuards;
+import com.stockgenie.service.ApiOptimizationService;
+import com.stockgenie.service.RateLimitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataRouterTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 6);
+    private static final LocalDate END = LocalDate.of(2024, 3, 7);
+
+    private static final String ALPHA_VANTAGE_BODY = """
+            {
+                "Meta Data": {"2. Symbol": "IBM"},
+                "Time Series (Daily)": {
+                    "2024-03-08": {"1. open": "195.0900", "2. high": "197.7799", "3. low": "194.7100", "4. close": "195.9500", "5. volume": "3783010"},
+                    "2024-03-07": {"1. open": "197.3800", "2. high": "198.1000", "3. low": "195.3200", "4. close": "196.5400", "5. volume": "3911402"},
+                    "2024-03-06": {"1. open": "193.5000", "2. high": "198.1300", "3. low": "192.9600", "4. close": "196.1600", "5. volume": "6945821"}
+                }
+            }
+            """;
+
+    private static final String EODHD_BODY = """
+            [
+                {"date": "2024-03-06", "open": 193.5, "high": 198.13, "low": 192.96, "close": 196.16, "adjusted_close": 196.16, "volume": 6945821},
+                {"date": "2024-03-07", "open": 197.38, "high": 198.1, "low": 195.32, "close": 196.54, "adjusted_close": 196.54, "volume": 3911402}
+            ]
+            """;
+
+    private StubProviderServer alphaVantage;
+    private StubProviderServer eodhd;
+    private FinancialApiConfig config;
+    private AppConfig appConfig;
+    private MarketDataRouter router;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        alphaVantage = StubProviderServer.start().respond(200, ALPHA_VANTAGE_BODY);
+        eodhd = StubProviderServer.start().respond(200, EODHD_BODY);
+
+        config = new FinancialApiConfig();
+        config.setProvider(AlphaVantageProvider.NAME);
+        config.getLimiter().setShared(false);
+        config.getAlphaVantage().setBaseUrl(alphaVantage.baseUrl() + "/query");
+        config.getAlphaVantage().setApiKey("test-key");
+        config.getAlphaVantage().getRateLimit().setCallsPerMinute(5);
+        config.getAlphaVantage().getRateLimit().setCallsPerDay(25);
+        config.getEodhd().setBaseUrl(eodhd.baseUrl() + "/api");
+        config.getEodhd().setApiKey("test-key");
+        config.getEodhd().getRateLimit().setCallsPerMinute(60);
+        config.getEodhd().getRateLimit().setCallsPerDay(20);
+        config.getHedging().setDelay(200);
+
+        appConfig = new AppConfig();
+        AppConfig.Resilience.Guard alphaVantageGuard = new AppConfig.Resilience.Guard();
+        alphaVantageGuard.setMinimumCalls(2);
+        appConfig.getResilience().getDependencies().put(AlphaVantageProvider.NAME, alphaVantageGuard);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitService rateLimitService = new RateLimitService(config, null);
+        DependencyGuards dependencyGuards = new DependencyGuards(appConfig, meterRegistry);
+        ApiOptimizationService apiOptimizationService =
+                new ApiOptimizationService(new UpstreamWebClients(WebClient.builder(), appConfig, meterRegistry),
+                        config, rateLimitService, dependencyGuards, meterRegistry);
+        ReflectionTestUtils.setField(apiOptimizationService, "apiTimeout", 5000);
+        ReflectionTestUtils.setField(apiOptimizationService, "retryAttempts", 1);
+        ReflectionTestUtils.setField(apiOptimizationService, "retryDelay", 10);
+        ReflectionTestUtils.setField(apiOptimizationService, "rateLimitMaxWait", 1000);
+
+        router = new MarketDataRouter(
+                List.of(new AlphaVantageProvider(config, apiOptimizationService), new EodhdProvider(config, apiOptimizationService)),
+                config, rateLimitService, dependencyGuards, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        alphaVantage.close();
+        eodhd.close();
+    }
+
+    @Test
+    void usesThePreferredProviderWhenItAnswers() {
+        // Generous, so a cold first request is not hedged
+        config.getHedging().setDelay(3000);
+
+        MarketDataRouter.Fetched fetched = router.fetchDailyBars("IBM", START, END).block();
+
+        assertEquals(AlphaVantageProvider.NAME, fetched.provider());
+        assertEquals(2, fetched.series().size());
+        assertEquals(0, eodhd.requests());
+    }
+
+    @Test
+    void readsEodhdBarsForTheRequestedRange() {
+        config.getAlphaVantage().setApiKey("demo");
+
+        MarketDataRouter.Fetched fetched = router.fetchDailyBars("IBM", START, END).block();
+
+        assertEquals(EodhdProvider.NAME, fetched.provider());
+        assertEquals(2, fetched.series().size());
+        assertEquals(START, fetched.series().date(0));
+        assertEquals(196.54, fetched.series().close()[1]);
+        assertEquals(3911402L, fetched.series().volume()[1]);
+        assertTrue(eodhd.lastRequest().startsWith("/api/eod/IBM.US?"));
+        assertTrue(eodhd.lastRequest().contains("from=2024-03-06&to=2024-03-07"));
+    }
+
+    @Test
+    void failsOverWhenThePreferredProviderReturnsAnError() {
+        alphaVantage.respond(200, "{\"Note\": \"Our standard API call frequency is 5 calls per minute.\"}");
+
+        MarketDataRouter.Fetched fetched = router.fetchDailyBars("IBM", START, END).block();
+
+        assertEquals(EodhdProvider.NAME, fetched.provider());
+        assertEquals(1, alphaVantage.requests());
+    }
+
+    @Test
+    void hedgesToTheNextProviderWhenThePreferredOneIsSlow() {
+        alphaVantage.delay(3000);
+
+        long started = System.nanoTime();
+        MarketDataRouter.Fetched fetched = router.fetchDailyBars("IBM", START, END).block();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(EodhdProvider.NAME, fetched.provider());
+        assertTrue(elapsedMs < 2000, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void doesNotHedgeToAProviderWithoutSpareBudget() {
+        alphaVantage.delay(600);
+        config.getEodhd().getRateLimit().setCallsPerDay(config.getHedging().getMinRemainingCalls());
+
+        MarketDataRouter.Fetched fetched = router.fetchDailyBars("IBM", START, END).block();
+
+        assertEquals(AlphaVantageProvider.NAME, fetched.provider());
+        assertEquals(0, eodhd.requests());
+    }
+
+    @Test
+    void skipsAProviderWhoseCircuitBreakerIsOpen() {
+        alphaVantage.respond(503, "{}");
+
+        router.fetchDailyBars("IBM", START, END).block();
+        router.fetchDailyBars("IBM", START, END).block();
+        MarketDataRouter.Fetched fetched = router.fetchDailyBars("IBM", START, END).block();
+
+        assertEquals(EodhdProvider.NAME, fetched.provider());
+        // Two failures open the breaker, so the third fetch never reaches Alpha Vantage
+        assertEquals(2, alphaVantage.requests());
+        assertEquals(3, eodhd.requests());
+    }
+
+    @Test
+    void failsWhenEveryProviderFails() {
+        alphaVantage.respond(500, "{}");
+        eodhd.respond(404, "Ticker Not Found.");
+
+        assertThrows(MarketDataProviderException.class, () -> router.fetchDailyBars("IBM", START, END).block());
+    }
+}
@@ -0,0 +1,41 @@
+package com.stockgenie.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpsertBatchesTest {
+
+    @Test
+    void splitsRowsIntoChunksOfTheGivenSizeInOrder() {
+        List<List<Integer>> chunks = UpsertBatches.chunk(List.of(1, 2, 3, 4, 5), 2);
+
+        assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5)), chunks);
+    }
+
+    @Test
+    void keepsAnExactMultipleWithoutAnEmptyTrailingChunk() {
+        assertEquals(List.of(List.of(1, 2), List.of(3, 4)), UpsertBatches.chunk(List.of(1, 2, 3, 4), 2));
+        assertEquals(List.of(), UpsertBatches.chunk(List.of(), 2));
+    }
+
+    @Test
+    void fallsBackToTheDefaultSizeWhenNoneIsConfigured() {
+        List<Integer> rows = IntStream.range(0, 250).boxed().toList();
+
+        List<List<Integer>> chunks = UpsertBatches.chunk(rows, 0);
+
+        assertEquals(List.of(100, 100, 50), chunks.stream().map(List::size).toList());
+    }
+
+    @Test
+    void totalsUpdateCountsIgnoringStatementsWithoutACount() {
+        int[][] counts = {{2, Statement.SUCCESS_NO_INFO}, {0, 1}};
+
+        assertEquals(3, UpsertBatches.total(counts));
+    }
+}
@@ -0,0 +1,153 @@
+package com.stockgenie.repository;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.entity.StockData;
+import com.stockgenie.entity.TechnicalAnalysis;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The bulk upserts are PostgreSQL-only SQL (unnest over array parameters, ON CONFLICT with a
+ * change check), so they run against a real PostgreSQL with the Flyway schema. A chunk size
+ * of 2 makes every upsert span several statements of one JDBC batch.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UpsertRepositoriesPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 6);
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private StockDataRepositoryImpl stockDataRepository;
+    private TechnicalAnalysisRepositoryImpl technicalAnalysisRepository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE stock_data, technical_analysis");
+        AppConfig appConfig = new AppConfig();
+        appConfig.getAnalysis().setBatchSize(2);
+        stockDataRepository = new StockDataRepositoryImpl(jdbcTemplate, appConfig);
+        technicalAnalysisRepository = new TechnicalAnalysisRepositoryImpl(jdbcTemplate, appConfig);
+    }
+
+    @Test
+    void insertsNewBarsAcrossChunks() {
+        int changed = stockDataRepository.upsertAll(List.of(
+                bar("IBM", DAY, "196.16"), bar("IBM", DAY.plusDays(1), "196.54"),
+                bar("IBM", DAY.plusDays(2), "195.95"), bar("AAPL", DAY, "169.12"),
+                bar("AAPL", DAY.plusDays(1), "169.00")));
+
+        assertEquals(5, changed);
+        assertEquals(5, count("stock_data"));
+        assertEquals(new BigDecimal("195.950000"), close("IBM", DAY.plusDays(2)));
+    }
+
+    @Test
+    void overwritesAStoredBarWithTheSameSymbolAndDate() {
+        stockDataRepository.upsertAll(List.of(bar("IBM", DAY, "196.16"), bar("IBM", DAY.plusDays(1), "196.54")));
+
+        int changed = stockDataRepository.upsertAll(List.of(bar("IBM", DAY, "197.00"), bar("IBM", DAY.plusDays(1), "196.54")));
+
+        assertEquals(1, changed);
+        assertEquals(2, count("stock_data"));
+        assertEquals(new BigDecimal("197.000000"), close("IBM", DAY));
+    }
+
+    @Test
+    void leavesUnchangedBarsUntouched() {
+        List<StockData> bars = List.of(bar("IBM", DAY, "196.16"), bar("IBM", DAY.plusDays(1), "196.54"),
+                bar("IBM", DAY.plusDays(2), "195.95"));
+        stockDataRepository.upsertAll(bars);
+        Map<String, Object> before = jdbcTemplate.queryForMap(
+                "SELECT id, updated_at FROM stock_data WHERE symbol = 'IBM' AND date = ?", DAY);
+
+        assertEquals(0, stockDataRepository.upsertAll(bars));
+        assertEquals(before, jdbcTemplate.queryForMap(
+                "SELECT id, updated_at FROM stock_data WHERE symbol = 'IBM' AND date = ?", DAY));
+    }
+
+    @Test
+    void keepsTheLastOfDuplicateBarsInOneCall() {
+        int changed = stockDataRepository.upsertAll(List.of(bar("IBM", DAY, "196.16"), bar("IBM", DAY, "196.20")));
+
+        assertEquals(1, changed);
+        assertEquals(new BigDecimal("196.200000"), close("IBM", DAY));
+    }
+
+    @Test
+    void upsertsIndicatorValues() {
+        assertEquals(3, technicalAnalysisRepository.upsertAll(List.of(
+                indicator(DAY, "150.1"), indicator(DAY.plusDays(1), "150.2"), indicator(DAY.plusDays(2), "150.3"))));
+
+        assertEquals(1, technicalAnalysisRepository.upsertAll(List.of(
+                indicator(DAY, "150.1"), indicator(DAY.plusDays(1), "151.0"), indicator(DAY.plusDays(2), "150.3"))));
+        assertEquals(0, technicalAnalysisRepository.upsertAll(List.of(
+                indicator(DAY, "150.1"), indicator(DAY.plusDays(1), "151.0"), indicator(DAY.plusDays(2), "150.3"))));
+
+        assertEquals(3, count("technical_analysis"));
+        assertEquals(new BigDecimal("151.00000000"), jdbcTemplate.queryForObject(
+                "SELECT indicator_value FROM technical_analysis WHERE date = ?", BigDecimal.class, DAY.plusDays(1)));
+    }
+
+    private static StockData bar(String symbol, LocalDate date, String close) {
+        BigDecimal price = new BigDecimal(close);
+        return StockData.builder()
+                .symbol(symbol)
+                .date(date)
+                .open(price)
+                .high(price)
+                .low(price)
+                .close(price)
+                .volume(1_000_000L)
+                .adjustedClose(price)
+                .dataSource("alpha-vantage")
+                .build();
+    }
+
+    private static TechnicalAnalysis indicator(LocalDate date, String value) {
+        return TechnicalAnalysis.builder()
+                .symbol("IBM")
+                .date(date)
+                .indicatorType(TechnicalAnalysis.IndicatorType.SMA)
+                .period(20)
+                .value(new BigDecimal(value))
+                .build();
+    }
+
+    private static int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+
+    private static BigDecimal close(String symbol, LocalDate date) {
+        return jdbcTemplate.queryForObject("SELECT close FROM stock_data WHERE symbol = ? AND date = ?",
+                BigDecimal.class, symbol, date);
+    }
+}
@@ -0,0 +1,125 @@
+package com.stockgenie.resilience;
+
+import com.stockgenie.config.AppConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyGuardTest {
+
+    private AppConfig.Resilience.Guard settings;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        settings = new AppConfig.Resilience.Guard();
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(50);
+        settings.setOpenDuration(100);
+        settings.setHalfOpenCalls(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void opensOnceTheFailureRateIsReachedAndThenFailsWithoutCalling() {
+        DependencyGuard guard = guard();
+        guard.call(() -> "ok");
+        guard.call(() -> "ok");
+        fail(guard);
+        fail(guard);
+
+        AtomicInteger calls = new AtomicInteger();
+        DependencyUnavailableException rejected = assertThrows(DependencyUnavailableException.class,
+                () -> guard.call(calls::incrementAndGet));
+
+        assertEquals(0, calls.get());
+        assertEquals("test", rejected.getDependency());
+        assertTrue(rejected.getRetryAfterMs() > 0 && rejected.getRetryAfterMs() <= 100);
+        assertEquals(2, guard.getStateLevel());
+        assertFalse(guard.isCallPermitted());
+        assertThrows(DependencyUnavailableException.class, guard::ensureAvailable);
+    }
+
+    @Test
+    void doesNotCountClientErrorsAsFailures() {
+        DependencyGuard guard = guard();
+        for (int i = 0; i < 10; i++) {
+            assertThrows(WebClientResponseException.class, () -> guard.call(() -> {
+                throw WebClientResponseException.create(404, "Not Found", null, null, null);
+            }));
+        }
+
+        assertEquals(0, guard.getStateLevel());
+        assertEquals("ok", guard.call(() -> "ok"));
+    }
+
+    @Test
+    void closesAgainOnceEveryTrialCallSucceeds() throws InterruptedException {
+        DependencyGuard guard = open(guard());
+        Thread.sleep(150);
+
+        guard.call(() -> "ok");
+        assertEquals(1, guard.getStateLevel());
+        guard.call(() -> "ok");
+
+        assertEquals(0, guard.getStateLevel());
+    }
+
+    @Test
+    void opensAgainWhenATrialCallFails() throws InterruptedException {
+        DependencyGuard guard = open(guard());
+        Thread.sleep(150);
+
+        fail(guard);
+
+        assertEquals(2, guard.getStateLevel());
+        assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> "ok"));
+    }
+
+    @Test
+    void bulkheadTurnsAwayCallsBeyondTheLimitUntilOneEnds() {
+        settings.setMaxConcurrent(1);
+        DependencyGuard guard = guard();
+
+        Disposable pending = guard.mono(Mono.never()).subscribe();
+        assertEquals(1, guard.getInFlight());
+        assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> "ok"));
+
+        // A cancelled call frees its slot without counting either way
+        pending.dispose();
+        assertEquals(0, guard.getInFlight());
+        assertEquals("ok", guard.call(() -> "ok"));
+        assertEquals(1.0, meterRegistry.counter("stockgenie.dependency.rejected",
+                "dependency", "test", "reason", "bulkhead_full").count());
+    }
+
+    private DependencyGuard guard() {
+        return new DependencyGuard("test", settings, true, meterRegistry);
+    }
+
+    private DependencyGuard open(DependencyGuard guard) {
+        for (int i = 0; i < settings.getMinimumCalls(); i++) {
+            fail(guard);
+        }
+        assertEquals(2, guard.getStateLevel());
+        return guard;
+    }
+
+    private static void fail(DependencyGuard guard) {
+        assertThrows(UncheckedIOException.class, () -> guard.call(() -> {
+            throw new UncheckedIOException(new ConnectException("Connection refused"));
+        }));
+    }
+}
@@ -0,0 +1,99 @@
+package com.stockgenie.service;
+
+import com.stockgenie.analysis.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlphaVantageStreamParserTest {
+
+    private static final String BODY = """
+            {
+                "Meta Data": {
+                    "1. Information": "Daily Prices (open, high, low, close) and Volumes",
+                    "2. Symbol": "IBM",
+                    "3. Last Refreshed": "2024-03-08",
+                    "4. Output Size": "Full size",
+                    "5. Time Zone": "US/Eastern"
+                },
+                "Time Series (Daily)": {
+                    "2024-03-08": {"1. open": "195.0900", "2. high": "197.7799", "3. low": "194.7100", "4. close": "195.9500", "5. volume": "3783010"},
+                    "2024-03-07": {"1. open": "197.3800", "2. high": "198.1000", "3. low": "195.3200", "4. close": "196.5400", "5. volume": "3911402"},
+                    "2024-03-06": {"1. open": "193.5000", "2. high": "198.1300", "3. low": "192.9600", "4. close": "196.1600", "5. volume": "6945821"},
+                    "2024-03-05": {"1. open": "192.2600", "2. high": "194.4900", "3. low": "191.0100", "4. close": "191.9500", "5. volume": "4378632"}
+                }
+            }
+            """;
+
+    @Test
+    void parsesBarsInRangeSortedAscendingAcrossChunkBoundaries() {
+        AlphaVantageStreamParser.Result result = AlphaVantageStreamParser
+                .parse(chunks(BODY, 7), "IBM", LocalDate.of(2024, 3, 6), LocalDate.of(2024, 3, 7))
+                .block();
+
+        PriceSeries series = result.getSeries();
+        assertFalse(result.hasError());
+        assertEquals(4, result.getBarsInResponse());
+        assertEquals(2, series.size());
+        assertEquals(LocalDate.of(2024, 3, 6), series.date(0));
+        assertEquals(LocalDate.of(2024, 3, 7), series.date(1));
+        assertEquals(193.5, series.open()[0]);
+        assertEquals(198.13, series.high()[0]);
+        assertEquals(192.96, series.low()[0]);
+        assertEquals(196.16, series.close()[0]);
+        assertEquals(6945821L, series.volume()[0]);
+        assertEquals(196.54, series.close()[1]);
+        assertNull(result.getErrorMessage());
+    }
+
+    @Test
+    void reportsApiErrorMessages() {
+        String body = "{\"Note\": \"Thank you for using Alpha Vantage! Our standard API call frequency is 5 calls per minute.\"}";
+
+        AlphaVantageStreamParser.Result result = AlphaVantageStreamParser
+                .parse(chunks(body, 16), "IBM", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31))
+                .block();
+
+        assertTrue(result.hasError());
+        assertTrue(result.getErrorMessage().startsWith("Thank you"));
+        assertEquals(0, result.getBarsInResponse());
+        assertTrue(result.getSeries().isEmpty());
+    }
+
+    @Test
+    void parsesPlainDecimals() {
+        assertEquals(187.44, parseDecimal("187.4400"));
+        assertEquals(0.0001, parseDecimal("0.0001"));
+        assertEquals(-12.5, parseDecimal("-12.5"));
+        assertEquals(42.0, parseDecimal("42"));
+        assertEquals(1.0E-20, parseDecimal("0.00000000000000000001"));
+        assertTrue(Double.isNaN(parseDecimal("n/a")));
+        assertTrue(Double.isNaN(parseDecimal("")));
+    }
+
+    private static double parseDecimal(String text) {
+        return AlphaVantageStreamParser.parseDecimal(text.toCharArray(), 0, text.length());
+    }
+
+    private static Flux<DataBuffer> chunks(String body, int chunkSize) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            byte[] chunk = new byte[Math.min(chunkSize, bytes.length - offset)];
+            System.arraycopy(bytes, offset, chunk, 0, chunk.length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
@@ -0,0 +1,146 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.config.FinancialApiConfig;
+import com.stockgenie.config.UpstreamWebClients;
+import com.stockgenie.resilience.DependencyGuards;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiOptimizationServiceSingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private HttpServer upstream;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch respond = new CountDownLatch(1);
+    private UpstreamWebClients upstreamWebClients;
+    private SimpleMeterRegistry meterRegistry;
+    private ApiOptimizationService service;
+    private ExecutorService callers;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.setExecutor(Executors.newCachedThreadPool());
+        upstream.createContext("/", exchange -> {
+            int request = requests.incrementAndGet();
+            try {
+                respond.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("quote " + request).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+        url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/query?symbol=IBM";
+
+        AppConfig appConfig = new AppConfig();
+        FinancialApiConfig financialApiConfig = new FinancialApiConfig();
+        financialApiConfig.getAlphaVantage().getRateLimit().setCallsPerMinute(1000);
+        meterRegistry = new SimpleMeterRegistry();
+        upstreamWebClients = new UpstreamWebClients(WebClient.builder(), appConfig, meterRegistry);
+        service = new ApiOptimizationService(upstreamWebClients, financialApiConfig,
+                new RateLimitService(financialApiConfig, null), new DependencyGuards(appConfig, meterRegistry), meterRegistry);
+        ReflectionTestUtils.setField(service, "apiTimeout", 5000);
+        ReflectionTestUtils.setField(service, "retryAttempts", 1);
+        ReflectionTestUtils.setField(service, "rateLimitMaxWait", 1000);
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        respond.countDown();
+        callers.shutdownNow();
+        upstreamWebClients.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    void concurrentCallersWithOneKeyShareOneUpstreamCall() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> blocking = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            blocking.add(callers.submit(() -> {
+                start.await();
+                return service.makeApiCallWithRetry(url, "IBM");
+            }));
+        }
+        // Runs on the thread completing the shared call, so it sees the map as that call left it
+        CompletableFuture<Integer> pendingOnCompletion = service.makeApiCallReactive(url, "IBM")
+                .map(body -> pendingRequests())
+                .toFuture();
+        start.countDown();
+
+        awaitUntil(() -> originated() + coalesced() == CALLERS + 1);
+        assertEquals(1, pendingRequests());
+        respond.countDown();
+
+        for (Future<String> result : blocking) {
+            assertEquals("quote 1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, (int) pendingOnCompletion.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+        assertEquals(1, originated());
+        assertEquals(CALLERS, coalesced());
+    }
+
+    @Test
+    void aCallAfterTheSharedOneCompletedStartsAFreshOne() {
+        respond.countDown();
+
+        assertEquals("quote 1", service.makeApiCallWithRetry(url, "IBM"));
+        assertEquals("quote 2", service.makeApiCallWithRetry(url, "IBM"));
+
+        assertEquals(2, originated());
+        assertEquals(0, coalesced());
+        assertEquals(0, pendingRequests());
+    }
+
+    private int pendingRequests() {
+        return (Integer) service.getOptimizationStats().get("pendingRequests");
+    }
+
+    private long originated() {
+        return (long) meterRegistry.counter("stockgenie.upstream.calls", "outcome", "originated").count();
+    }
+
+    private long coalesced() {
+        return (long) meterRegistry.counter("stockgenie.upstream.calls", "outcome", "coalesced").count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,150 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.LocalLLMConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LLMRequestSchedulerTest {
+
+    private static final LLMRequestScheduler.Priority INTERACTIVE = LLMRequestScheduler.Priority.INTERACTIVE;
+    private static final LLMRequestScheduler.Priority BATCH = LLMRequestScheduler.Priority.BATCH;
+
+    private LocalLLMConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private LLMRequestScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        config = new LocalLLMConfig();
+        config.setMaxInFlight(1);
+        config.getQueue().setMaxInteractive(2);
+        config.getQueue().setMaxBatch(2);
+        config.getQueue().setMaxWait(60_000);
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new LLMRequestScheduler(config, meterRegistry);
+    }
+
+    @Test
+    void handsAFreedSlotToTheOldestInteractiveWaiterBeforeAnyBatchOne() {
+        LLMRequestScheduler.Permit running = scheduler.acquire(INTERACTIVE).join();
+        CompletableFuture<LLMRequestScheduler.Permit> batch = scheduler.acquire(BATCH);
+        CompletableFuture<LLMRequestScheduler.Permit> firstInteractive = scheduler.acquire(INTERACTIVE);
+        CompletableFuture<LLMRequestScheduler.Permit> secondInteractive = scheduler.acquire(INTERACTIVE);
+
+        running.release();
+        assertTrue(firstInteractive.isDone());
+        assertFalse(secondInteractive.isDone());
+        assertFalse(batch.isDone());
+
+        firstInteractive.join().release();
+        assertTrue(secondInteractive.isDone());
+        assertFalse(batch.isDone());
+
+        secondInteractive.join().release();
+        assertTrue(batch.isDone());
+        batch.join().release();
+        assertEquals(0, scheduler.getStatus().get("inFlight"));
+    }
+
+    @Test
+    void rejectsARequestWhoseQueueIsFull() {
+        scheduler.acquire(INTERACTIVE).join();
+        scheduler.acquire(INTERACTIVE);
+        scheduler.acquire(INTERACTIVE);
+
+        assertThrows(LLMRequestScheduler.RejectedException.class, () -> scheduler.acquire(INTERACTIVE));
+        assertEquals(1.0, rejected(INTERACTIVE, "queue_full"));
+        // Batch requests queue separately
+        scheduler.acquire(BATCH);
+        assertEquals(1, queued(BATCH));
+    }
+
+    @Test
+    void rejectsARequestWhoseExpectedWaitExceedsTheLimit() throws Exception {
+        config.getQueue().setMaxWait(50);
+        LLMRequestScheduler.Permit first = scheduler.acquire(INTERACTIVE).join();
+        Thread.sleep(120);
+        first.release();
+        scheduler.acquire(INTERACTIVE).join();
+
+        LLMRequestScheduler.RejectedException rejected =
+                assertThrows(LLMRequestScheduler.RejectedException.class, () -> scheduler.acquire(BATCH));
+
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertEquals(1.0, rejected(BATCH, "expected_wait"));
+        assertEquals(0, queued(BATCH));
+    }
+
+    @Test
+    void dropsAWaiterThatTimesOutFromTheQueue() throws Exception {
+        config.getQueue().setMaxWait(100);
+        LLMRequestScheduler.Permit running = scheduler.acquire(INTERACTIVE).join();
+        CompletableFuture<LLMRequestScheduler.Permit> waiter = scheduler.acquire(INTERACTIVE);
+
+        CompletionException timedOut = assertThrows(CompletionException.class, waiter::join);
+
+        assertInstanceOf(LLMRequestScheduler.RejectedException.class, timedOut.getCause());
+        awaitUntil(() -> queued(INTERACTIVE) == 0 && rejected(INTERACTIVE, "timeout") == 1.0);
+        running.release();
+        assertEquals(0, scheduler.getStatus().get("inFlight"));
+    }
+
+    @Test
+    void cancellingAStreamStillWaitingGivesUpItsPlaceInLine() throws Exception {
+        LLMRequestScheduler.Permit running = scheduler.acquire(INTERACTIVE).join();
+        Disposable stream = scheduler.executeStreaming(INTERACTIVE, () -> Flux.just("token")).subscribe();
+        assertEquals(1, queued(INTERACTIVE));
+
+        stream.dispose();
+
+        awaitUntil(() -> queued(INTERACTIVE) == 0);
+        running.release();
+        assertEquals(0, scheduler.getStatus().get("inFlight"));
+    }
+
+    @Test
+    void cancellingAStreamReleasesTheSlotItWasGranted() {
+        Disposable stream = scheduler.executeStreaming(INTERACTIVE, () -> Flux.<String>never()).subscribe();
+        assertEquals(1, scheduler.getStatus().get("inFlight"));
+
+        stream.dispose();
+
+        assertEquals(0, scheduler.getStatus().get("inFlight"));
+        assertTrue(scheduler.acquire(INTERACTIVE).isDone());
+    }
+
+    private int queued(LLMRequestScheduler.Priority priority) {
+        Map<?, ?> queues = (Map<?, ?>) scheduler.getStatus().get("queued");
+        return (Integer) queues.get(priority.name().toLowerCase());
+    }
+
+    /**
+     * A cancelled or timed-out waiter is cleaned up on whichever thread completed it
+     */
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private double rejected(LLMRequestScheduler.Priority priority, String reason) {
+        return meterRegistry.counter("stockgenie.llm.queue.rejected",
+                "priority", priority.name().toLowerCase(), "reason", reason).count();
+    }
+}
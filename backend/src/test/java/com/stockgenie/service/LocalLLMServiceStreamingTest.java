@@ -0,0 +1,115 @@
+package com.stockgenie.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockgenie.config.AppConfig;
+import com.stockgenie.config.LocalLLMConfig;
+import com.stockgenie.config.UpstreamWebClients;
+import com.stockgenie.dto.LLMRequestDto;
+import com.stockgenie.resilience.DependencyGuards;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalLLMServiceStreamingTest {
+
+    private static final LLMRequestDto REQUEST = LLMRequestDto.builder()
+            .symbol("IBM")
+            .stockData(List.of())
+            .analysisType("stock-analysis")
+            .build();
+
+    private HttpServer ollama;
+    private final AtomicInteger generations = new AtomicInteger();
+    private volatile String generated = "";
+    private ConcurrentMapCacheManager cacheManager;
+    private UpstreamWebClients upstreamWebClients;
+    private LocalLLMService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ollama = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ollama.createContext("/api/generate", exchange -> {
+            generations.incrementAndGet();
+            byte[] body = generated.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        ollama.start();
+
+        LocalLLMConfig config = new LocalLLMConfig();
+        config.setBaseUrl("http://127.0.0.1:" + ollama.getAddress().getPort());
+        config.setModel("mistral:7b");
+        config.setTimeout(5000);
+        AppConfig appConfig = new AppConfig();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new ConcurrentMapCacheManager("llmAnalysis");
+        upstreamWebClients = new UpstreamWebClients(WebClient.builder(), appConfig, meterRegistry);
+
+        service = new LocalLLMService(config, upstreamWebClients, new ObjectMapper(), cacheManager);
+        ReflectionTestUtils.setField(service, "llmRequestScheduler", new LLMRequestScheduler(config, meterRegistry));
+        ReflectionTestUtils.setField(service, "appConfig", appConfig);
+        ReflectionTestUtils.setField(service, "dependencyGuards", new DependencyGuards(appConfig, meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamWebClients.close();
+        ollama.stop(0);
+    }
+
+    @Test
+    void cachesACompletionOllamaMarkedDoneAndReplaysIt() {
+        generated = """
+                {"response": "Hold", "done": false}
+                {"response": " IBM", "done": false}
+                {"response": "", "done": true}
+                """;
+
+        assertEquals(List.of("Hold", " IBM"), service.streamStockAnalysis(REQUEST).collectList().block());
+        assertEquals(List.of("Hold IBM"), service.streamStockAnalysis(REQUEST).collectList().block());
+        assertEquals(1, generations.get());
+    }
+
+    @Test
+    void doesNotCacheAStreamThatEndsBeforeTheDoneChunk() {
+        generated = """
+                {"response": "Hold", "done": false}
+                {"response": " IB", "done": false}
+                """;
+
+        assertThrows(RuntimeException.class, () -> service.streamStockAnalysis(REQUEST).collectList().block());
+        assertNull(cacheManager.getCache("llmAnalysis").get(digest()));
+    }
+
+    @Test
+    void doesNotCacheAnEmptyCompletion() {
+        generated = """
+                {"response": "", "done": true}
+                """;
+
+        assertThrows(RuntimeException.class, () -> service.streamStockAnalysis(REQUEST).collectList().block());
+        assertNull(cacheManager.getCache("llmAnalysis").get(digest()));
+    }
+
+    private String digest() {
+        return service.promptDigest(service.buildPrompt(REQUEST));
+    }
+}
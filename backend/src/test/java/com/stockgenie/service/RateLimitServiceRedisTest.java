@@ -0,0 +1,121 @@
+package com.stockgenie.service;
+
+import com.stockgenie.config.FinancialApiConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The shared budget is a Lua script that reads Redis' own clock, so it runs against a real
+ * Redis. Two service instances stand in for two replicas drawing from one budget.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RateLimitServiceRedisTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static final String PROVIDER = "alpha-vantage";
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private FinancialApiConfig config;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        config = new FinancialApiConfig();
+    }
+
+    @Test
+    void admitsABurstOfThePerMinuteLimitThenRejectsWithTheWaitForTheNextSlot() {
+        limits(5, 0);
+        RateLimitService service = new RateLimitService(config, redisTemplate);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.tryAcquire(PROVIDER).admitted(), "call " + i);
+        }
+        RateLimitService.Acquisition rejected = service.tryAcquire(PROVIDER);
+
+        assertFalse(rejected.admitted());
+        assertTrue(rejected.retryAfterMs() > 0 && rejected.retryAfterMs() <= 12_000, "retry after " + rejected.retryAfterMs());
+        assertEquals("shared", service.getUsage(PROVIDER).limiter());
+        assertEquals(5, service.getUsage(PROVIDER).minuteCalls());
+    }
+
+    @Test
+    void checkingDoesNotUseUpTheBudget() {
+        limits(0, 2);
+        RateLimitService service = new RateLimitService(config, redisTemplate);
+
+        assertTrue(service.canMakeApiCall(PROVIDER));
+        assertTrue(service.canMakeApiCall(PROVIDER));
+        assertTrue(service.tryAcquire(PROVIDER).admitted());
+        assertTrue(service.tryAcquire(PROVIDER).admitted());
+
+        assertFalse(service.canMakeApiCall(PROVIDER));
+        assertEquals(2, service.getUsage(PROVIDER).dayCalls());
+    }
+
+    @Test
+    void rejectsOnceTheDailyQuotaIsUsedUntilTheEndOfTheUtcDay() {
+        limits(0, 3);
+        RateLimitService service = new RateLimitService(config, redisTemplate);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.tryAcquire(PROVIDER).admitted(), "call " + i);
+        }
+
+        RateLimitService.Acquisition rejected = service.tryAcquire(PROVIDER);
+
+        assertFalse(rejected.admitted());
+        assertTrue(rejected.retryAfterMs() > 0 && rejected.retryAfterMs() <= 86_400_000, "retry after " + rejected.retryAfterMs());
+        assertEquals(0, service.getUsage(PROVIDER).remainingToday());
+    }
+
+    @Test
+    void replicasDrawFromOneBudget() {
+        limits(0, 3);
+        RateLimitService first = new RateLimitService(config, redisTemplate);
+        RateLimitService second = new RateLimitService(config, redisTemplate);
+
+        assertTrue(first.tryAcquire(PROVIDER).admitted());
+        assertTrue(second.tryAcquire(PROVIDER).admitted());
+        assertTrue(first.tryAcquire(PROVIDER).admitted());
+
+        assertFalse(second.tryAcquire(PROVIDER).admitted());
+        assertEquals(3, first.getUsage(PROVIDER).dayCalls());
+    }
+
+    private void limits(int perMinute, int perDay) {
+        config.getAlphaVantage().getRateLimit().setCallsPerMinute(perMinute);
+        config.getAlphaVantage().getRateLimit().setCallsPerDay(perDay);
+    }
+}
@@ -0,0 +1,84 @@
+package com.stockgenie.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 6);
+    private static final long START = DAY.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli() + 3_600_000;
+
+    private final RateLimitService.LocalBudget budget = new RateLimitService.LocalBudget();
+
+    @Test
+    void admitsABurstOfThePerMinuteLimitThenOneCallPerInterval() {
+        RateLimitService.Limits limits = RateLimitService.Limits.of(5, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(budget.acquire(limits, START, DAY, true).admitted(), "call " + i);
+        }
+        RateLimitService.Acquisition rejected = budget.acquire(limits, START, DAY, true);
+
+        assertFalse(rejected.admitted());
+        assertEquals(12_000, rejected.retryAfterMs());
+        assertFalse(budget.acquire(limits, START + 11_999, DAY, true).admitted());
+        assertTrue(budget.acquire(limits, START + 12_000, DAY, true).admitted());
+        assertEquals(12_000, budget.acquire(limits, START + 12_000, DAY, true).retryAfterMs());
+        assertTrue(budget.acquire(limits, START + 24_000, DAY, true).admitted());
+    }
+
+    @Test
+    void refillsTheBurstAfterAnIdleMinute() {
+        RateLimitService.Limits limits = RateLimitService.Limits.of(5, 0);
+        for (int i = 0; i < 5; i++) {
+            budget.acquire(limits, START, DAY, true);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(budget.acquire(limits, START + 60_000, DAY, true).admitted(), "call " + i);
+        }
+        assertFalse(budget.acquire(limits, START + 60_000, DAY, true).admitted());
+    }
+
+    @Test
+    void checkingDoesNotUseUpTheBudget() {
+        RateLimitService.Limits limits = RateLimitService.Limits.of(1, 1);
+
+        assertTrue(budget.acquire(limits, START, DAY, false).admitted());
+        assertTrue(budget.acquire(limits, START, DAY, false).admitted());
+        assertTrue(budget.acquire(limits, START, DAY, true).admitted());
+        assertFalse(budget.acquire(limits, START, DAY, false).admitted());
+    }
+
+    @Test
+    void rejectsOnceTheDailyQuotaIsUsedUntilTheNextUtcDay() {
+        RateLimitService.Limits limits = RateLimitService.Limits.of(0, 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(budget.acquire(limits, START + i, DAY, true).admitted(), "call " + i);
+        }
+
+        RateLimitService.Acquisition rejected = budget.acquire(limits, START + 3, DAY, true);
+
+        assertFalse(rejected.admitted());
+        assertEquals(23 * 3_600_000 - 3, rejected.retryAfterMs());
+    }
+
+    @Test
+    void startsAFreshDailyQuotaWhenTheDayRollsOver() {
+        RateLimitService.Limits limits = RateLimitService.Limits.of(0, 2);
+        budget.acquire(limits, START, DAY, true);
+        budget.acquire(limits, START, DAY, true);
+        assertFalse(budget.acquire(limits, START, DAY, true).admitted());
+
+        long nextDay = START + 23 * 3_600_000;
+        assertTrue(budget.acquire(limits, nextDay, DAY.plusDays(1), true).admitted());
+        assertTrue(budget.acquire(limits, nextDay, DAY.plusDays(1), true).admitted());
+        assertFalse(budget.acquire(limits, nextDay, DAY.plusDays(1), true).admitted());
+    }
+}
@@ -0,0 +1,168 @@
+package com.stockgenie.service;
+
+import com.stockgenie.entity.StockDataCoverage;
+import com.stockgenie.repository.StockDataCoverageRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Dates are in 2024: March 29 is Good Friday and July 4 Independence Day.
+ */
+class StockDataCoverageServiceTest {
+
+    private final List<StockDataCoverage> stored = new ArrayList<>();
+    private final StockDataCoverageService service = new StockDataCoverageService(inMemoryRepository());
+
+    @Test
+    void trimsAMissingRangeToTradingDays() {
+        assertEquals(List.of(range("2024-03-04", "2024-03-08")),
+                StockDataCoverageService.missingRanges(List.of(), day("2024-03-02"), day("2024-03-10")));
+    }
+
+    @Test
+    void findsNothingMissingWhenTheOnlyGapsAreWeekendsAndHolidays() {
+        List<StockDataCoverageService.DateRange> covered = List.of(
+                range("2024-03-18", "2024-03-22"), range("2024-03-25", "2024-03-28"), range("2024-04-01", "2024-04-05"));
+
+        assertEquals(List.of(), StockDataCoverageService.missingRanges(covered, day("2024-03-16"), day("2024-04-07")));
+        assertEquals(List.of(), StockDataCoverageService.missingRanges(List.of(), day("2024-03-29"), day("2024-03-31")));
+    }
+
+    @Test
+    void reportsGapsBetweenAndAroundCoveredIntervalsInDateOrder() {
+        List<StockDataCoverageService.DateRange> covered = List.of(
+                range("2024-06-03", "2024-07-03"), range("2024-07-10", "2024-07-12"), range("2024-07-22", "2024-07-26"));
+
+        assertEquals(List.of(range("2024-07-05", "2024-07-09"), range("2024-07-15", "2024-07-19"), range("2024-07-29", "2024-07-31")),
+                StockDataCoverageService.missingRanges(covered, day("2024-07-01"), day("2024-07-31")));
+    }
+
+    @Test
+    void skipsIntervalsThatEndBeforeTheRangeAndToleratesOverlaps() {
+        List<StockDataCoverageService.DateRange> covered = List.of(
+                range("2024-01-02", "2024-02-01"), range("2024-02-15", "2024-03-06"), range("2024-03-04", "2024-03-12"));
+
+        assertEquals(List.of(range("2024-03-13", "2024-03-15")),
+                StockDataCoverageService.missingRanges(covered, day("2024-03-01"), day("2024-03-15")));
+    }
+
+    @Test
+    void mergesIntervalsThatTouchAcrossAWeekend() {
+        service.markCovered("IBM", day("2024-03-04"), day("2024-03-08"));
+
+        service.markCovered("IBM", day("2024-03-11"), day("2024-03-15"));
+
+        assertEquals(List.of(range("2024-03-04", "2024-03-15")), coverage("IBM"));
+        assertEquals(1, stored.size());
+    }
+
+    @Test
+    void mergesIntervalsThatTouchAcrossAHolidayWeekend() {
+        service.markCovered("IBM", day("2024-04-01"), day("2024-04-05"));
+
+        service.markCovered("IBM", day("2024-03-25"), day("2024-03-28"));
+
+        assertEquals(List.of(range("2024-03-25", "2024-04-05")), coverage("IBM"));
+    }
+
+    @Test
+    void keepsIntervalsApartWhenATradingDayLiesBetween() {
+        service.markCovered("IBM", day("2024-03-04"), day("2024-03-07"));
+        service.markCovered("AAPL", day("2024-03-08"), day("2024-03-08"));
+
+        service.markCovered("IBM", day("2024-03-11"), day("2024-03-15"));
+
+        assertEquals(List.of(range("2024-03-04", "2024-03-07"), range("2024-03-11", "2024-03-15")), coverage("IBM"));
+        assertEquals(List.of(range("2024-03-08", "2024-03-08")), coverage("AAPL"));
+    }
+
+    @Test
+    void bridgesEveryIntervalBetweenTheEndsOfTheNewRange() {
+        service.markCovered("IBM", day("2024-03-04"), day("2024-03-05"));
+        service.markCovered("IBM", day("2024-03-11"), day("2024-03-12"));
+        service.markCovered("IBM", day("2024-03-18"), day("2024-03-19"));
+
+        service.markCovered("IBM", day("2024-03-06"), day("2024-03-15"));
+
+        assertEquals(List.of(range("2024-03-04", "2024-03-19")), coverage("IBM"));
+        assertEquals(1, stored.size());
+    }
+
+    @Test
+    void sweepsAgainWhenAMergeMakesAnEarlierIntervalTouch() {
+        // Overlapping rows as two writers racing on one symbol can leave them
+        stored.add(coverage(1, "2024-03-04", "2024-03-06"));
+        stored.add(coverage(2, "2024-03-07", "2024-03-12"));
+
+        service.markCovered("IBM", day("2024-03-11"), day("2024-03-15"));
+
+        assertEquals(List.of(range("2024-03-04", "2024-03-15")), coverage("IBM"));
+        assertEquals(1, stored.size());
+    }
+
+    private List<StockDataCoverageService.DateRange> coverage(String symbol) {
+        return stored.stream()
+                .filter(coverage -> coverage.getSymbol().equals(symbol))
+                .sorted(Comparator.comparing(StockDataCoverage::getStartDate))
+                .map(coverage -> new StockDataCoverageService.DateRange(coverage.getStartDate(), coverage.getEndDate()))
+                .toList();
+    }
+
+    private static StockDataCoverage coverage(long id, String start, String end) {
+        return StockDataCoverage.builder().id(id).symbol("IBM").startDate(day(start)).endDate(day(end)).build();
+    }
+
+    private static StockDataCoverageService.DateRange range(String start, String end) {
+        return new StockDataCoverageService.DateRange(day(start), day(end));
+    }
+
+    private static LocalDate day(String date) {
+        return LocalDate.parse(date);
+    }
+
+    /**
+     * Just the repository calls the service makes, over a list; rows are matched by id
+     */
+    private StockDataCoverageRepository inMemoryRepository() {
+        return (StockDataCoverageRepository) Proxy.newProxyInstance(
+                StockDataCoverageRepository.class.getClassLoader(),
+                new Class<?>[]{StockDataCoverageRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findBySymbolOrderByStartDateAsc":
+                            return stored.stream()
+                                    .filter(coverage -> coverage.getSymbol().equals(args[0]))
+                                    .sorted(Comparator.comparing(StockDataCoverage::getStartDate))
+                                    .toList();
+                        case "save":
+                            StockDataCoverage saved = (StockDataCoverage) args[0];
+                            if (saved.getId() == null) {
+                                saved.setId(stored.stream().mapToLong(StockDataCoverage::getId).max().orElse(0) + 1);
+                            }
+                            stored.removeIf(coverage -> coverage.getId().equals(saved.getId()));
+                            stored.add(saved);
+                            return saved;
+                        case "deleteAll":
+                            for (Object deleted : (Iterable<?>) args[0]) {
+                                stored.removeIf(coverage -> coverage.getId().equals(((StockDataCoverage) deleted).getId()));
+                            }
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryStockDataCoverageRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
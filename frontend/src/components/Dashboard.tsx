@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { TrendingUp, TrendingDown, Activity, Brain, BarChart3, RefreshCw } from 'lucide-react';
-import { stockApi, analysisApi, llmApi, healthApi, StockData, LLMResponse } from '../services/api';
+import { stockApi, analysisApi, llmApi, healthApi, StockData, LLMResponse, ColumnarSeries } from '../services/api';
 import StockChart from './StockChart';
 import TechnicalAnalysis from './TechnicalAnalysis';
 import LLMAnalysis from './LLMAnalysis';
@@ -8,7 +8,7 @@ import HealthStatus from './HealthStatus';
 
 const Dashboard: React.FC = () => {
   const [selectedSymbol, setSelectedSymbol] = useState('AAPL');
-  const [stockData, setStockData] = useState<StockData[]>([]);
+  const [stockData, setStockData] = useState<ColumnarSeries | null>(null);
   const [latestData, setLatestData] = useState<StockData | null>(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
@@ -51,12 +51,13 @@ const Dashboard: React.FC = () => {
   }, [selectedSymbol]);
 
   const getPriceChange = () => {
-    if (!stockData || stockData.length < 2) return { change: 0, percentage: 0 };
+    const close = stockData?.columns.close;
+    if (!close || close.length < 2) return { change: 0, percentage: 0 };
     
-    const latest = stockData[stockData.length - 1];
-    const previous = stockData[stockData.length - 2];
-    const change = latest.close - previous.close;
-    const percentage = (change / previous.close) * 100;
+    const latest = close[close.length - 1];
+    const previous = close[close.length - 2];
+    const change = latest - previous;
+    const percentage = (change / previous) * 100;
     
     return { change, percentage };
   };
@@ -244,7 +245,7 @@ const Dashboard: React.FC = () => {
         {/* Tab Content */}
         <div className="card">
           {activeTab === 'chart' && (
-            <StockChart data={stockData} symbol={selectedSymbol} />
+            <StockChart series={stockData} symbol={selectedSymbol} />
           )}
           {activeTab === 'analysis' && (
             <TechnicalAnalysis symbol={selectedSymbol} />
@@ -1,10 +1,10 @@
 import React, { useState, useEffect } from 'react';
 import { Brain, Send, RefreshCw, AlertCircle, CheckCircle, Clock } from 'lucide-react';
-import { llmApi, LLMRequest, LLMResponse, StockData } from '../services/api';
+import { llmApi, LLMRequest, LLMResponse, ColumnarSeries } from '../services/api';
 
 interface LLMAnalysisProps {
   symbol: string;
-  stockData: StockData[];
+  stockData: ColumnarSeries | null;
 }
 
 const LLMAnalysis: React.FC<LLMAnalysisProps> = ({ symbol, stockData }) => {
@@ -338,9 +338,9 @@ const LLMAnalysis: React.FC<LLMAnalysisProps> = ({ symbol, stockData }) => {
       {/* Data Status */}
       <div className="text-center text-sm text-gray-500">
         <p>
-          {stockData.length === 0 
+          {!stockData || stockData.dates.length === 0 
             ? 'No stock data available for analysis'
-            : `Ready to analyze ${stockData.length} days of data for ${symbol}`
+            : `Ready to analyze ${stockData.dates.length} days of data for ${symbol}`
           }
         </p>
       </div>
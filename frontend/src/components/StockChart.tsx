@@ -10,15 +10,19 @@ import {
   AreaChart,
   Area,
 } from 'recharts';
-import { StockData } from '../services/api';
+import { ColumnarSeries } from '../services/api';
 
 interface StockChartProps {
-  data: StockData[];
+  series: ColumnarSeries | null;
   symbol: string;
 }
 
-const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
-  if (!data || data.length === 0) {
+// More points than this cannot be told apart on screen, so longer series are thinned for drawing
+const MAX_CHART_POINTS = 500;
+
+const StockChart: React.FC<StockChartProps> = ({ series, symbol }) => {
+  const rows = series ? series.dates.length : 0;
+  if (!series || rows === 0) {
     return (
       <div className="flex items-center justify-center h-96 text-gray-500">
         <div className="text-center">
@@ -29,19 +33,35 @@ const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
     );
   }
 
-  // Transform data for the chart
-  const chartData = data.map((item) => ({
-    date: new Date(item.date).toLocaleDateString('en-US', { 
-      month: 'short', 
-      day: 'numeric' 
-    }),
-    fullDate: item.date,
-    open: item.open,
-    high: item.high,
-    low: item.low,
-    close: item.close,
-    volume: item.volume,
-  }));
+  const { open, high, low, close, volume } = series.columns;
+
+  // Chart points are the only per-row objects built; every step-th row, ending on the latest
+  const step = Math.ceil(rows / MAX_CHART_POINTS);
+  const chartData = [];
+  for (let i = (rows - 1) % step; i < rows; i += step) {
+    chartData.push({
+      date: new Date(series.dates[i]).toLocaleDateString('en-US', { 
+        month: 'short', 
+        day: 'numeric' 
+      }),
+      fullDate: series.dates[i],
+      open: open[i],
+      high: high[i],
+      low: low[i],
+      close: close[i],
+      volume: volume[i],
+    });
+  }
+
+  // Summary figures come straight from the columns, over every row
+  let volumeSum = 0;
+  let highest = -Infinity;
+  let lowest = Infinity;
+  for (let i = 0; i < rows; i++) {
+    volumeSum += volume[i];
+    if (high[i] > highest) highest = high[i];
+    if (low[i] < lowest) lowest = low[i];
+  }
 
   const formatTooltipValue = (value: number, name: string) => {
     const formattedValue = value.toFixed(2);
@@ -61,8 +81,8 @@ const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
     }
   };
 
-  const latestPrice = data[data.length - 1]?.close || 0;
-  const firstPrice = data[0]?.close || 0;
+  const latestPrice = close[rows - 1] || 0;
+  const firstPrice = close[0] || 0;
   const priceChange = latestPrice - firstPrice;
   const priceChangePercent = firstPrice > 0 ? (priceChange / firstPrice) * 100 : 0;
   const isPositive = priceChange >= 0;
@@ -84,7 +104,7 @@ const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
         </div>
         <div className="text-right text-sm text-gray-500">
           <p>Last updated: {new Date().toLocaleString()}</p>
-          <p>Data source: {data[0]?.dataSource || 'Unknown'}</p>
+          <p>Data source: {series.dataSource || 'Unknown'}</p>
         </div>
       </div>
 
@@ -180,24 +200,24 @@ const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
       <div className="grid grid-cols-2 md:grid-cols-4 gap-4 pt-4 border-t border-gray-200">
         <div className="text-center">
           <p className="text-sm text-gray-500">Period</p>
-          <p className="font-semibold text-gray-900">{data.length} days</p>
+          <p className="font-semibold text-gray-900">{rows} days</p>
         </div>
         <div className="text-center">
           <p className="text-sm text-gray-500">Avg Volume</p>
           <p className="font-semibold text-gray-900">
-            {Math.round(data.reduce((sum, item) => sum + item.volume, 0) / data.length).toLocaleString()}
+            {Math.round(volumeSum / rows).toLocaleString()}
           </p>
         </div>
         <div className="text-center">
           <p className="text-sm text-gray-500">Highest</p>
           <p className="font-semibold text-gray-900">
-            ${Math.max(...data.map(item => item.high)).toFixed(2)}
+            ${highest.toFixed(2)}
           </p>
         </div>
         <div className="text-center">
           <p className="text-sm text-gray-500">Lowest</p>
           <p className="font-semibold text-gray-900">
-            ${Math.min(...data.map(item => item.low)).toFixed(2)}
+            ${lowest.toFixed(2)}
           </p>
         </div>
       </div>
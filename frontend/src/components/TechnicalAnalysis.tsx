@@ -1,16 +1,13 @@
 import React, { useState, useEffect } from 'react';
 import { Activity, TrendingUp, TrendingDown, BarChart3, RefreshCw } from 'lucide-react';
-import { analysisApi } from '../services/api';
+import { analysisApi, ColumnarSeries } from '../services/api';
 
 interface TechnicalAnalysisProps {
   symbol: string;
 }
 
 interface IndicatorData {
-  [key: string]: Array<{
-    date: string;
-    value: number;
-  }>;
+  [key: string]: ColumnarSeries;
 }
 
 const TechnicalAnalysis: React.FC<TechnicalAnalysisProps> = ({ symbol }) => {
@@ -96,9 +93,9 @@ const TechnicalAnalysis: React.FC<TechnicalAnalysisProps> = ({ symbol }) => {
   };
 
   const getLatestValue = (indicator: string) => {
-    const data = analysisData[indicator];
-    if (!data || data.length === 0) return null;
-    return data[data.length - 1]?.value;
+    const values = analysisData[indicator]?.columns.value;
+    if (!values || values.length === 0) return null;
+    return values[values.length - 1];
   };
 
   const getIndicatorStatus = (indicator: string) => {
@@ -30,6 +30,75 @@ export interface TechnicalAnalysis {
   parameters: string;
 }
 
+// Columnar chart format (format=columnar-binary): a JSON header, then typed arrays
+export interface ColumnarSeries {
+  symbol?: string;
+  dataSource?: string;
+  indicatorType?: string;
+  period?: number;
+  dates: string[];
+  columns: Record<string, Float64Array>;
+}
+
+interface ColumnSpec {
+  offset: number;
+  type: 'int32' | 'float64';
+  scale?: number;
+}
+
+interface SeriesLayout {
+  symbol?: string;
+  dataSource?: string;
+  indicatorType?: string;
+  period?: number;
+  rows: number;
+  dateDeltasOffset: number;
+  columns: Record<string, ColumnSpec>;
+}
+
+const MISSING_INT32 = -2147483648;
+const MS_PER_DAY = 86400000;
+
+export const decodeColumnar = (buffer: ArrayBuffer): Record<string, ColumnarSeries> => {
+  const headerLength = new DataView(buffer).getUint32(4, true);
+  const header = JSON.parse(new TextDecoder().decode(new Uint8Array(buffer, 8, headerLength)));
+  const dataStart = Math.ceil((8 + headerLength) / 8) * 8;
+  const layouts = header.series as Record<string, SeriesLayout>;
+
+  const series: Record<string, ColumnarSeries> = {};
+  for (const [name, layout] of Object.entries(layouts)) {
+    // Epoch day of the first point, then day deltas
+    const deltas = new Int32Array(buffer, dataStart + layout.dateDeltasOffset, layout.rows);
+    const dates: string[] = new Array(layout.rows);
+    let epochDay = 0;
+    for (let i = 0; i < layout.rows; i++) {
+      epochDay += deltas[i];
+      dates[i] = new Date(epochDay * MS_PER_DAY).toISOString().slice(0, 10);
+    }
+
+    const columns: Record<string, Float64Array> = {};
+    for (const [column, spec] of Object.entries(layout.columns)) {
+      if (spec.type === 'int32') {
+        const ticks = new Int32Array(buffer, dataStart + spec.offset, layout.rows);
+        const divisor = 10 ** (spec.scale ?? 0);
+        columns[column] = Float64Array.from(ticks, (t) => (t === MISSING_INT32 ? NaN : t / divisor));
+      } else {
+        columns[column] = new Float64Array(buffer, dataStart + spec.offset, layout.rows);
+      }
+    }
+
+    series[name] = {
+      symbol: layout.symbol,
+      dataSource: layout.dataSource,
+      indicatorType: layout.indicatorType,
+      period: layout.period,
+      dates,
+      columns,
+    };
+  }
+  return series;
+};
+
 export interface LLMRequest {
   symbol: string;
   analysisType: 'quick' | 'comprehensive';
@@ -63,10 +132,13 @@ export interface LLMStatus {
 
 // API Functions
 export const stockApi = {
-  // Get stock data for a symbol
-  getStockData: async (symbol: string, days: number = 30): Promise<StockData[]> => {
-    const response = await api.get(`/stocks/${symbol}?days=${days}`);
-    return response.data;
+  // Get stock data for a symbol as columns: one typed array per field, in date order
+  getStockData: async (symbol: string, days: number = 30): Promise<ColumnarSeries> => {
+    const response = await api.get(`/stocks/${symbol}?days=${days}&format=columnar-binary`, {
+      responseType: 'arraybuffer',
+    });
+    const price = decodeColumnar(response.data).price;
+    return { ...price, symbol: price.symbol ?? symbol };
   },
 
   // Get latest stock data
@@ -89,15 +161,18 @@ export const analysisApi = {
     return response.data;
   },
 
-  // Get technical analysis
+  // Get technical analysis, one columnar series per indicator
   getTechnicalAnalysis: async (symbol: string, days: number = 30, indicators?: string[]) => {
     const params = new URLSearchParams();
     params.append('days', days.toString());
     if (indicators && indicators.length > 0) {
       params.append('indicators', indicators.join(','));
     }
-    const response = await api.get(`/analysis/${symbol}/technical?${params}`);
-    return response.data;
+    params.append('format', 'columnar-binary');
+    const response = await api.get(`/analysis/${symbol}/technical?${params}`, {
+      responseType: 'arraybuffer',
+    });
+    return { symbol, days, analysis: decodeColumnar(response.data) };
   },
 
   // Calculate specific indicators
@@ -0,0 +1,93 @@
+#!/bin/bash
+
+# Stock Genie Concurrency Load Test
+# Measures how many cheap requests the backend keeps serving while slow LLM
+# requests occupy request threads. Run it once per threading mode and compare:
+#
+#   # platform threads (small Tomcat pool makes starvation visible quickly)
+#   cd backend && TOMCAT_MAX_THREADS=20 ./mvnw spring-boot:run
+#   ./scripts/load-test.sh
+#
+#   # virtual threads (Java 21)
+#   cd backend && VIRTUAL_THREADS_ENABLED=true TOMCAT_MAX_THREADS=20 ./mvnw -Pjava21 spring-boot:run
+#   ./scripts/load-test.sh
+#
+# Uses `hey` when it is installed, otherwise falls back to curl + xargs.
+
+set -e
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+# Configuration (override via environment)
+BASE_URL="${BASE_URL:-http://localhost:8080/api/v1}"
+SYMBOL="${SYMBOL:-AAPL}"
+SLOW_REQUESTS="${SLOW_REQUESTS:-40}"       # concurrent LLM requests holding threads
+FAST_REQUESTS="${FAST_REQUESTS:-2000}"     # total cheap requests to send
+FAST_CONCURRENCY="${FAST_CONCURRENCY:-100}"
+RESULTS_DIR="${RESULTS_DIR:-load-test-results}"
+
+echo -e "${BLUE}🚀 Stock Genie Concurrency Load Test${NC}"
+echo -e "${BLUE}====================================${NC}"
+echo ""
+
+# Check if application is running
+if ! curl -s "${BASE_URL}/health" > /dev/null; then
+    echo -e "${RED}❌ Application is not running on ${BASE_URL}${NC}"
+    exit 1
+fi
+
+mkdir -p "$RESULTS_DIR"
+STAMP=$(date +%Y%m%d-%H%M%S)
+
+# Warm the cache so the cheap endpoint measures request handling, not the upstream API
+curl -s "${BASE_URL}/stocks/${SYMBOL}/latest" > /dev/null
+
+echo -e "${YELLOW}Starting ${SLOW_REQUESTS} slow LLM requests in the background...${NC}"
+SLOW_PIDS=()
+for i in $(seq 1 "$SLOW_REQUESTS"); do
+    curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST \
+        -H "Content-Type: application/json" \
+        -d "{\"symbol\": \"${SYMBOL}\", \"analysisType\": \"comprehensive\", \"days\": 30}" \
+        "${BASE_URL}/llm/analyze-simple" >> "${RESULTS_DIR}/slow-${STAMP}.txt" &
+    SLOW_PIDS+=($!)
+done
+
+# Give the slow requests time to occupy request threads
+sleep 2
+
+echo -e "${YELLOW}Sending ${FAST_REQUESTS} requests to /stocks/${SYMBOL}/latest (concurrency ${FAST_CONCURRENCY})...${NC}"
+FAST_URL="${BASE_URL}/stocks/${SYMBOL}/latest"
+
+if command -v hey > /dev/null; then
+    hey -n "$FAST_REQUESTS" -c "$FAST_CONCURRENCY" -t 60 "$FAST_URL" | tee "${RESULTS_DIR}/fast-${STAMP}.txt"
+else
+    START=$(date +%s.%N)
+    seq 1 "$FAST_REQUESTS" | xargs -P "$FAST_CONCURRENCY" -I{} \
+        curl -s -o /dev/null -m 60 -w "%{http_code} %{time_total}\n" "$FAST_URL" > "${RESULTS_DIR}/fast-${STAMP}.txt"
+    END=$(date +%s.%N)
+
+    sort -k2 -n "${RESULTS_DIR}/fast-${STAMP}.txt" | awk -v start="$START" -v end="$END" '
+        { total++; if ($1 >= 200 && $1 < 300) ok++; t[total] = $2 }
+        END {
+            elapsed = end - start
+            printf "Requests:   %d (%d ok, %d failed)\n", total, ok, total - ok
+            printf "Elapsed:    %.2f s\n", elapsed
+            printf "Throughput: %.1f req/s\n", total / elapsed
+            printf "Latency p50: %.3f s  p95: %.3f s  p99: %.3f s  max: %.3f s\n",
+                t[int(total * 0.50) + 1], t[int(total * 0.95) + 1], t[int(total * 0.99) + 1], t[total]
+        }'
+fi
+
+echo ""
+echo -e "${YELLOW}Waiting for slow requests to finish...${NC}"
+wait "${SLOW_PIDS[@]}" 2> /dev/null || true
+awk '{ n++; s += $2; if ($2 > m) m = $2 } END { if (n) printf "Slow requests: %d, mean %.2f s, max %.2f s\n", n, s / n, m }' \
+    "${RESULTS_DIR}/slow-${STAMP}.txt"
+
+echo ""
+echo -e "${GREEN}✅ Done. Raw timings in ${RESULTS_DIR}/*-${STAMP}.txt${NC}"